@@ -0,0 +1,150 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.Room;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static com.gaiagps.iburn.database.Event.DAY;
+import static com.gaiagps.iburn.database.Event.END_TIME;
+import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
+import static com.gaiagps.iburn.database.Event.START_TIME;
+import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
+import static com.gaiagps.iburn.database.EventOccurrence.EVENT_ID;
+import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link SupportSQLiteDatabase#insert} with {@link BulkInsert} over a synthetic events feed
+ * the size of a full year's, logging rows per second for each under the "BulkInsertBenchmark" tag.
+ * After a warm-up run, each run is logged, then a summary of the median rate of each path and the speedup.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BulkInsertBenchmark {
+
+    private static final String TAG = "BulkInsertBenchmark";
+
+    private static final int EVENT_COUNT = 4_000;
+    private static final int OCCURRENCES_PER_EVENT = 3;
+    private static final int WARM_UP_RUNS = 1;
+    private static final int RUNS = 7;
+
+    private AppDatabase db;
+    private final List<ContentValues> rows = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+
+        long startTime = 1535302800000L;
+        for (int event = 0; event < EVENT_COUNT; event++) {
+            for (int i = 0; i < OCCURRENCES_PER_EVENT; i++) {
+                ContentValues values = new ContentValues();
+                values.put(EVENT_ID, event);
+                values.put(START_TIME, startTime + i * 86_400_000L);
+                values.put(START_TIME_PRETTY, "Mon 8/27 10:00 AM");
+                values.put(END_TIME, startTime + i * 86_400_000L + 7_200_000L);
+                values.put(END_TIME_PRETTY, "Mon 8/27 12:00 PM");
+                values.put(DAY, 27 + i);
+                values.put(SPANS_DAY, false);
+                values.put(FAVORITE, false);
+                rows.add(values);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void compareInsertPaths() {
+        SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+        String[] columns = rows.get(0).keySet().toArray(new String[0]);
+
+        double[] contentValuesRates = new double[RUNS];
+        double[] bulkRates = new double[RUNS];
+        for (int run = -WARM_UP_RUNS; run < RUNS; run++) {
+            long contentValuesNs = timeInserts(database, () -> {
+                for (ContentValues values : rows) {
+                    database.insert(EventOccurrence.TABLE_NAME, SQLiteDatabase.CONFLICT_NONE, values);
+                }
+            });
+
+            long bulkNs = timeInserts(database, () -> {
+                try (BulkInsert insert = BulkInsert.compile(database, EventOccurrence.TABLE_NAME, columns)) {
+                    for (ContentValues values : rows) {
+                        insert.insert(values);
+                    }
+                }
+            });
+
+            if (run < 0) continue;
+            contentValuesRates[run] = rowsPerSecond(contentValuesNs);
+            bulkRates[run] = rowsPerSecond(bulkNs);
+            Log.i(TAG, String.format(Locale.US, "Run %d: insert %.0f rows/s, BulkInsert %.0f rows/s",
+                    run, contentValuesRates[run], bulkRates[run]));
+        }
+
+        double contentValuesMedian = median(contentValuesRates);
+        double bulkMedian = median(bulkRates);
+        Log.i(TAG, String.format(Locale.US,
+                "Summary, median of %d runs of %d rows: insert %.0f rows/s, BulkInsert %.0f rows/s, %.2fx speedup",
+                RUNS, rows.size(), contentValuesMedian, bulkMedian, bulkMedian / contentValuesMedian));
+    }
+
+    /**
+     * @return the duration of inserts within a transaction, after checking every row was inserted
+     */
+    private long timeInserts(SupportSQLiteDatabase database, Runnable inserts) {
+        database.execSQL("DELETE FROM " + EventOccurrence.TABLE_NAME);
+
+        long startNs = System.nanoTime();
+        database.beginTransaction();
+        try {
+            inserts.run();
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        long durationNs = System.nanoTime() - startNs;
+
+        Cursor cursor = database.query("SELECT COUNT(*) FROM " + EventOccurrence.TABLE_NAME);
+        try {
+            cursor.moveToFirst();
+            assertEquals(rows.size(), cursor.getInt(0));
+        } finally {
+            cursor.close();
+        }
+        return durationNs;
+    }
+
+    private double rowsPerSecond(long durationNs) {
+        return rows.size() / (durationNs / 1e9);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
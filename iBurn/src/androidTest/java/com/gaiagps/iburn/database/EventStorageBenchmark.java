@@ -0,0 +1,151 @@
+package com.gaiagps.iburn.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+import static com.gaiagps.iburn.database.EventOccurrence.EVENT_ID;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
+
+/**
+ * Compares the events feed stored as one row per occurrence, as up to schema version 6, with events
+ * and their occurrences in separate tables, as since version 7. Each layout is created from its
+ * exported schema, with its indices, and filled with a {@link SyntheticFeed}.
+ * Logs the database size and insert time of each under the "EventStorageBenchmark" tag.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class EventStorageBenchmark {
+
+    private static final String TAG = "EventStorageBenchmark";
+
+    private static final int RUNS = 3;
+
+    private static final int ONE_TABLE_VERSION = 6;
+    private static final int SPLIT_VERSION = 8;
+
+    private final Context context = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void compareLayouts() throws IOException, JSONException {
+        List<String> oneTable = createStatements(ONE_TABLE_VERSION, Event.TABLE_NAME);
+        List<String> split = createStatements(SPLIT_VERSION, Event.TABLE_NAME, EventOccurrence.TABLE_NAME);
+        List<ContentValues> events = SyntheticFeed.events();
+
+        for (int run = 0; run < RUNS; run++) {
+            long oneTableStartNs = System.nanoTime();
+            long oneTableBytes = fill("events-one-table.db", oneTable, database -> {
+                for (ContentValues event : events) {
+                    for (int i = 0; i < SyntheticFeed.OCCURRENCES_PER_EVENT; i++) {
+                        ContentValues row = new ContentValues(event);
+                        row.remove(ID);
+                        row.remove(CONTENT_HASH);
+                        row.putAll(SyntheticFeed.occurrence(event, i));
+                        row.remove(EVENT_ID);
+                        database.insert(Event.TABLE_NAME, null, row);
+                    }
+                }
+            });
+            long oneTableNs = System.nanoTime() - oneTableStartNs;
+
+            long splitStartNs = System.nanoTime();
+            long splitBytes = fill("events-split.db", split, database -> {
+                for (ContentValues event : events) {
+                    database.insert(Event.TABLE_NAME, null, event);
+                    for (int i = 0; i < SyntheticFeed.OCCURRENCES_PER_EVENT; i++) {
+                        database.insert(EventOccurrence.TABLE_NAME, null, SyntheticFeed.occurrence(event, i));
+                    }
+                }
+            });
+            long splitNs = System.nanoTime() - splitStartNs;
+
+            Log.i(TAG, String.format(Locale.US,
+                    "Run %d, %d events x %d occurrences: one table %d KB in %d ms, split tables %d KB in %d ms",
+                    run, SyntheticFeed.EVENT_COUNT, SyntheticFeed.OCCURRENCES_PER_EVENT,
+                    oneTableBytes / 1024, oneTableNs / 1_000_000, splitBytes / 1024, splitNs / 1_000_000));
+        }
+    }
+
+    private interface Inserts {
+        void insert(SQLiteDatabase database);
+    }
+
+    /**
+     * Create a fresh database named name with the given schema, and run inserts in one transaction.
+     *
+     * @return the size of the database file
+     */
+    private long fill(String name, List<String> schema, Inserts inserts) {
+        context.deleteDatabase(name);
+        File file = context.getDatabasePath(name);
+        SQLiteDatabase database = context.openOrCreateDatabase(name, Context.MODE_PRIVATE, null);
+        try {
+            for (String sql : schema) {
+                database.execSQL(sql);
+            }
+            database.beginTransaction();
+            try {
+                inserts.insert(database);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            database.close();
+        }
+        long bytes = file.length();
+        context.deleteDatabase(name);
+        return bytes;
+    }
+
+    /**
+     * @return the statements creating tables, and their indices, at the given version of the exported
+     * Room schema
+     */
+    private static List<String> createStatements(int version, String... tables) throws IOException, JSONException {
+        String path = AppDatabase.class.getCanonicalName() + "/" + version + ".json";
+        InputStream in = InstrumentationRegistry.getContext().getAssets().open(path);
+        String json;
+        try {
+            json = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+        } finally {
+            in.close();
+        }
+
+        List<String> wanted = Arrays.asList(tables);
+        List<String> statements = new ArrayList<>();
+        JSONArray entities = new JSONObject(json).getJSONObject("database").getJSONArray("entities");
+        for (int i = 0; i < entities.length(); i++) {
+            JSONObject entity = entities.getJSONObject(i);
+            String table = entity.getString("tableName");
+            if (!wanted.contains(table)) continue;
+
+            statements.add(entity.getString("createSql").replace("${TABLE_NAME}", table));
+            JSONArray indices = entity.optJSONArray("indices");
+            for (int j = 0; indices != null && j < indices.length(); j++) {
+                statements.add(indices.getJSONObject(j).getString("createSql").replace("${TABLE_NAME}", table));
+            }
+        }
+        return statements;
+    }
+}
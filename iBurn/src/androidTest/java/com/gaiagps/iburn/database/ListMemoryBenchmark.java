@@ -0,0 +1,145 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.Room;
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the memory retained by the full camps and events lists when loaded as list rows, such as
+ * {@link CampRow}, with the same lists loaded as complete entities, as lists were before row POJOs.
+ * Logs both under the "ListMemoryBenchmark" tag.
+ * <p>
+ * Retained size is computed from the loaded objects rather than sampled from the heap, so it doesn't
+ * depend on when the collector runs: each item's fields, padded to 8 bytes, plus each String it holds.
+ * Strings are counted at 2 bytes per char, as before Android 8 compressed Latin-1 strings.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ListMemoryBenchmark {
+
+    private static final String TAG = "ListMemoryBenchmark";
+
+    private static final int OBJECT_HEADER_BYTES = 8;
+    private static final int REFERENCE_BYTES = 4;
+    // Header, length and hash code, ahead of the chars
+    private static final int STRING_BYTES = 16;
+    private static final int LIST_SLOT_BYTES = REFERENCE_BYTES;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+        SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (ContentValues camp : SyntheticFeed.camps()) {
+                database.insert(Camp.TABLE_NAME, SQLiteDatabase.CONFLICT_NONE, camp);
+            }
+            for (ContentValues event : SyntheticFeed.events()) {
+                database.insert(Event.TABLE_NAME, SQLiteDatabase.CONFLICT_NONE, event);
+                for (int i = 0; i < SyntheticFeed.OCCURRENCES_PER_EVENT; i++) {
+                    database.insert(EventOccurrence.TABLE_NAME, SQLiteDatabase.CONFLICT_NONE,
+                            SyntheticFeed.occurrence(event, i));
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void compareCamps() throws IllegalAccessException {
+        List<CampRow> rows = db.campDao().getAll();
+        List<Camp> entities = new ArrayList<>(rows.size());
+        for (CampRow row : rows) {
+            entities.add(db.campDao().findById(row.id));
+        }
+        report("Camps", rows, entities);
+    }
+
+    @Test
+    public void compareEvents() throws IllegalAccessException {
+        List<EventRow> rows = db.eventDao().getAll();
+        List<Event> entities = new ArrayList<>(rows.size());
+        for (EventRow row : rows) {
+            entities.add(db.eventDao().findById(row.id));
+        }
+        report("Events", rows, entities);
+    }
+
+    private void report(String name, List<? extends PlayaItem> rows, List<? extends PlayaItem> entities)
+            throws IllegalAccessException {
+        assertEquals(rows.size(), entities.size());
+        long rowBytes = retainedBytes(rows);
+        long entityBytes = retainedBytes(entities);
+        Log.i(TAG, String.format(Locale.US, "%s, %d items: entities %d KB, list rows %d KB (%.0f%% less)",
+                name, rows.size(), entityBytes / 1024, rowBytes / 1024, 100.0 * (entityBytes - rowBytes) / entityBytes));
+    }
+
+    private static long retainedBytes(List<? extends PlayaItem> items) throws IllegalAccessException {
+        long bytes = OBJECT_HEADER_BYTES + (long) items.size() * LIST_SLOT_BYTES;
+        for (PlayaItem item : items) {
+            bytes += retainedBytes(item);
+        }
+        return bytes;
+    }
+
+    private static long retainedBytes(PlayaItem item) throws IllegalAccessException {
+        long fieldBytes = OBJECT_HEADER_BYTES;
+        long stringBytes = 0;
+        for (Class<?> type = item.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+
+                Class<?> fieldType = field.getType();
+                if (fieldType == long.class || fieldType == double.class) {
+                    fieldBytes += 8;
+                } else if (fieldType == boolean.class || fieldType == byte.class) {
+                    fieldBytes += 1;
+                } else if (fieldType == char.class || fieldType == short.class) {
+                    fieldBytes += 2;
+                } else {
+                    fieldBytes += 4;
+                }
+
+                if (fieldType == String.class) {
+                    field.setAccessible(true);
+                    String value = (String) field.get(item);
+                    if (value != null) {
+                        stringBytes += align(STRING_BYTES + 2L * value.length());
+                    }
+                }
+            }
+        }
+        return align(fieldBytes) + stringBytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,60 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory;
+import android.arch.persistence.room.testing.MigrationTestHelper;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_1_2;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_2_3;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_3_4;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_4_5;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_5_6;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_6_7;
+import static com.gaiagps.iburn.database.PlayaDatabase2Kt.getMIGRATION_7_8;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrates a database created at version 1, that of the bundled database, to the current version,
+ * and validates the result against the exported schema. The search index table isn't Room's, so
+ * isn't in the schemas; migrations starting past it can't be replayed here. Validation doesn't
+ * look for tables it doesn't know of, so it's checked for separately
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final int LATEST_VERSION = 8;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+            AppDatabase.class.getCanonicalName(), new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrateBundledVersionToLatest() throws IOException {
+        helper.createDatabase(TEST_DB, 1).close();
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, LATEST_VERSION, false,
+                getMIGRATION_1_2(), getMIGRATION_2_3(), getMIGRATION_3_4(), getMIGRATION_4_5(),
+                getMIGRATION_5_6(), getMIGRATION_6_7(), getMIGRATION_7_8());
+        assertTrue(hasTable(db, SearchIndex.TABLE_NAME));
+    }
+
+    private static boolean hasTable(SupportSQLiteDatabase db, String table) {
+        Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new Object[]{table});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+}
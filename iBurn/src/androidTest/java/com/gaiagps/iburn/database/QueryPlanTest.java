@@ -0,0 +1,127 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.Room;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.TextUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs EXPLAIN QUERY PLAN over every filtered DAO query and fails if any of them
+ * falls back to a full table scan.
+ * <p>
+ * DAOs declare each {@link android.arch.persistence.room.Query} as a String constant, which is
+ * found here by reflection, so the SQL checked is the SQL Room compiles. Parameters are bound
+ * to null, which doesn't change the plan.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    // Older SQLite reports "SCAN TABLE t", newer reports "SCAN t". Either without "USING" is a full scan
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?\\w+\\b(?!.*USING).*");
+    private static final Pattern PARAMETER = Pattern.compile(":(\\w+)");
+
+    private AppDatabase db;
+    private final List<String> failures = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void artQueriesUseIndices() throws IllegalAccessException {
+        checkQueries(ArtDao.class);
+    }
+
+    @Test
+    public void campQueriesUseIndices() throws IllegalAccessException {
+        checkQueries(CampDao.class);
+    }
+
+    @Test
+    public void eventQueriesUseIndices() throws IllegalAccessException {
+        checkQueries(EventDao.class);
+    }
+
+    @Test
+    public void userPoiQueriesUseIndices() throws IllegalAccessException {
+        checkQueries(UserPoiDao.class);
+    }
+
+    /**
+     * Check each query constant of dao with a WHERE clause. Unfiltered queries list a whole table,
+     * so are expected to scan it
+     */
+    private void checkQueries(Class<?> dao) throws IllegalAccessException {
+        int checked = 0;
+        for (Field field : dao.getFields()) {
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) continue;
+
+            String sql = (String) field.get(null);
+            boolean isQuery = sql.startsWith("SELECT ") || sql.startsWith("UPDATE ");
+            if (isQuery && sql.contains(" WHERE ")) {
+                assertIndexed(dao.getSimpleName() + "." + field.getName(), sql);
+                checked++;
+            }
+        }
+        assertFalse("No queries found on " + dao.getSimpleName(), checked == 0);
+
+        if (!failures.isEmpty()) {
+            fail("Full table scans:\n" + TextUtils.join("\n", failures));
+        }
+    }
+
+    private void assertIndexed(String name, String sql) {
+        SupportSQLiteDatabase sqlDb = db.getOpenHelper().getReadableDatabase();
+        Cursor cursor = sqlDb.query("EXPLAIN QUERY PLAN " + sql, new Object[parameterCount(sql)]);
+        try {
+            int detailIdx = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailIdx);
+                if (FULL_SCAN.matcher(detail).matches()) {
+                    failures.add(name + ": " + detail + " <- " + sql);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the number of distinct :named parameters in sql. SQLite binds repeats of a name once
+     */
+    private static int parameterCount(String sql) {
+        Set<String> names = new HashSet<>();
+        Matcher matcher = PARAMETER.matcher(sql);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names.size();
+    }
+}
@@ -0,0 +1,130 @@
+package com.gaiagps.iburn.database;
+
+import android.content.ContentValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.gaiagps.iburn.database.Camp.HOMETOWN;
+import static com.gaiagps.iburn.database.Event.ALL_DAY;
+import static com.gaiagps.iburn.database.Event.CAMP_PLAYA_ID;
+import static com.gaiagps.iburn.database.Event.CHECK_LOC;
+import static com.gaiagps.iburn.database.Event.DAY;
+import static com.gaiagps.iburn.database.Event.END_TIME;
+import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
+import static com.gaiagps.iburn.database.Event.START_TIME;
+import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.TYPE;
+import static com.gaiagps.iburn.database.EventOccurrence.EVENT_ID;
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
+import static com.gaiagps.iburn.database.PlayaItem.DESC;
+import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
+
+/**
+ * Rows shaped like a full year's iBurn API feed, for benchmarks. Text fields have the feed's typical
+ * lengths, and content is seeded so every run sees the same rows
+ */
+class SyntheticFeed {
+
+    static final int CAMP_COUNT = 1_500;
+    static final int EVENT_COUNT = 4_000;
+    static final int OCCURRENCES_PER_EVENT = 3;
+
+    private static final int NAME_LENGTH = 30;
+    private static final int DESC_LENGTH = 350;
+
+    private SyntheticFeed() {
+    }
+
+    /**
+     * @return {@link Camp} rows with ids 1 to {@link #CAMP_COUNT}
+     */
+    static List<ContentValues> camps() {
+        Random random = new Random(0);
+        List<ContentValues> camps = new ArrayList<>(CAMP_COUNT);
+        for (int camp = 1; camp <= CAMP_COUNT; camp++) {
+            ContentValues values = item(random, camp, "camps");
+            values.put(HOMETOWN, "Oakland, CA");
+            values.put(FAVORITE, false);
+            camps.add(values);
+        }
+        return camps;
+    }
+
+    /**
+     * @return {@link EventInfo} rows with ids 1 to {@link #EVENT_COUNT}
+     */
+    static List<ContentValues> events() {
+        Random random = new Random(1);
+        List<ContentValues> events = new ArrayList<>(EVENT_COUNT);
+        for (int event = 1; event <= EVENT_COUNT; event++) {
+            ContentValues values = item(random, event, "events");
+            values.put(TYPE, "work");
+            values.put(ALL_DAY, false);
+            values.put(CHECK_LOC, false);
+            values.put(CAMP_PLAYA_ID, "a1Xd0000000" + (1 + random.nextInt(CAMP_COUNT)));
+            events.add(values);
+        }
+        return events;
+    }
+
+    /**
+     * @return the {@link EventOccurrence} row of the index'th occurrence of event, one day apart
+     */
+    static ContentValues occurrence(ContentValues event, int index) {
+        long startTime = 1535302800000L + index * 86_400_000L;
+        ContentValues values = new ContentValues();
+        values.put(EVENT_ID, event.getAsInteger(ID));
+        values.put(START_TIME, startTime);
+        values.put(START_TIME_PRETTY, "Mon 8/27 10:00 AM");
+        values.put(END_TIME, startTime + 7_200_000L);
+        values.put(END_TIME_PRETTY, "Mon 8/27 12:00 PM");
+        values.put(DAY, 27 + index);
+        values.put(SPANS_DAY, false);
+        values.put(FAVORITE, false);
+        return values;
+    }
+
+    private static ContentValues item(Random random, int id, String path) {
+        ContentValues values = new ContentValues();
+        values.put(ID, id);
+        values.put(NAME, text(random, NAME_LENGTH));
+        values.put(DESC, text(random, DESC_LENGTH));
+        values.put(URL, "https://example.org/" + path + "/" + id);
+        values.put(CONTACT, "host" + id + "@example.org");
+        values.put(PLAYA_ADDR, "7:30 & E");
+        values.put(PLAYA_ADDR_UNOFFICIAL, "7:30 & E");
+        values.put(PLAYA_ID, (path.equals("camps") ? "a1Xd0000000" : "a2I0V000001") + id);
+        values.put(LATITUDE, 40.78 + random.nextDouble() * 0.02);
+        values.put(LONGITUDE, -119.21 + random.nextDouble() * 0.02);
+        values.put(LATITUDE_UNOFFICIAL, 0);
+        values.put(LONGITUDE_UNOFFICIAL, 0);
+        values.put(CONTENT_HASH, random.nextLong());
+        return values;
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            if (text.length() > 0) text.append(' ');
+            int wordLength = 2 + random.nextInt(8);
+            for (int i = 0; i < wordLength; i++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return text.substring(0, length);
+    }
+}
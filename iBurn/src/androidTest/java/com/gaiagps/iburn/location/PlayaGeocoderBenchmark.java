@@ -0,0 +1,66 @@
+package com.gaiagps.iburn.location;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures per-call latency of {@link PlayaGeocoder} over points and addresses spread across the city,
+ * logging ns/op for each direction under the "PlayaGeocoderBenchmark" tag.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class PlayaGeocoderBenchmark {
+
+    private static final String TAG = "PlayaGeocoderBenchmark";
+
+    private static final int SAMPLES = 1_000;
+    private static final int WARMUP_RUNS = 2;
+    private static final int RUNS = 5;
+
+    private static final String[] STREETS = {"Esplanade", "A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L"};
+
+    @Test
+    public void measureLatency() {
+        long buildStartNs = System.nanoTime();
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        Log.i(TAG, String.format("First use %.1f ms", (System.nanoTime() - buildStartNs) / 1e6));
+
+        Random random = new Random(2018);
+        double[] latitudes = new double[SAMPLES];
+        double[] longitudes = new double[SAMPLES];
+        String[] addresses = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            latitudes[i] = 40.763 + random.nextDouble() * 0.047;
+            longitudes[i] = -119.237 + random.nextDouble() * 0.061;
+            int minutes = 120 + random.nextInt(49) * 10;
+            addresses[i] = String.format("%d:%02d & %s", minutes / 60, minutes % 60, STREETS[random.nextInt(STREETS.length)]);
+        }
+
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            long reverseStartNs = System.nanoTime();
+            for (int i = 0; i < SAMPLES; i++) {
+                assertNotNull(geocoder.reverse(latitudes[i], longitudes[i]));
+            }
+            long reverseNs = System.nanoTime() - reverseStartNs;
+
+            long forwardStartNs = System.nanoTime();
+            for (String address : addresses) {
+                geocoder.forward(address);
+            }
+            long forwardNs = System.nanoTime() - forwardStartNs;
+
+            if (run >= WARMUP_RUNS) {
+                Log.i(TAG, String.format("Run %d: reverse %d ns/op, forward %d ns/op",
+                        run - WARMUP_RUNS, reverseNs / SAMPLES, forwardNs / SAMPLES));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gaiagps.iburn.map;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.gaiagps.iburn.location.PlayaGeocoder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures building a {@link PointClusterIndex} over a year's worth of camps, art and events, each geocoded
+ * from a random address, and querying it for a phone-sized viewport at each zoom of the map. Logs the build
+ * in ms and queries in us/op under the "PointClusterIndexBenchmark" tag.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class PointClusterIndexBenchmark {
+
+    private static final String TAG = "PointClusterIndexBenchmark";
+
+    private static final int CAMP_COUNT = 1_400;
+    private static final int ART_COUNT = 400;
+    // Events are hosted by camps, so share their locations
+    private static final int EVENT_COUNT = 4_000;
+    private static final int QUERIES = 1_000;
+    private static final int WARMUP_RUNS = 2;
+    private static final int RUNS = 5;
+
+    // A portrait phone's viewport at zoom 12, in degrees. Each zoom in halves it
+    private static final double VIEWPORT_LATITUDE = .05;
+    private static final double VIEWPORT_LONGITUDE = .035;
+
+    private static final String[] STREETS = {"Esplanade", "A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L"};
+
+    @Test
+    public void measureLatency() {
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        Random random = new Random(2018);
+
+        int count = CAMP_COUNT + ART_COUNT + EVENT_COUNT;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < CAMP_COUNT + ART_COUNT; i++) {
+            double[] latLon = null;
+            while (latLon == null) {
+                String address;
+                if (i < CAMP_COUNT) {
+                    int minutes = 120 + random.nextInt(481);
+                    address = String.format("%d:%02d & %s", minutes / 60, minutes % 60, STREETS[random.nextInt(STREETS.length)]);
+                } else {
+                    int minutes = random.nextInt(720);
+                    address = String.format("%d:%02d %d', Open Playa", minutes / 60 == 0 ? 12 : minutes / 60, minutes % 60,
+                            200 + random.nextInt(2300));
+                }
+                latLon = geocoder.forward(address);
+            }
+            latitudes[i] = latLon[0];
+            longitudes[i] = latLon[1];
+        }
+        for (int i = CAMP_COUNT + ART_COUNT; i < count; i++) {
+            int camp = random.nextInt(CAMP_COUNT);
+            latitudes[i] = latitudes[camp];
+            longitudes[i] = longitudes[camp];
+        }
+
+        QueryCounter counter = new QueryCounter();
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            long buildStartNs = System.nanoTime();
+            PointClusterIndex index = PointClusterIndex.build(latitudes, longitudes,
+                    MapItemClustersKt.MIN_CLUSTER_ZOOM, MapItemClustersKt.MAX_CLUSTER_ZOOM, MapItemClustersKt.CLUSTER_RADIUS);
+            long buildNs = System.nanoTime() - buildStartNs;
+
+            StringBuilder queries = new StringBuilder();
+            for (int zoom = MapItemClustersKt.MIN_CLUSTER_ZOOM; zoom <= MapItemClustersKt.MAX_CLUSTER_ZOOM + 2; zoom++) {
+                double scale = Math.pow(2, zoom - MapItemClustersKt.MIN_CLUSTER_ZOOM);
+                double height = VIEWPORT_LATITUDE / scale;
+                double width = VIEWPORT_LONGITUDE / scale;
+                counter.elements = 0;
+                long queryStartNs = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    int center = random.nextInt(count);
+                    index.query(latitudes[center] - height / 2, longitudes[center] - width / 2,
+                            latitudes[center] + height / 2, longitudes[center] + width / 2, zoom + .5, counter);
+                }
+                long queryNs = System.nanoTime() - queryStartNs;
+                queries.append(String.format(", z%d %.1f us/op %d markers", zoom, queryNs / 1e3 / QUERIES,
+                        counter.elements / QUERIES));
+            }
+
+            if (run >= WARMUP_RUNS) {
+                Log.i(TAG, String.format("Run %d: build %d points %.1f ms%s",
+                        run - WARMUP_RUNS, count, buildNs / 1e6, queries));
+            }
+        }
+
+        // At the coarsest zoom, the whole city is in clusters accounting for every point
+        counter.points = 0;
+        PointClusterIndex index = PointClusterIndex.build(latitudes, longitudes,
+                MapItemClustersKt.MIN_CLUSTER_ZOOM, MapItemClustersKt.MAX_CLUSTER_ZOOM, MapItemClustersKt.CLUSTER_RADIUS);
+        index.query(-90, -180, 90, 180, MapItemClustersKt.MIN_CLUSTER_ZOOM, counter);
+        assertEquals(count, counter.points);
+    }
+
+    private static final class QueryCounter implements PointClusterIndex.Visitor {
+        int elements;
+        int points;
+
+        @Override
+        public void onPoint(int point) {
+            elements++;
+            points++;
+        }
+
+        @Override
+        public void onCluster(double latitude, double longitude, int count, int expansionZoom) {
+            elements++;
+            points += count;
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.gaiagps.iburn
 
 import android.content.Context
 import android.widget.ImageView
-import com.gaiagps.iburn.database.Art
+import com.gaiagps.iburn.database.ArtRow
 import com.squareup.picasso.Picasso
 import io.reactivex.android.schedulers.AndroidSchedulers
 import okhttp3.Call
@@ -23,7 +23,7 @@ private val httpClient by lazy { OkHttpClient() }
 
 private const val useBundledArtImages = true
 
-fun getArtImageLocalPath(context: Context, art: Art): String? {
+fun getArtImageLocalPath(context: Context, art: ArtRow): String? {
     if (useBundledArtImages) {
         return getArtImageAssetPath(art)
     } else {
@@ -34,7 +34,7 @@ fun getArtImageLocalPath(context: Context, art: Art): String? {
     }
 }
 
-fun loadArtImage(art: Art, view: ImageView, callback: Callback? = null) {
+fun loadArtImage(art: ArtRow, view: ImageView, callback: Callback? = null) {
 
     if (!art.hasImage()) {
         callback?.onError()
@@ -93,7 +93,7 @@ fun loadArtImage(art: Art, view: ImageView, callback: Callback? = null) {
     }
 }
 
-private fun cacheArtImageFile(context: Context, art: Art, callback: Callback) {
+private fun cacheArtImageFile(context: Context, art: ArtRow, callback: Callback) {
     val imageUrl = art.imageUrl
     val request = Request.Builder()
             .url(imageUrl)
@@ -144,7 +144,7 @@ private fun getCachedArtImageFile(context: Context, mediaPath: String): File {
 /**
  * If pulling art images directly from bundled app assets
  */
-private fun getArtImageAssetPath(art: Art): String {
+private fun getArtImageAssetPath(art: ArtRow): String {
     Timber.d("Getting bundled art for ${art.name}")
     return "file:///android_asset/art_images/${art.playaId}.webp"
 }
@@ -12,7 +12,7 @@ import android.support.annotation.NonNull;
 import android.support.v4.content.FileProvider;
 import android.widget.Toast;
 
-import com.gaiagps.iburn.database.Art;
+import com.gaiagps.iburn.database.ArtRow;
 import com.gaiagps.iburn.service.AudioPlayerService;
 
 import java.io.File;
@@ -94,7 +94,7 @@ public class AudioTourManager {
         }
     }
 
-    public void playAudioTourUrl(@NonNull Art art) {
+    public void playAudioTourUrl(@NonNull ArtRow art) {
 
         if (USE_BUNDLED_AUDIO_TOUR) {
             String assetUrl = getTourAssetFileForArt(art);
@@ -110,12 +110,12 @@ public class AudioTourManager {
         }
     }
 
-    public Art getCurrentlyPlayingAudioTourArt() {
+    public ArtRow getCurrentlyPlayingAudioTourArt() {
         return AudioPlayerService.Companion.getCurrentArt();
     }
 
-    private void playLocalMediaForArt(@NonNull Uri localMediaUri, @NonNull Art art) {
-        Art currentlyPlayingArt = getCurrentlyPlayingAudioTourArt();
+    private void playLocalMediaForArt(@NonNull Uri localMediaUri, @NonNull ArtRow art) {
+        ArtRow currentlyPlayingArt = getCurrentlyPlayingAudioTourArt();
         if (currentlyPlayingArt == null || !currentlyPlayingArt.equals(art)) {
             Uri albumArtUri = getFileImage(localMediaUri);
             if (albumArtUri.equals(defaultAlbumArtUri)) {
@@ -188,7 +188,7 @@ public class AudioTourManager {
                 file);
     }
 
-    private String getTourAssetFileForArt(@NonNull Art art) {
+    private String getTourAssetFileForArt(@NonNull ArtRow art) {
         return "file:///android_asset/audio_tour/" + art.playaId + AUDIO_EXT;
     }
 
@@ -205,7 +205,7 @@ public class AudioTourManager {
         return new File(getAudioTourDirectory(context), mediaPath.substring(mediaPath.lastIndexOf("/"), mediaPath.length()));
     }
 
-//    private void cacheAndPlayRemoteMediaPath(@NonNull Art art) {
+//    private void cacheAndPlayRemoteMediaPath(@NonNull ArtRow art) {
 //        Observable.just(art)
 //                .observeOn(Schedulers.io())
 //                .subscribe(ignored -> {
@@ -3,6 +3,8 @@ package com.gaiagps.iburn;
 import android.content.Context;
 import android.text.format.DateUtils;
 
+import com.gaiagps.iburn.adapters.AdapterUtils;
+
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -18,6 +20,14 @@ public class DateUtil {
 
     private static SimpleDateFormat TIME_FORMATTER = new SimpleDateFormat("h:mm a", Locale.US);
 
+    /**
+     * Playa-time hours an event must span to be listed as all-day. See {@link #spansPlayaDay(long, long)}
+     */
+    public static final int ALL_DAY_START_HOUR = 10;
+    public static final int ALL_DAY_END_HOUR = 20;
+
+    private static final long FIRST_PLAYA_EPOCH_DAY = getFirstPlayaEpochDay();
+
     /**
      * Get a human description of an event's state
      * (e.g: Starts in XX, Ends in XX)
@@ -113,40 +123,50 @@ public class DateUtil {
         }
     }
 
-    public static Date getAllDayStartDateTime(String day){
-        /***
-         * This gets the start time
-         * we will assume is the datetime for events that are
-         * actually all day events
-         **/
-        Date now = CurrentDateProvider.getCurrentDate();
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(now);
-        cal.set(Calendar.MONTH,Integer.valueOf(day.split("/")[0])-1);
-        cal.set(Calendar.DATE,Integer.valueOf(day.split("/")[1]));
-        cal.set(Calendar.HOUR_OF_DAY,10);
-        cal.set(Calendar.MINUTE,0);
-        cal.set(Calendar.SECOND,0);
-        cal.set(Calendar.MILLISECOND,0);
-        return cal.getTime();
+    /**
+     * @return the day of the burn on which {@code timeMs} falls in playa time, counted from
+     * {@link AdapterUtils#EVENT_START_DATE} as day 0. This matches the index of the day in
+     * {@link AdapterUtils#sDayAbbreviations}.
+     */
+    public static int getPlayaDay(long timeMs) {
+        return (int) (getPlayaEpochDay(timeMs) - FIRST_PLAYA_EPOCH_DAY);
+    }
+
+    /**
+     * @return true if an event running from {@code startMs} to {@code endMs} covers
+     * {@link #ALL_DAY_START_HOUR} to {@link #ALL_DAY_END_HOUR} playa time on the day it starts.
+     * We list such events with the all-day events.
+     */
+    public static boolean spansPlayaDay(long startMs, long endMs) {
+        Calendar cal = Calendar.getInstance(PLAYA_TIME_ZONE);
+        cal.setTimeInMillis(startMs);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+
+        cal.set(Calendar.HOUR_OF_DAY, ALL_DAY_START_HOUR);
+        long allDayStart = cal.getTimeInMillis();
+        cal.set(Calendar.HOUR_OF_DAY, ALL_DAY_END_HOUR);
+        long allDayEnd = cal.getTimeInMillis();
+
+        return startMs <= allDayStart && endMs >= allDayEnd;
+    }
+
+    /**
+     * @return days since the unix epoch of the playa-local date of {@code timeMs}
+     */
+    private static long getPlayaEpochDay(long timeMs) {
+        return (timeMs + PLAYA_TIME_ZONE.getOffset(timeMs)) / DateUtils.DAY_IN_MILLIS;
     }
 
-    public static Date getAllDayEndDateTime(String day){
-        /***
-         * This gets the end time we will assume is the datetime
-         * for events that are
-         * actually all day events
-         **/
-        Date now = CurrentDateProvider.getCurrentDate();
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(now);
-        cal.set(Calendar.MONTH,Integer.valueOf(day.split("/")[0])-1);
-        cal.set(Calendar.DATE,Integer.valueOf(day.split("/")[1]));
-        cal.set(Calendar.HOUR_OF_DAY,20);
-        cal.set(Calendar.MINUTE,0);
-        cal.set(Calendar.SECOND,0);
-        cal.set(Calendar.MILLISECOND,0);
-        Date newTime = cal.getTime();
-        return newTime;
+    private static long getFirstPlayaEpochDay() {
+        // EVENT_START_DATE is midnight in the device time zone. Take its calendar date as the first playa day
+        Calendar deviceCal = Calendar.getInstance();
+        deviceCal.setTime(AdapterUtils.EVENT_START_DATE);
+
+        Calendar utcCal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utcCal.clear();
+        utcCal.set(deviceCal.get(Calendar.YEAR), deviceCal.get(Calendar.MONTH), deviceCal.get(Calendar.DATE));
+        return utcCal.getTimeInMillis() / DateUtils.DAY_IN_MILLIS;
     }
 }
@@ -1,10 +1,12 @@
 package com.gaiagps.iburn
 
 import android.content.Context
-import io.reactivex.schedulers.Schedulers
+import okio.HashingSink
+import okio.Okio
 import timber.log.Timber
 import java.io.File
-import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.TimeUnit
 
 /**
  * Utility to copy bundled Mapbox offline database so that no internet is required to fetch
@@ -14,15 +16,78 @@ import java.io.FileOutputStream
 
 private const val databaseName = "mbgl-offline.db"
 
-fun copyBundledMap(context: Context) {
+/**
+ * Install the bundled map. Call before [com.mapbox.mapboxsdk.Mapbox.getInstance]: Mapbox keeps its ambient cache
+ * and offline regions in this database and holds it open once used, so it's never replaced after.
+ *
+ * Once this version of the app has installed the map, this reads nothing. Otherwise the asset's SHA-256 is
+ * compared to that of the asset last installed:
+ * - Without a database, the asset is copied.
+ * - With a database but no hash, as after updating from a version that didn't record one, the database is kept.
+ *   It was copied from a bundled map, and holds what Mapbox has cached since.
+ * - With another asset's hash, the database is replaced. iBurn creates no offline regions, so only the ambient
+ *   cache is lost, and it refills as the map is viewed.
+ *
+ * The asset is about 320 KB, so the hash and copy cost a few ms on the main thread, once per app update.
+ * Mapbox writes to the installed database, so the installed copy is never hashed itself.
+ */
+fun installBundledMap(context: Context) {
 
-    Schedulers.io().scheduleDirect {
+    val prefs = PrefsHelper(context)
+    val dest = File(context.filesDir, databaseName)
+    if (prefs.bundledMapVersion == BuildConfig.VERSION_CODE && dest.exists()) {
+        Timber.d("Bundled mapbox map already installed")
+        return
+    }
+
+    try {
+        val hash = hashAsset(context)
+        val installedHash = prefs.bundledMapHash
+        if (dest.exists() && (installedHash == null || installedHash == hash)) {
+            Timber.d("Keeping installed mapbox map")
+        } else {
+            val startNs = System.nanoTime()
+            copyAsset(context, dest)
+            Timber.d("Copied bundled mapbox map. %d bytes in %d ms", dest.length(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs))
+        }
+        // Recorded only once the map is in place, so a failed copy is retried on the next launch
+        prefs.setBundledMap(BuildConfig.VERSION_CODE, hash)
+    } catch (e: IOException) {
+        Timber.e(e, "Failed to install bundled mapbox map")
+    }
+}
 
-        val dest = File(context.filesDir, databaseName)
+/**
+ * @return the hex SHA-256 of the bundled map
+ */
+private fun hashAsset(context: Context): String {
+    val startNs = System.nanoTime()
+    val hashingSink = HashingSink.sha256(Okio.blackhole())
+    Okio.buffer(hashingSink).use { sink ->
+        Okio.source(context.assets.open("databases/$databaseName")).use { source -> sink.writeAll(source) }
+    }
+    Timber.d("Hashed bundled mapbox map in %d ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs))
+    return hashingSink.hash().hex()
+}
 
-        context.assets
-                .open("databases/$databaseName")
-                .copyTo(FileOutputStream(dest))
-        Timber.d("Copied bundled mapbox map")
+/**
+ * Copy the bundled map to [dest] through a temporary file, so [dest] is never left partially written. Journals
+ * left beside a replaced database would be applied to the copy, so they're deleted with it
+ */
+private fun copyAsset(context: Context, dest: File) {
+    val temp = File(dest.path + ".tmp")
+    try {
+        Okio.buffer(Okio.sink(temp)).use { sink ->
+            Okio.source(context.assets.open("databases/$databaseName")).use { source -> sink.writeAll(source) }
+        }
+        for (suffix in arrayOf("-journal", "-wal", "-shm")) {
+            File(dest.path + suffix).delete()
+        }
+        if (!temp.renameTo(dest)) {
+            throw IOException("Failed to rename $temp to $dest")
+        }
+    } finally {
+        temp.delete()
     }
-}
\ No newline at end of file
+}
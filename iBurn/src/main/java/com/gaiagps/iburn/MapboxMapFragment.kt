@@ -22,6 +22,13 @@ import com.gaiagps.iburn.activity.PlayaItemViewActivity
 import com.gaiagps.iburn.database.*
 import com.gaiagps.iburn.js.Geocoder
 import com.gaiagps.iburn.location.LocationProvider
+import com.gaiagps.iburn.location.PlayaLayout
+import com.gaiagps.iburn.location.ReverseGeocodeCache
+import com.gaiagps.iburn.map.ItemsInView
+import com.gaiagps.iburn.map.MapItemClusters
+import com.gaiagps.iburn.map.MapItemLayers
+import com.gaiagps.iburn.map.MapItemUpdate
+import com.gaiagps.iburn.map.MapItemUpdater
 import com.google.android.gms.location.LocationRequest
 import com.mapbox.mapboxsdk.annotations.*
 import com.mapbox.mapboxsdk.camera.CameraPosition
@@ -29,7 +36,6 @@ import com.mapbox.mapboxsdk.camera.CameraUpdateFactory
 import com.mapbox.mapboxsdk.exceptions.InvalidLatLngBoundsException
 import com.mapbox.mapboxsdk.geometry.LatLng
 import com.mapbox.mapboxsdk.geometry.LatLngBounds
-import com.mapbox.mapboxsdk.geometry.VisibleRegion
 import com.mapbox.mapboxsdk.maps.MapView
 import com.mapbox.mapboxsdk.maps.MapboxMap
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback
@@ -39,11 +45,14 @@ import com.mapbox.mapboxsdk.plugins.locationlayer.modes.CameraMode.TRACKING_COMP
 import com.mapbox.mapboxsdk.plugins.locationlayer.modes.RenderMode
 import com.mapbox.mapboxsdk.plugins.locationlayer.modes.RenderMode.COMPASS
 import com.mapbox.mapboxsdk.utils.MapFragmentUtils
+import io.reactivex.BackpressureStrategy
 import io.reactivex.Observable
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.Disposable
-import io.reactivex.subjects.PublishSubject
+import io.reactivex.rxkotlin.Observables
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.BehaviorSubject
 import timber.log.Timber
 import java.util.*
 import java.util.concurrent.TimeUnit
@@ -54,19 +63,9 @@ import kotlin.collections.set
 
 class MapboxMapFragment : Fragment() {
 
-    /**
-     * Geographic Bounds of Black Rock City
-     * Used to determining whether a location lies
-     * within the general vicinity
-     */
-    val MAX_LAT = 40.807569
-    val MAX_LON = -119.181100
-    val MIN_LAT = 40.764355
-    val MIN_LON = -119.236979
-
     private val cameraBounds = LatLngBounds.Builder()
-            .include(LatLng(MAX_LAT, MIN_LON))
-            .include(LatLng(MIN_LAT, MAX_LON))
+            .include(LatLng(PlayaLayout.MAX_LAT, PlayaLayout.MIN_LON))
+            .include(LatLng(PlayaLayout.MIN_LAT, PlayaLayout.MAX_LON))
             .build()
 
     private enum class State {
@@ -93,7 +92,6 @@ class MapboxMapFragment : Fragment() {
 
     private val defaultZoom = 12.5
     private val markerShowcaseZoom = 14.5
-    private val poiVisibleZoom = 14.0
 
     private var userPoiButton: ImageView? = null
     private var addressLabel: TextView? = null
@@ -102,9 +100,14 @@ class MapboxMapFragment : Fragment() {
 
     private var showcaseMarker: MarkerOptions? = null
 
-    private val cameraUpdate = PublishSubject.create<VisibleRegion>()
+    private val cameraIdle = BehaviorSubject.create<CameraView>()
     private var cameraUpdateSubscription: Disposable? = null
 
+    /**
+     * Where the camera came to rest
+     */
+    private class CameraView(val bounds: LatLngBounds, val zoom: Double)
+
     private var locationSubscription: Disposable? = null
 
     private var locationLayerPlugin: LocationLayerPlugin? = null
@@ -301,7 +304,22 @@ class MapboxMapFragment : Fragment() {
 
     @SuppressLint("MissingPermission")
     private fun setupMap(mapView: MapView) {
+        // A new map draws nothing yet
+        mapItemUpdater = MapItemUpdater()
+        val layers = MapItemLayers(mapView.context)
+        mapItemLayers = layers
+        userPoiMarkers.clear()
+        mappedCustomMarkerIds.clear()
+        markerIdToItem.clear()
+        selectedItemMarker = null
+
         mapView.setStyleUrl("mapbox://styles/dchiles/cj3nxjqli000u2soyeb947f7s")
+        mapView.addOnMapChangedListener { change ->
+            // Loading a style drops any sources and layers added to the last
+            if (change == MapView.DID_FINISH_LOADING_STYLE) {
+                mapView.getMapAsync { map -> layers.addTo(map) }
+            }
+        }
         val initZoomAmount = 0.2
         val pos = CameraPosition.Builder()
                 .target(LatLng(Geo.MAN_LAT, Geo.MAN_LON))
@@ -347,11 +365,24 @@ class MapboxMapFragment : Fragment() {
 
             map.uiSettings.setAllGesturesEnabled(state != State.SHOWCASE)
             map.setOnCameraIdleListener {
-                if (!shouldShowPoisAtZoom(map.cameraPosition.zoom) && areMarkersVisible()) {
-                    Timber.d("Clearing transient markers on zoom change")
-                    clearMap(false)
-                } else {
-                    cameraUpdate.onNext(map.projection.visibleRegion)
+                cameraIdle.onNext(CameraView(map.projection.visibleRegion.latLngBounds, map.cameraPosition.zoom))
+            }
+
+            map.addOnMapClickListener { point ->
+                val layers = mapItemLayers
+                val feature = layers?.featureAt(map, point)
+                if (layers == null || feature == null) {
+                    deselectItem()
+                    return@addOnMapClickListener
+                }
+
+                val expansionZoom = layers.expansionZoomOf(feature)
+                val item = layers.itemOf(feature)
+                if (expansionZoom != null) {
+                    // Tapping a cluster zooms in until it splits apart
+                    map.animateCamera(CameraUpdateFactory.newLatLngZoom(layers.positionOf(feature), expansionZoom.toDouble()))
+                } else if (item != null) {
+                    selectItem(map, item)
                 }
             }
 
@@ -377,11 +408,14 @@ class MapboxMapFragment : Fragment() {
         val context = activity!!.applicationContext
         locationSubscription?.dispose()
         locationSubscription = LocationProvider.observeCurrentLocation(context, locationRequest)
-                .observeOn(ioScheduler)
-                .flatMap { location ->
-                    Geocoder.reverseGeocode(context, location.latitude.toFloat(), location.longitude.toFloat())
-                            .toObservable()
-                }
+                // Fixes in the same cell share an address, and only the latest fix is worth geocoding
+                .distinctUntilChanged { location -> ReverseGeocodeCache.cell(location.latitude, location.longitude) }
+                .toFlowable(BackpressureStrategy.LATEST)
+                .flatMap({ location ->
+                    Geocoder.reverseGeocode(context, location.latitude, location.longitude)
+                            .toFlowable()
+                }, 1)
+                .distinctUntilChanged()
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe({ address ->
                     addressLabel?.visibility = View.VISIBLE
@@ -390,37 +424,60 @@ class MapboxMapFragment : Fragment() {
     }
 
     private fun setupCameraUpdateSub(map: MapboxMap) {
-        val prefsHelper = PrefsHelper(activity!!.applicationContext)
+        val context = activity!!.applicationContext
+        val prefsHelper = PrefsHelper(context)
         Timber.d("Subscribing to camera updates")
         cameraUpdateSubscription?.dispose()
-        cameraUpdateSubscription = cameraUpdate
-                .debounce(250, TimeUnit.MILLISECONDS)
-                .flatMap { visibleRegion ->
-                    DataProvider.getInstance(activity!!.applicationContext)
-                            .map { provider -> Pair(provider, visibleRegion) }
-                }
-                .flatMap { (provider, visibleRegion) ->
-
-                    val embargoActive = Embargo.isEmbargoActive(prefsHelper)
-                    val queryAllItems = (state != State.SHOWCASE) && (!embargoActive)
-                    // Note we're only querying user-added (favorites) and user pois, which
-                    // should be visible at all zooms. If we were to plot all camps, art, etc,
-                    // we could use the zoom gate, but then we'd only want zoom to affect
-                    // query of those types, so it'd require a new DataProvider query
-                    // && shouldShowPoisAtZoom(map.cameraPosition.zoom)
-
-                    if (queryAllItems) {
-                        Timber.d("Map query for all items at zoom %f", map.cameraPosition.zoom)
-                        provider.observeUserAddedMapItemsOnly().firstElement().toObservable()
-                    } else {
-                        Timber.d("Map query for user items at zoom %f", map.cameraPosition.zoom)
-                        (provider.getUserPoi()).firstElement().toObservable()
+
+        // The embargo lifts with an unlock code or on its date, and state changes with showcasing, so both are
+        // checked again on each camera idle. Lifting re-runs the queries, which no longer hide locations
+        val hidden = cameraIdle
+                .map { state == State.SHOWCASE || Embargo.isEmbargoActive(prefsHelper) }
+                .distinctUntilChanged()
+                .replay(1)
+                .refCount()
+
+        // Favorites and user pois are visible at all zooms, so are observed as a layer of their own rather than
+        // queried with each camera move. Camps and art in view come from their clusters below
+        val results = hidden.switchMap { hide ->
+            DataProvider.getInstance(context)
+                    .flatMap { provider ->
+                        if (!hide) {
+                            Timber.d("Observing user added map items")
+                            provider.observeUserAddedMapItemsOnly().toObservable()
+                        } else {
+                            Timber.d("Observing user pois")
+                            provider.getUserPoi().toObservable().map<List<PlayaItem>> { it }
+                        }
                     }
+        }
+
+        val itemsInView = hidden.switchMap { hide ->
+            if (hide) {
+                Observable.just(ItemsInView.EMPTY)
+            } else {
+                // Cluster camps and art whenever they change. Each camera idle then only reads the clusters in view
+                val clustered = DataProvider.getInstance(context)
+                        .flatMap { provider -> provider.observeClusterableMapItems().toObservable() }
+                        .observeOn(Schedulers.computation())
+                        .map { items -> MapItemClusters.build(items) }
+
+                Observables.combineLatest(clustered, cameraIdle) { clusters, camera ->
+                    clusters.query(camera.bounds, camera.zoom)
                 }
+            }
+        }
+
+        // Diff off the main thread, so it only applies what changed
+        val updater = mapItemUpdater
+        cameraUpdateSubscription = Observables.combineLatest(results, itemsInView)
+        { items: List<PlayaItem>, inView -> Pair(items, inView) }
+                .observeOn(Schedulers.computation())
+                .map { (items, inView) -> updater.update(items, inView) }
+                .filter { update -> !update.isEmpty || state == State.SEARCH }
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe { items: List<PlayaItem> ->
-                    processMapItemResult(items)
-                }
+                .subscribe({ update -> applyMapItemUpdate(map, update) },
+                        { error -> Timber.e(error, "Failed to update map items") })
     }
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
@@ -460,7 +517,8 @@ class MapboxMapFragment : Fragment() {
         mapView?.onStop()
         locationSubscription?.dispose()
         cameraUpdateSubscription?.dispose()
-        Geocoder.close()
+        Geocoder.saveReverseCache(activity!!.applicationContext)
+                .subscribe({}, { error -> Timber.e(error, "Failed to save reverse geocode cache") })
     }
 
     override fun onLowMemory() {
@@ -485,76 +543,110 @@ class MapboxMapFragment : Fragment() {
     internal var mappedCustomMarkerIds = HashMap<Long, UserPoi>()
 
     /**
-     * Set to avoid plotting duplicate items
+     * Markers of user added pins. ItemKey -> Marker
      */
-    internal var mappedItems = HashSet<PlayaItem>()
+    internal var userPoiMarkers = HashMap<Long, Marker>()
+    internal var markerIdToItem = HashMap<Long, PlayaItem>()
+
     /**
-     * Map of pins shown in response to explore or search
+     * Diffs what's drawn against each query result and the items in view. Drawn state belongs to the map view,
+     * so is replaced with it
      */
-    private val MAX_POIS = 100
+    private var mapItemUpdater = MapItemUpdater()
 
-    // Markers that should only be cleared on new query arrival
-    internal var permanentMarkers = HashSet<Marker>()
-    // Markers that should be cleared on camera events
-    internal var mappedTransientMarkers = ArrayDeque<Marker>(MAX_POIS)
-    internal var markerIdToItem = HashMap<Long, PlayaItem>()
+    /**
+     * Draws camps, art, events and clusters. Belongs to the map view, so is replaced with it
+     */
+    private var mapItemLayers: MapItemLayers? = null
 
     /**
-     * Keep track of the bounds describing a batch of results across Loaders
+     * Marker showing the info window of an item tapped in [mapItemLayers]
      */
-    private var mResultBounds: LatLngBounds.Builder? = null
+    private var selectedItemMarker: Marker? = null
 
-    private fun processMapItemResult(items: List<PlayaItem>) {
+    /**
+     * Apply the changes in [update] to the map. Runs on every camera idle and query result, so does no more than
+     * mutate the user pins that changed and push new features, if any
+     */
+    private fun applyMapItemUpdate(map: MapboxMap, update: MapItemUpdate) {
+        val startNs = System.nanoTime()
 
-        mResultBounds = LatLngBounds.Builder()
+        update.userPins.removed.forEach { key ->
+            userPoiMarkers.remove(key)?.let { marker ->
+                marker.remove()
+                mappedCustomMarkerIds.remove(marker.id)
+            }
+        }
+        update.userPins.added.forEach { item ->
+            val userPoi = item as UserPoi
+            // Pins placed on this map already have a marker
+            val marker = userPoiMarkers.getOrPut(ItemKey.of(userPoi)) {
+                Timber.d("Adding marker for UserPoi ${userPoi.id}")
+                addNewMarkerForItem(map, userPoi)
+            }
+            mappedCustomMarkerIds[marker.id] = userPoi
+        }
+        update.userPins.updated.forEach { item ->
+            val userPoi = item as UserPoi
+            userPoiMarkers[ItemKey.of(userPoi)]?.let { marker ->
+                marker.position = LatLng(userPoi.latitude.toDouble(), userPoi.longitude.toDouble())
+                marker.title = userPoi.name
+                marker.icon = userPoiIcon(userPoi.icon)
+                mappedCustomMarkerIds[marker.id] = userPoi
+            }
+        }
 
-        Timber.d("Got result with %d items", items.size)
-        mapView?.getMapAsync { map ->
+        update.features?.let { features ->
+            // Favorites are always-visible, but not editable, so are drawn with other items
+            mapItemLayers?.setFeatures(features)
 
-            val currentZoom = map.cameraPosition.zoom
-
-            val itemsWithLocation = items.filter { it.latitude != 0f }
-            itemsWithLocation
-                    .forEach { item ->
-                        if (mappedItems.contains(item)) return@forEach // continue to next item
-
-                        if (item is UserPoi) {
-                            // UserPois are always-visible and editable when their info window is clicked
-                            Timber.d("Adding marker for UserPoi ${item.id}")
-                            val marker = addNewMarkerForItem(map, item)
-                            mappedItems.add(item)
-                            mappedCustomMarkerIds[marker.id] = item
-                        } else if (item.isFavorite) {
-                            // Favorites are always-visible, but not editable
-                            val marker = addNewMarkerForItem(map, item)
-                            markerIdToItem[marker.id] = item
-                            mappedItems.add(item)
-                            permanentMarkers.add(marker)
-                        } else if (shouldShowPoisAtZoom(currentZoom)) {
-                            // Other markers are only displayed at near zoom, and are kept in a pool
-                            // of recyclable markers. mapRecyclableMarker handles adding to markerIdToItem
-                            val marker = mapRecyclableMarker(map, item, mResultBounds)
-                            if (marker != null) {
-                                mappedItems.add(item)
-                            }
-                        }
-                    }
+            val selectedItem = selectedItemMarker?.let { markerIdToItem[it.id] }
+            if (selectedItem != null && !features.itemsByKey.containsKey(ItemKey.of(selectedItem))) {
+                deselectItem()
+            }
+        }
 
-            // If displaying search results, try to move the camera to include all results
-            if (state == State.SEARCH) {
-                try {
-                    map.animateCamera(CameraUpdateFactory.newLatLngBounds(mResultBounds!!.build(), 80))
-                } catch (e: InvalidLatLngBoundsException) {
-                    Timber.w("Search results bounds are invalid. Likely due to no search results")
-                    // No mappable results
-                    resetMapView(map)
+        Timber.d("Applied map update in %d us: %d pins added, %d updated, %d removed, %s features",
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNs), update.userPins.added.size,
+                update.userPins.updated.size, update.userPins.removed.size,
+                update.features?.collection?.features()?.size ?: "unchanged")
+
+        // If displaying search results, try to move the camera to include all results
+        if (state == State.SEARCH) {
+            val resultBounds = LatLngBounds.Builder()
+            update.results.forEach { item ->
+                val pos = LatLng(item.latitude.toDouble(), item.longitude.toDouble())
+                if (item !is UserPoi && cameraBounds.contains(pos)) {
+                    resultBounds.include(pos)
                 }
             }
+            try {
+                map.animateCamera(CameraUpdateFactory.newLatLngBounds(resultBounds.build(), 80))
+            } catch (e: InvalidLatLngBoundsException) {
+                Timber.w("Search results bounds are invalid. Likely due to no search results")
+                // No mappable results
+                resetMapView(map)
+            }
         }
     }
 
-    private fun shouldShowPoisAtZoom(currentZoom: Double): Boolean {
-        return currentZoom > poiVisibleZoom
+    /**
+     * Show the info window of an item drawn by [mapItemLayers]. Clicking it opens the item
+     */
+    private fun selectItem(map: MapboxMap, item: PlayaItem) {
+        deselectItem()
+        val marker = addNewMarkerForItem(map, item)
+        markerIdToItem[marker.id] = item
+        selectedItemMarker = marker
+        map.selectMarker(marker)
+    }
+
+    private fun deselectItem() {
+        selectedItemMarker?.let { marker ->
+            marker.remove()
+            markerIdToItem.remove(marker.id)
+        }
+        selectedItemMarker = null
     }
 
     private val iconFactory: IconFactory by lazy {
@@ -630,11 +722,11 @@ class MapboxMapFragment : Fragment() {
 
         if (item is UserPoi) {
             styleCustomMarkerOption(markerOptions, item.icon)
-        } else if (item is Art) {
+        } else if (item is ArtRow) {
             markerOptions.icon(iconArt)
-        } else if (item is Camp) {
+        } else if (item is CampRow) {
             markerOptions.icon(iconCamp)
-        } else if (item is Event) {
+        } else if (item is EventRow) {
             markerOptions.icon(iconEvent)
         }
 
@@ -647,114 +739,23 @@ class MapboxMapFragment : Fragment() {
      * adding to Map
      */
     private fun styleCustomMarkerOption(markerOption: MarkerViewOptions, @UserPoi.Icon poiIcon: String) {
-        when (poiIcon) {
-            UserPoi.ICON_HOME -> markerOption.icon(iconUserHome)
-            UserPoi.ICON_BIKE -> markerOption.icon(iconUserBicycle)
-            UserPoi.ICON_HEART -> markerOption.icon(iconUserHeart)
-            else -> markerOption.icon(iconUserStar)
-        }
+        markerOption.icon(userPoiIcon(poiIcon))
         markerOption.flat(true)
     }
 
-    /**
-     * Map a marker as part of a finite set of markers, limiting the total markers
-     * displayed and recycling markers if this limit is exceeded.
-     */
-    private fun mapRecyclableMarker(map: MapboxMap, item: PlayaItem, boundsBuilder: LatLngBounds.Builder?): Marker? {
-        val pos = LatLng(item.latitude.toDouble(), item.longitude.toDouble())
-
-        // Assemble search results region boundary
-        if (item !is UserPoi && boundsBuilder != null && state == State.SEARCH) {
-            if (cameraBounds.contains(pos)) {
-                boundsBuilder.include(pos)
-            }
-        }
-
-        var marker: Marker? = null
-
-        if (mappedTransientMarkers.size == MAX_POIS) {
-            // Re-use the eldest Marker
-            marker = mappedTransientMarkers.remove()
-            marker.position = pos
-            marker.title = item.name
-
-            if (item is Art) {
-                marker.icon = iconFactory.fromResource(R.drawable.art_pin)
-            } else if (item is Camp) {
-                marker.icon = iconFactory.fromResource(R.drawable.camp_pin)
-            } else if (item is Event) {
-                marker.icon = iconFactory.fromResource(R.drawable.event_pin)
-            }
-
-//            marker.setAnchor(0.5f, 0.5f)
-            mappedTransientMarkers.add(marker)
-            markerIdToItem.put(marker.id, item)
-        } else {
-            // Create a new Marker
-            marker = addNewMarkerForItem(map, item)
-            markerIdToItem.put(marker.id, item)
-            mappedTransientMarkers.add(marker)
-        }
-
-        return marker
-    }
-
-    /**
-     * Clear markers marked permanent. These are not removed due to camera change events.
-     * Currently used for user-selected favorite items.
-     */
-    fun clearPermanentMarkers() {
-        for (marker in permanentMarkers) {
-            marker.remove()
-            val metaId = markerIdToItem.remove(marker.id)
-            if (metaId != null) {
-                mappedItems.remove(metaId)
-            }
+    private fun userPoiIcon(@UserPoi.Icon poiIcon: String): Icon {
+        return when (poiIcon) {
+            UserPoi.ICON_HOME -> iconUserHome
+            UserPoi.ICON_BIKE -> iconUserBicycle
+            UserPoi.ICON_HEART -> iconUserHeart
+            else -> iconUserStar
         }
-        permanentMarkers.clear()
-    }
-
-    /**
-     * Return a key used internally to keep track of data items currently mapped,
-     * helping us avoid mapping duplicate points.
-
-     */
-    private fun generateMarkerIdForItem(item: PlayaItem): String {
-        return String.format("%s-%d", item.javaClass.simpleName, item.id)
-    }
-
-    /**
-     * Return the internal database id for an item given the string id
-     * generated by [.generateMarkerIdForItem]
-     */
-    private fun getDatabaseIdFromGeneratedDataId(dataId: String): Int {
-        return Integer.parseInt(dataId.split("-".toRegex()).dropLastWhile { it.isEmpty() }.toTypedArray()[1])
     }
 
     private fun resetMapView(map: MapboxMap) {
         map.animateCamera(CameraUpdateFactory.newLatLngZoom(LatLng(Geo.MAN_LAT, Geo.MAN_LON), defaultZoom))
     }
 
-    fun clearMap(clearAll: Boolean) {
-        if (clearAll) {
-            clearPermanentMarkers()
-        }
-
-        for (marker in mappedTransientMarkers) {
-            marker.remove()
-            val metaId = markerIdToItem.remove(marker.id)
-            if (metaId != null) {
-                mappedItems.remove(metaId)
-            }
-        }
-        mappedTransientMarkers.clear()
-    }
-
-
-    fun areMarkersVisible(): Boolean {
-        return mappedTransientMarkers.size > 0
-    }
-
     private fun showEditPinDialog(marker: Marker) {
         if (state == State.SHOWCASE) return
 
@@ -899,9 +900,9 @@ class MapboxMapFragment : Fragment() {
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe { userPoi ->
                         Timber.d("After inserting, userPoi has id ${userPoi.id}")
-                        // Make sure UserPoi is added to mappedItems before being inserted as this will
+                        // Make sure UserPoi is added to userPoiMarkers before being inserted as this will
                         // trigger a map items update
-                        mappedItems.add(userPoi)
+                        userPoiMarkers[ItemKey.of(userPoi)] = marker
                         mappedCustomMarkerIds[marker.id] = userPoi
                         callback?.invoke(marker)
                     }
@@ -912,8 +913,9 @@ class MapboxMapFragment : Fragment() {
 
     private fun removeCustomPin(marker: Marker) {
         marker.remove()
-        val userPoi = mappedCustomMarkerIds[marker.id]
+        val userPoi = mappedCustomMarkerIds.remove(marker.id)
         userPoi?.let { userPoi ->
+            userPoiMarkers.remove(ItemKey.of(userPoi))
             DataProvider.getInstance(activity!!.applicationContext)
                     .observeOn(ioScheduler)
                     .map { provider -> provider.deleteUserPoi(userPoi) }
@@ -15,6 +15,10 @@ public class PrefsHelper {
 
     private static final String DEFAULT_RESOURCE_VERSION = "resver";        // long
     private static final String RESOURCE_VERSION_PREFIX = "res-";           // long
+    private static final String RESOURCE_HASH_PREFIX = "reshash-";          // String
+
+    private static final String BUNDLED_MAP_VERSION = "bundled_map_ver";    // int
+    private static final String BUNDLED_MAP_HASH = "bundled_map_hash";      // String
 
     private static final String SHARED_PREFS_NAME = PrefsHelper.class.getSimpleName();
 
@@ -75,4 +79,33 @@ public class PrefsHelper {
     public void setResourceVersion(String resourceName, long resourceVersion) {
         editor.putLong(RESOURCE_VERSION_PREFIX + resourceName, resourceVersion).apply();
     }
+
+    /**
+     * @return the hex SHA-256 of the resource's contents when last written to the database, or null
+     */
+    public String getResourceHash(String resourceName) {
+        return sharedPrefs.getString(RESOURCE_HASH_PREFIX + resourceName, null);
+    }
+
+    public void setResourceHash(String resourceName, String hash) {
+        editor.putString(RESOURCE_HASH_PREFIX + resourceName, hash).apply();
+    }
+
+    /**
+     * @return the version code of the app that last installed the bundled map, or 0
+     */
+    public int getBundledMapVersion() {
+        return sharedPrefs.getInt(BUNDLED_MAP_VERSION, 0);
+    }
+
+    /**
+     * @return the hex SHA-256 of the bundled map asset last installed, or null
+     */
+    public String getBundledMapHash() {
+        return sharedPrefs.getString(BUNDLED_MAP_HASH, null);
+    }
+
+    public void setBundledMap(int version, String hash) {
+        editor.putInt(BUNDLED_MAP_VERSION, version).putString(BUNDLED_MAP_HASH, hash).apply();
+    }
 }
@@ -20,7 +20,6 @@ import android.widget.RelativeLayout;
 import android.widget.Toast;
 
 import com.crashlytics.android.Crashlytics;
-import com.gaiagps.iburn.MapboxBundledMapKt;
 import com.gaiagps.iburn.MapboxMapFragment;
 import com.gaiagps.iburn.PermissionManager;
 import com.gaiagps.iburn.PrefsHelper;
@@ -113,9 +112,7 @@ public class MainActivity extends AppCompatActivity implements SearchQueryProvid
         Timber.d("onCreate");
         if (!prefs.didShowWelcome()) {
             showWelcome();
-            MapboxBundledMapKt.copyBundledMap(getApplicationContext());
         }
-
         if (!prefs.didScheduleUpdate()) {
             DataUpdateService.scheduleAutoUpdate(this);
             prefs.setDidScheduleUpdate(true);
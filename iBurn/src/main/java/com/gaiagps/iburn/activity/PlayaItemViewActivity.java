@@ -44,19 +44,18 @@ import com.gaiagps.iburn.R;
 import com.gaiagps.iburn.SchedulersKt;
 import com.gaiagps.iburn.adapters.AdapterListener;
 import com.gaiagps.iburn.adapters.PlayaItemAdapter;
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter;
 import com.gaiagps.iburn.database.Art;
+import com.gaiagps.iburn.database.ArtRow;
 import com.gaiagps.iburn.database.Camp;
 import com.gaiagps.iburn.database.DataProvider;
 import com.gaiagps.iburn.database.Embargo;
 import com.gaiagps.iburn.database.Event;
+import com.gaiagps.iburn.database.EventRow;
 import com.gaiagps.iburn.database.PlayaItem;
 import com.gaiagps.iburn.service.AudioPlayerService;
 import com.gaiagps.iburn.view.AnimatedFloatingActionButton;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 
-import java.text.DateFormat;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -131,6 +130,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
     AppBarLayout appbarLayout;
 
     Disposable autoShowArtDisposable;
+    Disposable loadItemDisposable;
     boolean loadedArtImage;
     ImageView artImageView;
 
@@ -166,7 +166,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
 
         getWindow().setBackgroundDrawableResource(android.R.color.transparent);
 
-        if (item instanceof Art && ((Art) item).hasAudioTour(getApplicationContext())) {
+        if (item instanceof ArtRow && ((ArtRow) item).hasAudioTour(getApplicationContext())) {
             onCreateMediaController();
         }
 
@@ -193,7 +193,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
     @Override
     protected void onStart() {
         super.onStart();
-        if (item instanceof Art && ((Art) item).hasAudioTour(getApplicationContext())) {
+        if (item instanceof ArtRow && ((ArtRow) item).hasAudioTour(getApplicationContext())) {
             onStartMediaController();
         }
     }
@@ -201,13 +201,18 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
     @Override
     protected void onStop() {
         super.onStop();
-        if (item instanceof Art && ((Art) item).hasAudioTour(getApplicationContext())) {
+        if (item instanceof ArtRow && ((ArtRow) item).hasAudioTour(getApplicationContext())) {
             onStopMediaController();
         }
 
         if (autoShowArtDisposable != null) {
             autoShowArtDisposable.dispose();
         }
+
+        if (loadItemDisposable != null) {
+            loadItemDisposable.dispose();
+            loadItemDisposable = null;
+        }
     }
 
     private void onCreateMediaController() {
@@ -314,7 +319,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
 
                 Timber.d("Starting audio tour playback anew for item %s", item.name);
                 // Need to start up the media service
-                audioTourManager.playAudioTourUrl((Art) item);
+                audioTourManager.playAudioTourUrl((ArtRow) item);
 
             } else if (currentPbState == PlaybackStateCompat.STATE_PLAYING) {
 
@@ -360,9 +365,16 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
     public void onResume() {
         super.onResume();
         audioTourManager = new AudioTourManager(this);
-        if (!didPopulateViews && item != null) {
-            populateViews(item);
-            didPopulateViews = true;
+        if (!didPopulateViews && item != null && loadItemDisposable == null) {
+            // Lists pass partial rows. Load the complete item before populating views
+            loadItemDisposable = DataProvider.Companion.getInstance(getApplicationContext())
+                    .flatMapSingle(provider -> provider.getFullItem(item))
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(fullItem -> {
+                        item = fullItem;
+                        populateViews(item);
+                        didPopulateViews = true;
+                    }, throwable -> Timber.e(throwable, "Failed to load item"));
         }
     }
 
@@ -465,7 +477,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
             getSupportFragmentManager().beginTransaction().add(R.id.map_container, mapFragment).commit();
             //favoriteMenuItem.setVisible(false);
             //locationView.setText(String.format("%f, %f", latLng.latitude, latLng.longitude));
-        } else if (item instanceof Art && ((Art) item).hasImage()) {
+        } else if (item instanceof ArtRow && ((ArtRow) item).hasImage()) {
             // Art image will be added by populateArtViews
             showingArt = true;
         } else {
@@ -599,24 +611,14 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
         Date nowDate = CurrentDateProvider.getCurrentDate();
 
         // Describe the event time with some smarts: "[Starts|Ends] [in|at] [20m|4:20p]"
-        final DateFormat apiDateFormat = PlayaDateTypeAdapter.buildIso8601Format();
-        try {
-            Date startDate = apiDateFormat.parse(event.startTime);
-            Date endDate = apiDateFormat.parse(event.endTime);
-
-            String dateDescription = DateUtil.getDateString(
-                    getApplicationContext(),
-                    nowDate,
-                    startDate,
-                    event.startTimePretty,
-                    endDate,
-                    event.endTimePretty);
-            subItem2TextView.setText(dateDescription);
-
-        } catch (ParseException e) {
-            Timber.e(e, "Failed to parse event dates");
-            subItem2TextView.setText(event.startTimePretty);
-        }
+        String dateDescription = DateUtil.getDateString(
+                getApplicationContext(),
+                nowDate,
+                new Date(event.startTime),
+                event.startTimePretty,
+                new Date(event.endTime),
+                event.endTimePretty);
+        subItem2TextView.setText(dateDescription);
 
         subItem3TextView.setVisibility(View.GONE);
 
@@ -632,8 +634,7 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
             hostedByCamp.setTextSize(32);
             hostedByCamp.setPadding(pad, pad, pad, 0);
 
-            provider.observeCampByPlayaId(event.campPlayaId)
-                    .firstElement()
+            provider.getCampByPlayaId(event.campPlayaId)
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(camp -> {
                         hostedByCamp.setOnClickListener(new RelatedItemOnClickListener(camp));
@@ -662,17 +663,12 @@ public class PlayaItemViewActivity extends AppCompatActivity implements AdapterL
 
                     final SimpleDateFormat timeDayFormatter = new SimpleDateFormat("EEEE, M/d 'at' h:mm a", Locale.US);
 
-                    for (Event occurrence : eventOccurrences) {
+                    for (EventRow occurrence : eventOccurrences) {
                         TextView eventTv = new TextView(wrapper);
                         eventTv.setTypeface(condensed);
                         eventTv.setTextSize(20);
                         eventTv.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
-                        try {
-                            eventTv.setText(timeDayFormatter.format(apiDateFormat.parse(occurrence.startTime)));
-                        } catch (ParseException e) {
-                            Timber.w(e, "Unable to parse date, using pre-computed");
-                            eventTv.setText(event.startTimePretty.toUpperCase());
-                        }
+                        eventTv.setText(timeDayFormatter.format(new Date(occurrence.startTime)));
                         eventTv.setOnClickListener(new RelatedItemOnClickListener(occurrence));
                         eventTv.setPadding(pad, pad, pad, pad);
 
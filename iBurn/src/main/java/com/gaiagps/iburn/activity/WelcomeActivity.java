@@ -22,7 +22,7 @@ import com.gaiagps.iburn.AudioTourDownloader;
 import com.gaiagps.iburn.PrefsHelper;
 import com.gaiagps.iburn.R;
 import com.gaiagps.iburn.SchedulersKt;
-import com.gaiagps.iburn.database.Camp;
+import com.gaiagps.iburn.database.CampRow;
 import com.gaiagps.iburn.database.DataProvider;
 import com.gaiagps.iburn.database.UserPoi;
 import com.gaiagps.iburn.fragment.WelcomeFragment;
@@ -36,7 +36,7 @@ public class WelcomeActivity extends AppCompatActivity implements WelcomeFragmen
 
     private PrefsHelper prefs;
 
-    private Camp homeCampSelection;
+    private CampRow homeCampSelection;
 
     private ViewPager pager;
     private PagerAdapter pagerAdapter;
@@ -183,7 +183,7 @@ public class WelcomeActivity extends AppCompatActivity implements WelcomeFragmen
 //    }
 
     @Override
-    public void onHomeCampSelected(Camp homeCamp) {
+    public void onHomeCampSelected(CampRow homeCamp) {
         homeCampSelection = homeCamp;
     }
 
@@ -1,9 +1,7 @@
 package com.gaiagps.iburn.adapters
 
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter
 import com.gaiagps.iburn.database.PlayaItem
-import com.gaiagps.iburn.database.Event
-import java.text.ParseException
+import com.gaiagps.iburn.database.EventRow
 import java.text.SimpleDateFormat
 import java.util.*
 import kotlin.collections.ArrayList
@@ -14,7 +12,6 @@ import kotlin.collections.ArrayList
  */
 class EventStartTimeSectionIndexer(items: List<PlayaItem>? = null) : PlayaItemSectionIndxer(items) {
 
-    private val apiDateFormat = PlayaDateTypeAdapter.buildIso8601Format()
     private val humanDateFormat = SimpleDateFormat("E h a", Locale.US)
 
     private var sections: ArrayList<String>? = null
@@ -28,7 +25,7 @@ class EventStartTimeSectionIndexer(items: List<PlayaItem>? = null) : PlayaItemSe
 
             var lastSection = ""
             items?.forEachIndexed { index, event ->
-                val thisSection = getSectionStringForEvent(event as Event)
+                val thisSection = getSectionStringForEvent(event as EventRow)
                 if (thisSection != lastSection) {
                     newSections.add(thisSection)
                     newSectionPositions.add(index)
@@ -59,15 +56,11 @@ class EventStartTimeSectionIndexer(items: List<PlayaItem>? = null) : PlayaItemSe
         return 0
     }
 
-    private fun getSectionStringForEvent(event: Event): String {
+    private fun getSectionStringForEvent(event: EventRow): String {
         if (event.allDay) {
             return "All ${event.startTimePretty}"
         } else {
-            try {
-                return humanDateFormat.format(apiDateFormat.parse(event.startTime))
-            } catch (e: ParseException) {
-                return event.startTimePretty
-            }
+            return humanDateFormat.format(Date(event.startTime))
         }
     }
 }
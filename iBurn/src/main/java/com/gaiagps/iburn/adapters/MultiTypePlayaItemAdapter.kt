@@ -24,11 +24,11 @@ class MultiTypePlayaItemAdapter(context: Context, listener: AdapterListener) :
         val firstSectionItem = getDataPositionForPosition(position + 1)
         val item = items?.get(firstSectionItem)
         var headerText: String? = null
-        if (item is Camp) {
+        if (item is CampRow) {
             headerText = context.getString(R.string.camps_tab)
-        } else if (item is Art) {
+        } else if (item is ArtRow) {
             headerText = context.getString(R.string.art_tab)
-        } else if (item is Event) {
+        } else if (item is EventRow) {
             headerText = context.getString(R.string.events_tab)
         } else if (item is UserPoi) {
             headerText = "YOUR MAP MARKERS" // TODO : Resourceify
@@ -13,12 +13,10 @@ import android.widget.SectionIndexer
 import android.widget.TextView
 import com.gaiagps.iburn.*
 import com.gaiagps.iburn.DateUtil.getDateString
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter
 import com.gaiagps.iburn.database.*
 import com.gaiagps.iburn.location.LocationProvider
 import org.jetbrains.annotations.NotNull
 import timber.log.Timber
-import java.text.ParseException
 import java.util.*
 
 /**
@@ -30,8 +28,6 @@ open class PlayaItemAdapter<T: RecyclerView.ViewHolder>(
         val listener: AdapterListener) :
         RecyclerView.Adapter<T>(), SectionIndexer {
 
-    protected val apiDateFormat = PlayaDateTypeAdapter.buildIso8601Format()
-
     var sectionIndexer: PlayaItemSectionIndxer? = null
 
     open var items: List<PlayaItem>? = null
@@ -79,7 +75,7 @@ open class PlayaItemAdapter<T: RecyclerView.ViewHolder>(
             var startDate: Date? = null
             var endDate: Date? = null
 
-            if (item is Art) {
+            if (item is ArtRow) {
                 holder.artistView.visibility = View.VISIBLE
                 holder.artistView.text = item.artist
 
@@ -102,28 +98,23 @@ open class PlayaItemAdapter<T: RecyclerView.ViewHolder>(
                     }
                 })
 
-            } else if (item is Camp) {
+            } else if (item is CampRow) {
                 holder.artistView.visibility = View.GONE
                 holder.audioTourView.visibility = View.GONE
                 holder.eventTypeView.visibility = View.GONE
                 holder.eventTimeView.visibility = View.GONE
                 holder.showImage(false)
 
-            } else if (item is Event) {
+            } else if (item is EventRow) {
                 holder.eventTypeView.visibility = View.VISIBLE
                 holder.eventTimeView.visibility = View.VISIBLE
 
                 holder.eventTypeView.text = AdapterUtils.getStringForEventType(item.type)
 
-                try {
-                    startDate = apiDateFormat.parse(item.startTime)
-                    endDate = apiDateFormat.parse(item.endTime)
-                    holder.eventTimeView.text =
-                            getDateString(context, now, startDate, item.startTimePretty, endDate, item.endTimePretty)
-                } catch (e: ParseException) {
-                    Timber.e(e, "Failed to parse event dates")
-                    holder.eventTimeView.text = item.startTimePretty
-                }
+                startDate = Date(item.startTime)
+                endDate = Date(item.endTime)
+                holder.eventTimeView.text =
+                        getDateString(context, now, startDate, item.startTimePretty, endDate, item.endTimePretty)
 
                 holder.artistView.visibility = View.GONE
                 holder.audioTourView.visibility = View.GONE
@@ -5,8 +5,8 @@ import android.support.v7.widget.RecyclerView
 import android.widget.TextView
 import com.gaiagps.iburn.CurrentDateProvider
 import com.gaiagps.iburn.DateUtil
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter
 import com.gaiagps.iburn.database.*
+import java.util.*
 
 /**
  * Created by dbro on 6/13/17.
@@ -17,9 +17,9 @@ class UpcomingEventsAdapter(context: Context, listener: AdapterListener) :
     override fun createHeaderPositionsForItems(items: List<PlayaItem>): Set<Int> {
         val set = HashSet<Int>()
         var headerCount = 0
-        var lastStartTime = ""
+        var lastStartTime = 0L
         items.forEachIndexed { index, playaItem ->
-            val thisStartTime = (playaItem as Event).startTime
+            val thisStartTime = (playaItem as EventRow).startTime
             if (thisStartTime != lastStartTime) {
                 set.add(index + headerCount++)
             }
@@ -32,10 +32,10 @@ class UpcomingEventsAdapter(context: Context, listener: AdapterListener) :
         setLinearSlimParameters(viewHolder, position)
 
         val firstSectionItem = getDataPositionForPosition(position + 1)
-        val item = items?.get(firstSectionItem) as Event
+        val item = items?.get(firstSectionItem) as EventRow
 
         val headerTitle = DateUtil.getStartDateString(
-                apiDateFormat.parse(item.startTime),
+                Date(item.startTime),
                 CurrentDateProvider.getCurrentDate()).toUpperCase()
 
         // SectionedPlayaItemAdapter sets header layout to a single TextView
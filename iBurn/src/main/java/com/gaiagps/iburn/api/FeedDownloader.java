@@ -0,0 +1,64 @@
+package com.gaiagps.iburn.api;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * HTTP plumbing for the iBurn API feeds.
+ * <p>
+ * Responses are kept in an on-disk cache. {@link IBurnApi} asks for every response to be revalidated,
+ * so an unchanged feed costs a conditional request (If-None-Match / If-Modified-Since) answered with
+ * a bodiless 304, rather than a full download. OkHttp negotiates gzip and decompresses transparently,
+ * as long as no Accept-Encoding header is set by hand.
+ */
+public class FeedDownloader {
+
+    /**
+     * Directory within the cache dir holding the HTTP cache
+     */
+    public static final String HTTP_CACHE_DIR = "http";
+
+    private static final long HTTP_CACHE_SIZE = 20 * 1024 * 1024;
+
+    /**
+     * @param cacheDir directory for the HTTP cache, or null to disable caching
+     */
+    public static OkHttpClient createClient(@Nullable File cacheDir) {
+        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
+        interceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().addInterceptor(interceptor);
+        if (cacheDir != null) {
+            builder.cache(new Cache(cacheDir, HTTP_CACHE_SIZE));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Write body to file, closing body
+     *
+     * @return the hex SHA-256 of body's decompressed bytes, comparable to
+     * {@link com.gaiagps.iburn.api.response.ResourceManifest#hash}
+     */
+    public static String spool(ResponseBody body, File file) throws IOException {
+        HashingSink hashingSink = HashingSink.sha256(Okio.sink(file));
+        BufferedSink sink = Okio.buffer(hashingSink);
+        try {
+            sink.writeAll(body.source());
+        } finally {
+            sink.close();
+            body.close();
+        }
+        return hashingSink.hash().hex();
+    }
+}
@@ -0,0 +1,56 @@
+package com.gaiagps.iburn.api;
+
+import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Flowable;
+
+/**
+ * Parses iBurn API feeds with a {@link JsonReader}, one item at a time, so a feed is never
+ * held in memory whole. Items are parsed only as they're requested downstream, which bounds
+ * how many are in flight between the network and the database.
+ */
+public class FeedParser {
+
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .registerTypeAdapter(Date.class, new PlayaDateTypeAdapter())
+                .create();
+    }
+
+    /**
+     * @param source opens the feed, a JSON array of type. The reader is closed when the feed completes,
+     *               fails, or is cancelled
+     */
+    public static <T> Flowable<T> parse(Gson gson, Callable<? extends Reader> source, Class<T> type) {
+        return Flowable.generate(
+                () -> {
+                    JsonReader reader = new JsonReader(source.call());
+                    try {
+                        reader.beginArray();
+                    } catch (IOException e) {
+                        reader.close();
+                        throw e;
+                    }
+                    return reader;
+                },
+                (reader, emitter) -> {
+                    if (reader.hasNext()) {
+                        emitter.onNext(gson.fromJson(reader, type));
+                    } else {
+                        reader.endArray();
+                        emitter.onComplete();
+                    }
+                },
+                JsonReader::close);
+    }
+}
@@ -1,15 +1,11 @@
 package com.gaiagps.iburn.api;
 
-import com.gaiagps.iburn.api.response.Art;
-import com.gaiagps.iburn.api.response.Camp;
 import com.gaiagps.iburn.api.response.DataManifest;
-import com.gaiagps.iburn.api.response.Event;
-
-import java.util.List;
 
 import io.reactivex.Observable;
 import okhttp3.ResponseBody;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Streaming;
 
 /**
@@ -18,17 +14,39 @@ import retrofit2.http.Streaming;
  */
 public interface IBurnApi {
 
+    /**
+     * Revalidate cached responses with the server on every request, whatever their max-age.
+     * See {@link FeedDownloader}
+     */
+    String REVALIDATE = "Cache-Control: no-cache";
+
     @GET("update.json.js")
+    @Headers(REVALIDATE)
     Observable<DataManifest> getDataManifest();
 
+    /**
+     * A JSON array of {@link com.gaiagps.iburn.api.response.Camp}. Parse with {@link FeedParser}
+     */
     @GET("camps.json.js")
-    Observable<List<Camp>> getCamps();
+    @Headers(REVALIDATE)
+    @Streaming
+    Observable<ResponseBody> getCamps();
 
+    /**
+     * A JSON array of {@link com.gaiagps.iburn.api.response.Art}. Parse with {@link FeedParser}
+     */
     @GET("art.json.js")
-    Observable<List<Art>> getArt();
+    @Headers(REVALIDATE)
+    @Streaming
+    Observable<ResponseBody> getArt();
 
+    /**
+     * A JSON array of {@link com.gaiagps.iburn.api.response.Event}. Parse with {@link FeedParser}
+     */
     @GET("events.json.js")
-    Observable<List<Event>> getEvents();
+    @Headers(REVALIDATE)
+    @Streaming
+    Observable<ResponseBody> getEvents();
 
     @GET("iburn.mbtiles.jar")
     @Streaming
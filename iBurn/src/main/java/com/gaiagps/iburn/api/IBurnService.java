@@ -6,6 +6,7 @@ import android.support.annotation.NonNull;
 import android.support.v4.util.Pair;
 import android.text.TextUtils;
 
+import com.gaiagps.iburn.DateUtil;
 import com.gaiagps.iburn.PrefsHelper;
 import com.gaiagps.iburn.adapters.AdapterUtils;
 import com.gaiagps.iburn.api.response.Art;
@@ -16,17 +17,18 @@ import com.gaiagps.iburn.api.response.EventOccurrence;
 import com.gaiagps.iburn.api.response.Location;
 import com.gaiagps.iburn.api.response.PlayaItem;
 import com.gaiagps.iburn.api.response.ResourceManifest;
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter;
+import com.gaiagps.iburn.database.ContentHash;
 import com.gaiagps.iburn.database.DataProvider;
 import com.gaiagps.iburn.js.Geocoder;
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 
-import java.text.DateFormat;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +36,8 @@ import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
@@ -41,7 +45,7 @@ import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.ResponseBody;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -55,14 +59,16 @@ import static com.gaiagps.iburn.database.Camp.HOMETOWN;
 import static com.gaiagps.iburn.database.Event.ALL_DAY;
 import static com.gaiagps.iburn.database.Event.CAMP_PLAYA_ID;
 import static com.gaiagps.iburn.database.Event.CHECK_LOC;
+import static com.gaiagps.iburn.database.Event.DAY;
 import static com.gaiagps.iburn.database.Event.END_TIME;
 import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
 import static com.gaiagps.iburn.database.Event.START_TIME;
 import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
 import static com.gaiagps.iburn.database.Event.TYPE;
 import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
 import static com.gaiagps.iburn.database.PlayaItem.DESC;
-import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
 import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
 import static com.gaiagps.iburn.database.PlayaItem.LATITUDE_UNOFFICIAL;
 import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
@@ -77,119 +83,64 @@ import static com.gaiagps.iburn.database.PlayaItem.URL;
  * A monolithic iBurn data updater. Handles fetching IBurn update data and update the database while
  * preserving user favorites
  * <p>
+ * Updates run in stages. Every stale feed downloads at once, and each is parsed on an io thread as soon as
+ * it's downloaded, geocoding camp and art addresses. A single writer on {@link #upgradeScheduler} then binds
+ * and writes the parsed items, one feed at a time, in manifest order. Camps and art hand their locations to
+ * events through a {@link LocationIndex}.
+ * <p>
  * TODO : The API data fetching and Database interaction should be pulled out as deps for better testing
  * Created by davidbrodsky on 6/26/15.
  */
 public class IBurnService {
 
     /**
-     * A mechanism for migrating internal app data not defined by the iBurn API.
+     * Rows inserted into a shadow table per transaction
      */
-    public interface UpgradeLifeboat {
-
-        /**
-         * Save any database data not represented by the iBurn API
-         *
-         * @param database the internal app database
-         */
-        Observable<Boolean> saveData(DataProvider database);
-
-        /**
-         * @param row the row of refreshsed data from the iBurn API.
-         *            Add any internal data captured in {@link #saveData(DataProvider)}.
-         *            Be explicit and do not make assumptions about default values, as
-         *            row may be recycled from a previous item.
-         */
-        void restoreData(ContentValues row);
-    }
+    private static final int SHADOW_INSERT_BATCH_SIZE = 500;
 
     /**
-     * Persist user-defined favorites based on {@link PlayaItem.PLAYA_ID}.
-     * This is suitable for {@link com.gaiagps.iburn.database.Art} and {@link com.gaiagps.iburn.database.Camp} collections.
-     * <p>
-     * It *cannot* be used with {@link com.gaiagps.iburn.database.Event} because there may be multiple Event entries
-     * sharing the same playaId but having differing start and end times
+     * Parsed feed items buffered ahead of the database writer
      */
-    private static class SimpleLifeboat implements UpgradeLifeboat {
-        enum Table {Camp, Art}
-
-        private Table table;
-
-        public SimpleLifeboat(@NonNull Table table) {
-            this.table = table;
-        }
-
-        private Set<String> favoritePlayaIds = new HashSet<>();
-
-        @Override
-        public Observable<Boolean> saveData(DataProvider provider) {
-            Flowable<? extends List<? extends com.gaiagps.iburn.database.PlayaItem>> items = null;
-
-            if (table == Table.Camp) {
-                items = provider.observeCampFavorites();
-
-            } else if (table == Table.Art) {
-                items = provider.observeArtFavorites();
-            } else {
-                throw new IllegalStateException("Unknown table type " + table);
-            }
+    private static final int FEED_BUFFER_SIZE = 64;
 
-            return items
-                    .firstOrError()
-                    .map(favorites -> {
-                        Timber.d("Found %d favorites", favorites.size());
-                        for (com.gaiagps.iburn.database.PlayaItem fav : favorites) {
-                            favoritePlayaIds.add(fav.playaId);
-                        }
-                        return true;
-                    })
-                    .toObservable();
-        }
-
-        @Override
-        public void restoreData(ContentValues row) {
-            row.put(FAVORITE, favoritePlayaIds.contains(row.getAsString(PLAYA_ID)));
-        }
-    }
+    /**
+     * Feed items whose addresses are forward geocoded with one call into the JS engine
+     */
+    private static final int GEOCODE_BATCH_SIZE = 256;
 
-    private static class EventLifeboat implements UpgradeLifeboat {
-
-        private HashMap<String, HashSet<String>> favoriteIds = new HashMap<>();
-
-        @Override
-        public Observable<Boolean> saveData(DataProvider provider) {
-            return provider.observeEventFavorites()
-                    .firstOrError()
-                    .map(favorites -> {
-                        Timber.d("Found %d event favorites", favorites.size());
-                        String favoriteId;
-                        for (com.gaiagps.iburn.database.Event favEvent : favorites) {
-                            favoriteId = favEvent.playaId;
-                            if (!favoriteIds.containsKey(favoriteId))
-                                favoriteIds.put(favoriteId, new HashSet<>());
-                            favoriteIds.get(favoriteId).add(favEvent.startTime);
-                        }
-                        return true;
-                    })
-                    .toObservable();
-        }
+    /**
+     * Directory within the cache dir holding downloaded feeds until they're written
+     */
+    private static final String FEED_DIR = "feeds";
 
-        @Override
-        public void restoreData(ContentValues row) {
-            String playaId = row.getAsString(PLAYA_ID);
-            row.put(FAVORITE, favoriteIds.containsKey(playaId) &&
-                    favoriteIds.get(playaId).contains(row.getAsString(START_TIME)));
-        }
-    }
+    /**
+     * Tables whose locations events inherit
+     */
+    private static final String[] LOCATED_TABLES =
+            {com.gaiagps.iburn.database.Camp.TABLE_NAME, com.gaiagps.iburn.database.Art.TABLE_NAME};
 
     /**
-     * Class to represent state needed to update an iBurn collection
+     * Class to represent state needed to update an iBurn collection.
+     * The stages using it are package-private so IBurnServiceTest can run them against a local server
      */
-    private class UpdateDataDependencies {
+    static class UpdateDataDependencies {
 
         DataProvider dataProvider;
         DataManifest dataManifest;
         ResourceManifest resourceManifest;
+        /**
+         * The downloaded feed, and the hex SHA-256 of its contents. See {@link #downloadResource}
+         */
+        File feed;
+        String feedHash;
+        /**
+         * The feed's items, parsed ahead of the writer. See {@link #parseResource}
+         */
+        List<PlayaItem> items;
+        /**
+         * Whether the downloaded feed matched the contents last written, so needn't be written again
+         */
+        boolean unchanged;
 
         public UpdateDataDependencies(DataProvider dataProvider, DataManifest dataManifest, ResourceManifest resourceManifest) {
             this.dataProvider = dataProvider;
@@ -205,23 +156,11 @@ public class IBurnService {
 
     Context context;
     IBurnApi service;
-    /*
-    Store camp and art locations before processing events so we can relate them
-     */
-    HashMap<String, Location> cachedLocations = new HashMap<>();
-    HashMap<String, Location> cachedUnofficialLocations = new HashMap<>();
-
-    private static final DateFormat apiDateFormat = PlayaDateTypeAdapter.buildIso8601Format();
+    Gson gson = FeedParser.createGson();
 
     public IBurnService(@NonNull Context context) {
-        Gson gson = new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .registerTypeAdapter(Date.class, new PlayaDateTypeAdapter())
-                .create();
-
-        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
-        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+        OkHttpClient client = FeedDownloader.createClient(
+                new File(context.getCacheDir(), FeedDownloader.HTTP_CACHE_DIR));
 
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(IBURN_API_URL)
@@ -242,15 +181,15 @@ public class IBurnService {
     public Single<Boolean> updateData() {
         // Check local update dates for each endpoint, update those that are stale
         final PrefsHelper storage = new PrefsHelper(context);
+        final AtomicReference<DataProvider> upgradingProvider = new AtomicReference<>();
+        // Store camp and art locations as those feeds are bound, so events can relate to them
+        final LocationIndex locations = new LocationIndex();
 
         return DataProvider.Companion.getInstance(context)
                 .observeOn(upgradeScheduler)
                 .flatMap(dataProvider -> service.getDataManifest().map(dataManifest -> new Pair<>(dataProvider, dataManifest)))
                 .flatMap(depBundle -> {
 
-                    cachedLocations.clear();
-                    cachedUnofficialLocations.clear();
-
                     Timber.d("Got depBundle");
                     DataProvider dataProvider = depBundle.first;
                     DataManifest dataManifest = depBundle.second;
@@ -265,57 +204,71 @@ public class IBurnService {
                             new UpdateDataDependencies((DataProvider) dataProvider, dataManifest, resource));
                 })
                 .filter(dependencies -> shouldUpdateResource(storage, dependencies.resourceManifest))
-                .doOnNext(dependencies -> dependencies.dataProvider.beginUpgrade()) // We really should only do this the first time
-                .flatMap(dependencies ->
-                        updateResource(dependencies)
+                .doOnNext(dependencies -> {
+                    upgradingProvider.set(dependencies.dataProvider);
+                    dependencies.dataProvider.beginUpgrade(); // We really should only do this the first time
+                })
+                // Download and parse every stale feed at once. Feeds are emitted in manifest order,
+                // so art and camps are written before the events that read their locations.
+                // A failure is held back until the feeds before it are written
+                .concatMapEagerDelayError(dependencies -> downloadResource(dependencies, storage)
+                        .flatMap(this::parseResource)
+                        .toObservable(), false)
+                // Write one feed at a time, binding its items on an io thread as upgradeScheduler writes them
+                .concatMapDelayError(dependencies ->
+                        updateResource(dependencies, locations)
                                 .map(itemsUpdated -> {
                                     Timber.d("item %s updated %d items", dependencies.resourceManifest.file, itemsUpdated);
-                                    if (itemsUpdated > 0)
-                                        storage.setResourceVersion(dependencies.resourceManifest.file, dependencies.resourceManifest.updated.getTime());
+                                    recordUpdate(storage, dependencies, itemsUpdated);
                                     return dependencies;
                                 })
-                                .toObservable())
+                                .toObservable(), Observable.bufferSize(), false)
                 .doOnError(throwable -> Timber.e(throwable, "updateData error"))
                 .toList()
-                .doOnSuccess(updateDataDependencies -> {
-                    Timber.d("updateData Complete");
-                    if (updateDataDependencies.size() > 0) {
-                        updateDataDependencies.get(0).dataProvider.endUpgrade();
-                        cachedLocations.clear();
-                        cachedUnofficialLocations.clear();
+                .doOnSuccess(updateDataDependencies -> Timber.d("updateData Complete"))
+                .doFinally(() -> {
+                    // Swap in every resource that completed, even if a later one failed,
+                    // as its version has already been recorded
+                    DataProvider provider = upgradingProvider.getAndSet(null);
+                    if (provider != null) {
+                        provider.endUpgrade();
                     }
                 })
                 .map(dependencies -> true); // TODO : More granular success / failure?
 //                .subscribe(totalUpdated -> Timber.d("Update complete"), throwable -> Timber.e(throwable, "Update error"));
     }
 
-    private Single<Long> updateArt(DataProvider provider) {
+    private Single<Long> updateArt(DataProvider provider, List<PlayaItem> items, LocationIndex locations) {
         Timber.d("Updating art");
 
         final String tableName = com.gaiagps.iburn.database.Art.TABLE_NAME;
-        return updateTable(provider, service.getArt(), tableName, new SimpleLifeboat(SimpleLifeboat.Table.Art), (item, values, database) -> {
+        locations.markRecorded(tableName);
+        Flowable<BoundRow> rows = bindFeed(Flowable.fromIterable(items), locations, (item, values, dependents) -> {
             Art art = (Art) item;
             values.put(ARTIST, art.artist);
             values.put(ARTIST_LOCATION, art.artistLocation);
 //            values.put(AUDIO_TOUR_URL, art.audioTourUrl);
             if (art.images != null && art.images.size() > 0) {
                 values.put(IMAGE_URL, art.images.get(0).thumbnail_url);
+            } else {
+                values.putNull(IMAGE_URL);
             }
-            database.insert(values);
         });
+        return updateTable(provider, rows, tableName);
     }
 
-    private Single<Long> updateCamps(DataProvider provider) {
+    private Single<Long> updateCamps(DataProvider provider, List<PlayaItem> items, LocationIndex locations) {
         Timber.d("Updating Camps");
 
         final String tableName = com.gaiagps.iburn.database.Camp.TABLE_NAME;
-        return updateTable(provider, service.getCamps(), tableName, new SimpleLifeboat(SimpleLifeboat.Table.Camp), (item, values, database) -> {
+        locations.markRecorded(tableName);
+        Flowable<BoundRow> rows = bindFeed(Flowable.fromIterable(items), locations, (item, values, dependents) -> {
             values.put(HOMETOWN, ((Camp) item).hometown);
-            database.insert(values);
         });
+        return updateTable(provider, rows, tableName);
     }
 
-    private Single<Long> updateEvents(DataProvider provider) {
+    private Single<Long> updateEvents(DataProvider provider, List<PlayaItem> items, LocationIndex locations) {
         Timber.d("Updating Events");
 
         // Date format for machine-readable
@@ -326,15 +279,19 @@ public class IBurnService {
         final SimpleDateFormat dayFormatter = new SimpleDateFormat("EE M/d", Locale.US);
 
         final String tableName = com.gaiagps.iburn.database.Event.TABLE_NAME;
-        return updateTable(provider, service.getEvents(), tableName, new EventLifeboat(), (item, values, database) -> {
-
-            Event event = (Event) item;
-
-            if (event.occurrenceSet == null) {
+        Flowable<PlayaItem> events = Flowable.fromIterable(items).filter(item -> {
+            if (((Event) item).occurrenceSet == null) {
                 // If no occurrence set, ignore for now?
-                Timber.d("Event %s without occurrence", event.uid);
-                return;
+                Timber.d("Event %s without occurrence", item.uid);
+                return false;
             }
+            return true;
+        });
+
+        // Camps and art are bound by now, unless their feeds were skipped. Bind against a frozen copy of their locations
+        Flowable<BoundRow> rows = Flowable.defer(() -> bindFeed(events, eventLocations(provider, locations), (item, values, dependents) -> {
+
+            Event event = (Event) item;
 
             // Event uses title, not name
             values.put(NAME, event.title);
@@ -347,58 +304,151 @@ public class IBurnService {
                 values.put(TYPE, AdapterUtils.EVENT_TYPE_ABBREVIATION_UNKNOWN);
             }
 
-            if (event.hostedByCamp != null) {
-                values.put(CAMP_PLAYA_ID, event.hostedByCamp);
-            }
+            values.put(CAMP_PLAYA_ID, event.hostedByCamp);
 
             for (EventOccurrence occurrence : event.occurrenceSet) {
-                values.put(START_TIME, apiDateFormat.format(occurrence.startTime));
-                values.put(START_TIME_PRETTY, (event.allDay == 1) ? dayFormatter.format(occurrence.startTime) :
+                ContentValues occurrenceValues = new ContentValues();
+
+                occurrenceValues.put(START_TIME, occurrence.startTime.getTime());
+                occurrenceValues.put(START_TIME_PRETTY, (event.allDay == 1) ? dayFormatter.format(occurrence.startTime) :
                         timeDayFormatter.format(occurrence.startTime));
 
-                values.put(END_TIME, apiDateFormat.format(occurrence.endTime));
-                values.put(END_TIME_PRETTY, (event.allDay == 1) ? dayFormatter.format(occurrence.endTime) :
+                occurrenceValues.put(END_TIME, occurrence.endTime.getTime());
+                occurrenceValues.put(END_TIME_PRETTY, (event.allDay == 1) ? dayFormatter.format(occurrence.endTime) :
                         timeDayFormatter.format(occurrence.endTime));
 
-                database.insert(values);
+                occurrenceValues.put(DAY, DateUtil.getPlayaDay(occurrence.startTime.getTime()));
+                occurrenceValues.put(SPANS_DAY, DateUtil.spansPlayaDay(occurrence.startTime.getTime(), occurrence.endTime.getTime()));
+                dependents.add(occurrenceValues);
+            }
+        }));
+        return updateTable(provider, rows, tableName);
+    }
+
+    /**
+     * @return a frozen copy of locations for events to bind against. Camps and art whose feeds weren't
+     * bound in this update, as they were unchanged or not stale, contribute their stored locations,
+     * so events written now keep the locations of their hosts
+     */
+    LocationIndex eventLocations(DataProvider provider, LocationIndex locations) {
+        for (String table : LOCATED_TABLES) {
+            if (!locations.isRecorded(table)) {
+                locations.recordStored(table, getStoredLocations(provider, table));
             }
+        }
+        return locations.freeze();
+    }
+
+    /**
+     * Read from provider, here so IBurnServiceTest can stand in for the database
+     */
+    List<DataProvider.StoredLocation> getStoredLocations(DataProvider provider, String table) {
+        return provider.getStoredLocations(table);
+    }
+
+    private Flowable<PlayaItem> readFeed(File feed, Class<? extends PlayaItem> type) {
+        return FeedParser.parse(gson, () -> new InputStreamReader(new FileInputStream(feed), "UTF-8"), type)
+                .cast(PlayaItem.class);
+    }
+
+    /**
+     * Bind each of items to a new {@link BoundRow}. Their addresses were geocoded when parsed, see {@link #parseResource}
+     */
+    private Flowable<BoundRow> bindFeed(Flowable<PlayaItem> items,
+                                        LocationIndex locations,
+                                        BindObjectToContentValues binder) {
+        return items.map(item -> {
+            ContentValues values = new ContentValues();
+            List<ContentValues> dependents = new ArrayList<>();
+            bindBaseValues(item, values, locations);
+            binder.bindValues(item, values, dependents);
+            return new BoundRow(values, dependents);
         });
     }
 
-    private Single<Long> updateTable(DataProvider provider,
-                                     Observable<? extends Iterable<? extends PlayaItem>> items,
-                                     String tableName,
-                                     UpgradeLifeboat lifeboat,
-                                     BindObjectToContentValues binder) {
+    /**
+     * Fill in the coordinates of camp and art locations the API gave only an address for,
+     * with one call into the {@link Geocoder} for all of batch. Events inherit their host's
+     * location, so aren't geocoded
+     */
+    private void geocodeLocations(List<PlayaItem> batch) {
+        List<Location> pending = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
+        for (PlayaItem item : batch) {
+            Location location = item.location;
+            if (!(item instanceof Event) && location != null &&
+                    !TextUtils.isEmpty(location.string) &&
+                    !(location.string.equals("Mobile")) &&
+                    location.gps_latitude == 0.0 && location.gps_longitude == 0.0) {
+                pending.add(location);
+                addresses.add(location.string);
+            }
+        }
+        if (pending.isEmpty()) return;
 
-        final AtomicBoolean initializedInsert = new AtomicBoolean(false);
-        final android.content.ContentValues values = new android.content.ContentValues();
-        // Fetch remote JSON and all existing internal records that are favorites, simultaneously
-        return Observable.zip(
-                items.doOnNext(resp -> Timber.d("Got %s API Response", tableName)),
-                lifeboat.saveData(provider).doOnNext(result -> Timber.d("Backed up %s data", tableName)),
-                (playaItems, lifeboatSuccess) -> {
-                    if (!lifeboatSuccess)
-                        throw new IllegalStateException("Lifeboat did not complete successfully!");
-                    return playaItems;
-                })
+        List<LatLng> coordinates = Geocoder.INSTANCE.forwardGeocode(context, addresses).blockingGet();
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).gps_latitude = coordinates.get(i).getLatitude();
+            pending.get(i).gps_longitude = coordinates.get(i).getLongitude();
+        }
+    }
 
-                .flatMap(Observable::fromIterable)
+    /**
+     * Write rows to tableName. If every stored row has a {@link com.gaiagps.iburn.database.PlayaItem#CONTENT_HASH},
+     * only rows that changed are written, via {@link #applyDelta}. Otherwise the table is rebuilt, via
+     * {@link #rebuildTable}
+     */
+    private Single<Long> updateTable(DataProvider provider,
+                                     Flowable<BoundRow> rows,
+                                     String tableName) {
+
+        // Bind on an io thread, handing rows to upgradeScheduler through a bounded buffer.
+        // upgradeScheduler is the only thread writing, so all of a table's transactions stay on it
+        Flowable<BoundRow> bufferedRows = rows
+                .subscribeOn(Schedulers.io())
+                .observeOn(upgradeScheduler, false, FEED_BUFFER_SIZE);
+
+        List<DataProvider.RowVersion> versions = provider.getRowVersions(tableName);
+        boolean hashesKnown = !versions.isEmpty();
+        for (DataProvider.RowVersion version : versions) {
+            if (version.getHash() == 0) {
+                // Rows written before content hashes were recorded
+                hashesKnown = false;
+                break;
+            }
+        }
+        if (hashesKnown) {
+            return applyDelta(provider, bufferedRows, tableName, versions);
+        }
+        return rebuildTable(provider, bufferedRows, tableName);
+    }
+
+    /**
+     * Rebuild tableName in a shadow table. Favorites in the live table are carried over to it when it's
+     * swapped in, by {@link DataProvider#commitShadowTables}
+     */
+    private Single<Long> rebuildTable(DataProvider provider,
+                                      Flowable<BoundRow> rows,
+                                      String tableName) {
 
-                .map(item -> {
-                    // Delete all old rows before inserting first new row
+        final AtomicBoolean initializedInsert = new AtomicBoolean(false);
+        final AtomicInteger insertCount = new AtomicInteger(0);
+        return rows
+                .map(row -> {
+                    // Build the new rows in shadow tables. Readers see the live tables until they're swapped
                     if (!initializedInsert.getAndSet(true)) {
+                        provider.beginShadowTables(tableName);
+                        provider.beginTransaction();
+                        Timber.d("Beginning %s shadow inserts", tableName);
+                    } else if (insertCount.incrementAndGet() % SHADOW_INSERT_BATCH_SIZE == 0) {
+                        // Commit in batches, so the write lock isn't held for the whole feed
+                        provider.setTransactionSuccessful();
+                        provider.endTransaction();
                         provider.beginTransaction();
-                        int numDeleted = provider.delete(tableName);
-                        Timber.d("Deleted %d existing rows. Beginning %s inserts", numDeleted, tableName);
                     }
 
-                    values.clear();
-                    bindBaseValues(item, values);
-                    binder.bindAndInsertValues(item, values, finalValues -> {
-                        lifeboat.restoreData(finalValues);
-                        provider.insert(tableName, finalValues);
-                    });
+                    row.values.put(CONTENT_HASH, row.contentHash);
+                    provider.insertShadow(tableName, row.values, row.dependents);
                     return true;
                 })
 
@@ -406,6 +456,9 @@ public class IBurnService {
                     Timber.d("Successfully closing %s transaction", tableName);
                     provider.setTransactionSuccessful();
                     provider.endTransaction();
+                    if (initializedInsert.get()) {
+                        provider.commitShadowTables(tableName);
+                    }
                 })
 
                 .count()
@@ -415,29 +468,116 @@ public class IBurnService {
                 .doOnError(throwable -> {
                     Timber.e(throwable, "Error. Rolling back %s transacton ", tableName);
                     provider.endTransaction();
+                    if (initializedInsert.get()) {
+                        provider.abortShadowTables(tableName);
+                    }
                 });
     }
 
+    /**
+     * Write only the rows of tableName whose content hash differs from versions, and delete rows
+     * no longer in the feed. Changed rows are collected while the feed streams, then written in one
+     * short transaction against the live table, which updates the index entries of those rows only.
+     * Internal columns like {@link PlayaItem.FAVORITE} are never written for existing rows, so favorites
+     * are untouched
+     */
+    private Single<Long> applyDelta(DataProvider provider,
+                                    Flowable<BoundRow> rows,
+                                    String tableName,
+                                    List<DataProvider.RowVersion> versions) {
+
+        final HashMap<String, DataProvider.RowVersion> versionsByPlayaId = new HashMap<>(versions.size());
+        // Rows not matched by the feed are deleted once it completes
+        final Set<Integer> staleIds = new HashSet<>(versions.size());
+        for (DataProvider.RowVersion version : versions) {
+            if (version.getPlayaId() != null) versionsByPlayaId.put(version.getPlayaId(), version);
+            staleIds.add(version.getId());
+        }
+
+        // Changed rows, with the id of the row they replace or null if new
+        final List<Pair<Integer, BoundRow>> changes = new ArrayList<>();
+        return rows
+                .doOnNext(row -> {
+                    String playaId = row.values.getAsString(PLAYA_ID);
+                    // Remove the match, so a playa id repeated in the feed gets its own row
+                    DataProvider.RowVersion existing = playaId != null ? versionsByPlayaId.remove(playaId) : null;
+                    if (existing != null) {
+                        staleIds.remove(existing.getId());
+                        if (existing.getHash() == row.contentHash) return;
+                    }
+                    changes.add(new Pair<>(existing != null ? existing.getId() : null, row));
+                })
+
+                .count()
+
+                .doOnSuccess(count -> {
+                    if (!changes.isEmpty() || !staleIds.isEmpty()) {
+                        writeDelta(provider, tableName, changes, staleIds);
+                    }
+                    Timber.d("Applied %s delta. %d of %d items changed, %d removed",
+                            tableName, changes.size(), count, staleIds.size());
+                })
+
+                .doOnError(throwable -> Timber.e(throwable, "Error applying %s delta", tableName));
+    }
+
+    private void writeDelta(DataProvider provider,
+                            String tableName,
+                            List<Pair<Integer, BoundRow>> changes,
+                            Set<Integer> staleIds) {
+        long startMs = System.currentTimeMillis();
+        List<Integer> changedIds = new ArrayList<>(changes.size() + staleIds.size());
+        provider.beginTransaction();
+        try {
+            for (Pair<Integer, BoundRow> change : changes) {
+                BoundRow row = change.second;
+                row.values.put(CONTENT_HASH, row.contentHash);
+                long rowId = provider.upsert(tableName, change.first, row.values, row.dependents);
+                if (rowId != -1) changedIds.add((int) rowId);
+            }
+            provider.deleteRows(tableName, staleIds);
+            changedIds.addAll(staleIds);
+            provider.updateIndices(tableName, changedIds);
+            provider.setTransactionSuccessful();
+        } finally {
+            provider.endTransaction();
+        }
+        Timber.d("Wrote %s delta in %d ms", tableName, System.currentTimeMillis() - startMs);
+    }
+
     interface BindObjectToContentValues<T extends PlayaItem> {
 
         /**
-         * @param item     the data source which extends {@link PlayaItem}
-         * @param values   the persisted data sink, which already has all common {@link PlayaItem}
-         *                 attributes bound
-         * @param database the database on which to perform the insert via {@link com.gaiagps.iburn.api.IBurnService.DataBaseSink#insert(ContentValues)}
+         * @param item       the data source which extends {@link PlayaItem}
+         * @param values     the persisted data sink, which already has all common {@link PlayaItem}
+         *                   attributes bound
+         * @param dependents rows to store alongside values (e.g: an event's occurrences). Their
+         *                   reference to values' row is filled in when written
          */
-        void bindAndInsertValues(T item, android.content.ContentValues values, DataBaseSink database);
+        void bindValues(T item, android.content.ContentValues values, List<ContentValues> dependents);
     }
 
-    interface DataBaseSink {
-        void insert(ContentValues values);
+    /**
+     * An item's bound values, handed from the thread binding its feed to the writer
+     */
+    private static class BoundRow {
+
+        final ContentValues values;
+        final List<ContentValues> dependents;
+        final long contentHash;
+
+        BoundRow(ContentValues values, List<ContentValues> dependents) {
+            this.values = values;
+            this.dependents = dependents;
+            this.contentHash = ContentHash.INSTANCE.of(values, dependents);
+        }
     }
 
     /**
      * Bind {@link com.gaiagps.iburn.database.PlayaItem} values described by the iBurn API. This does not include
      * internal data columns like {@link PlayaItem.FAVORITE}
      */
-    private void bindBaseValues(PlayaItem item, android.content.ContentValues values) {
+    private void bindBaseValues(PlayaItem item, android.content.ContentValues values, LocationIndex locations) {
 
         // Name is a required column
         values.put(NAME, item.name != null ? item.name : "?");
@@ -447,23 +587,14 @@ public class IBurnService {
         values.put(PLAYA_ID, item.uid);
 
         if (item instanceof Event) {
-            // Retrieve locations cached by earlier camps / arts
-
-            Event event = (Event) item;
-
-            String locationPlayaId = (event.hostedByCamp != null) ? event.hostedByCamp : event.locatedAtArt;
-
-            if (locationPlayaId != null) {
-                if (cachedLocations.containsKey(locationPlayaId)) {
-                    item.location = cachedLocations.get(locationPlayaId);
-                }
-                if (cachedUnofficialLocations.containsKey(locationPlayaId)) {
-                    item.burnermap_location = cachedUnofficialLocations.get(locationPlayaId);
-                }
-            }
+            // Retrieve locations recorded by earlier camps / arts
+            locations.locate((Event) item);
 
         } else {
-            // Set and cache location for later use by events
+            // Set and record location for later use by events
+
+            Location officialLocation = null;
+            Location unofficialLocation = null;
 
             if (item.location != null) {
 
@@ -471,18 +602,7 @@ public class IBurnService {
                 location.gps_latitude = item.location.gps_latitude;
                 location.gps_longitude = item.location.gps_longitude;
                 location.string = item.location.string;
-
-                if (!TextUtils.isEmpty(location.string) &&
-                        !(location.string.equals("Mobile")) &&
-                        location.gps_latitude == 0.0 && location.gps_longitude == 0.0) {
-                    LatLng response = Geocoder.INSTANCE.forwardGeocode(context, location.string).blockingGet();
-                    location.gps_latitude = response.getLatitude();
-                    location.gps_longitude = response.getLongitude();
-                    item.location.gps_latitude = response.getLatitude();
-                    item.location.gps_longitude = response.getLongitude();
-                }
-
-                cachedLocations.put(item.uid, location);
+                officialLocation = location;
             }
 
             if (item.burnermap_location != null) {
@@ -491,8 +611,9 @@ public class IBurnService {
                 location.gps_latitude =  item.burnermap_location.gps_latitude;
                 location.gps_longitude = item.burnermap_location.gps_longitude;
                 location.string = item.burnermap_location.string;
-                cachedUnofficialLocations.put(item.uid, location);
+                unofficialLocation = location;
             }
+            locations.record(item.uid, officialLocation, unofficialLocation);
         }
 
         if (item.location != null) {
@@ -500,8 +621,10 @@ public class IBurnService {
             values.put(LONGITUDE, item.location.gps_longitude);
             values.put(PLAYA_ADDR, item.location.string);
         } else {
+            // Bind every column, so a delta update clears values the API dropped
             values.put(LATITUDE, 0);
             values.put(LONGITUDE, 0);
+            values.putNull(PLAYA_ADDR);
         }
 
         if (item.burnermap_location != null) {
@@ -511,33 +634,148 @@ public class IBurnService {
         } else {
             values.put(LATITUDE_UNOFFICIAL, 0);
             values.put(LONGITUDE_UNOFFICIAL, 0);
+            values.putNull(PLAYA_ADDR_UNOFFICIAL);
         }
         values.put(URL, item.url);
     }
 
-    private Single<Long> updateResource(UpdateDataDependencies dependencies) {
+    /**
+     * Download the feed of dependencies to a file, so every feed can be fetched at once
+     * and parsed from disk, see {@link #parseResource}
+     */
+    Single<UpdateDataDependencies> downloadResource(UpdateDataDependencies dependencies, PrefsHelper storage) {
         String resourceName = dependencies.resourceManifest.file;
+        String manifestHash = dependencies.resourceManifest.hash;
+        if (manifestHash != null && manifestHash.equalsIgnoreCase(storage.getResourceHash(resourceName))) {
+            // Republished with identical contents. Its new version is recorded once the update completes
+            Timber.d("%s hash unchanged. Skipping download", resourceName);
+            dependencies.unchanged = true;
+            return Single.just(dependencies);
+        }
+
+        Observable<ResponseBody> response;
 
         if (resourceName.equals(dependencies.dataManifest.art.file))
-            return updateArt(dependencies.dataProvider);
+            response = service.getArt();
 
         else if (resourceName.equals(dependencies.dataManifest.camps.file))
-            return updateCamps(dependencies.dataProvider);
+            response = service.getCamps();
 
         else if (resourceName.equals(dependencies.dataManifest.events.file))
-            return updateEvents(dependencies.dataProvider);
+            response = service.getEvents();
+
+        else
+            // Nothing to download. See updateResource
+            return Single.just(dependencies);
+
+        return response.firstOrError()
+                .subscribeOn(Schedulers.io())
+                .map(body -> {
+                    File feedDir = new File(context.getCacheDir(), FEED_DIR);
+                    if (!feedDir.exists() && !feedDir.mkdirs()) {
+                        throw new IOException("Unable to create " + feedDir);
+                    }
+
+                    File feed = new File(feedDir, resourceName);
+                    String hash = FeedDownloader.spool(body, feed);
+                    Timber.d("Downloaded %s. %d bytes", resourceName, feed.length());
+
+                    if (hash.equals(storage.getResourceHash(resourceName))) {
+                        // Same bytes as last written, e.g: revalidated from the HTTP cache with a new manifest date
+                        Timber.d("%s unchanged. Skipping", resourceName);
+                        dependencies.unchanged = true;
+                        if (!feed.delete()) Timber.w("Unable to delete %s", feed);
+                    } else {
+                        dependencies.feed = feed;
+                        dependencies.feedHash = hash;
+                    }
+                    return dependencies;
+                });
+    }
+
+    /**
+     * Parse the downloaded feed of dependencies on an io thread, geocoding camp and art addresses
+     * {@link #GEOCODE_BATCH_SIZE} at a time, and delete it. Each feed is parsed as soon as it's downloaded,
+     * rather than when the writer reaches it, so feeds parse in parallel. The parsed items are held until
+     * they're written, so every stale feed can be in memory at once, a few thousand items each
+     */
+    Single<UpdateDataDependencies> parseResource(UpdateDataDependencies dependencies) {
+        File feed = dependencies.feed;
+        if (feed == null) return Single.just(dependencies);
+
+        String resourceName = dependencies.resourceManifest.file;
+        Class<? extends PlayaItem> type;
+        if (resourceName.equals(dependencies.dataManifest.art.file))
+            type = Art.class;
 
-        // Tiles no longer updated via this service
-        // TODO: Capture points
+        else if (resourceName.equals(dependencies.dataManifest.camps.file))
+            type = Camp.class;
+
+        else
+            type = Event.class;
 
-        // Unknown or Unimplemented situation
-        Timber.w("Unknown resource name %s. Cannot perform update", resourceName);
-        return Single.just(0l);
+        return readFeed(feed, type)
+                .buffer(GEOCODE_BATCH_SIZE)
+                .doOnNext(this::geocodeLocations)
+                .concatMapIterable(batch -> batch)
+                .toList()
+                .subscribeOn(Schedulers.io())
+                .map(items -> {
+                    Timber.d("Parsed %d items from %s", items.size(), resourceName);
+                    dependencies.items = items;
+                    return dependencies;
+                })
+                .doFinally(() -> {
+                    if (!feed.delete()) Timber.w("Unable to delete %s", feed);
+                });
     }
 
-    private boolean shouldUpdateResource(PrefsHelper storage, ResourceManifest resource) {
+    Single<Long> updateResource(UpdateDataDependencies dependencies, LocationIndex locations) {
+        String resourceName = dependencies.resourceManifest.file;
+        List<PlayaItem> items = dependencies.items;
+
+        if (dependencies.unchanged) return Single.just(0l);
+
+        if (items == null) {
+            // Tiles no longer updated via this service
+            // TODO: Capture points
+
+            // Unknown or Unimplemented situation
+            Timber.w("Unknown resource name %s. Cannot perform update", resourceName);
+            return Single.just(0l);
+        }
+
+        // Release the items once written
+        dependencies.items = null;
+        if (resourceName.equals(dependencies.dataManifest.art.file))
+            return updateArt(dependencies.dataProvider, items, locations);
+
+        else if (resourceName.equals(dependencies.dataManifest.camps.file))
+            return updateCamps(dependencies.dataProvider, items, locations);
+
+        else
+            return updateEvents(dependencies.dataProvider, items, locations);
+    }
+
+    /**
+     * Record the version of a resource, and the hash of its contents, once it's been written or found
+     * unchanged. Nothing is recorded for a resource that failed, so it's retried by the next update
+     */
+    void recordUpdate(PrefsHelper storage, UpdateDataDependencies dependencies, long itemsUpdated) {
+        String resourceName = dependencies.resourceManifest.file;
+        if (itemsUpdated > 0 || dependencies.unchanged)
+            storage.setResourceVersion(resourceName, dependencies.resourceManifest.updated.getTime());
+        if (itemsUpdated > 0 && dependencies.feedHash != null)
+            storage.setResourceHash(resourceName, dependencies.feedHash);
+    }
+
+    /**
+     * @return whether the manifest has a newer version of resource than was last written. Writes nothing,
+     * so a resource whose update fails is retried
+     */
+    boolean shouldUpdateResource(PrefsHelper storage, ResourceManifest resource) {
         boolean shouldUpdate = storage.getResourceVersion(resource.file) < resource.updated.getTime();
         Timber.d("%s version local:%d remote:%d. Will update: %b", resource.file, storage.getResourceVersion(resource.file), resource.updated.getTime(), shouldUpdate);
-        return storage.getResourceVersion(resource.file) < resource.updated.getTime();
+        return shouldUpdate;
     }
 }
@@ -0,0 +1,121 @@
+package com.gaiagps.iburn.api;
+
+import android.support.annotation.Nullable;
+
+import com.gaiagps.iburn.api.response.Event;
+import com.gaiagps.iburn.api.response.Location;
+import com.gaiagps.iburn.database.DataProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Camp and art locations by playa id, which events inherit from their host camp or art.
+ * <p>
+ * Camp and art feeds {@link #record} locations as they're bound, each on its own thread. Tables whose
+ * feed isn't bound in an update have their stored locations recorded instead, see {@link #recordStored}.
+ * Events bind against a {@link #freeze()}d copy, which is immutable and so safe to read from any thread.
+ */
+class LocationIndex {
+
+    private final Map<String, Location> locations;
+    private final Map<String, Location> unofficialLocations;
+    /**
+     * Tables whose locations have been recorded
+     */
+    private final Set<String> recordedTables;
+
+    LocationIndex() {
+        this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), Collections.newSetFromMap(new ConcurrentHashMap<>()));
+    }
+
+    private LocationIndex(Map<String, Location> locations, Map<String, Location> unofficialLocations,
+                          Set<String> recordedTables) {
+        this.locations = locations;
+        this.unofficialLocations = unofficialLocations;
+        this.recordedTables = recordedTables;
+    }
+
+    void record(@Nullable String playaId, @Nullable Location location, @Nullable Location unofficialLocation) {
+        if (playaId == null) return;
+        if (location != null) locations.put(playaId, location);
+        if (unofficialLocation != null) unofficialLocations.put(playaId, unofficialLocation);
+    }
+
+    /**
+     * Note that the feed of table is being bound, so its locations are {@link #record}ed as it is
+     */
+    void markRecorded(String table) {
+        recordedTables.add(table);
+    }
+
+    boolean isRecorded(String table) {
+        return recordedTables.contains(table);
+    }
+
+    /**
+     * Record the locations stored for table, whose feed wasn't bound in this update
+     */
+    void recordStored(String table, List<DataProvider.StoredLocation> stored) {
+        for (DataProvider.StoredLocation location : stored) {
+            record(location.getPlayaId(),
+                    location(location.getLatitude(), location.getLongitude(), location.getAddress()),
+                    location(location.getUnofficialLatitude(), location.getUnofficialLongitude(), location.getUnofficialAddress()));
+        }
+        recordedTables.add(table);
+    }
+
+    @Nullable
+    private static Location location(double latitude, double longitude, @Nullable String address) {
+        // Stored as 0, 0 and null when the API gave no location
+        if (latitude == 0 && longitude == 0 && address == null) return null;
+
+        Location location = new Location();
+        location.gps_latitude = latitude;
+        location.gps_longitude = longitude;
+        location.string = address;
+        return location;
+    }
+
+    @Nullable
+    Location get(String playaId) {
+        return locations.get(playaId);
+    }
+
+    @Nullable
+    Location getUnofficial(String playaId) {
+        return unofficialLocations.get(playaId);
+    }
+
+    /**
+     * Give event the locations of the camp hosting it, or else the art it's located at, if recorded
+     */
+    void locate(Event event) {
+        String locationPlayaId = (event.hostedByCamp != null) ? event.hostedByCamp : event.locatedAtArt;
+        if (locationPlayaId == null) return;
+
+        Location location = get(locationPlayaId);
+        if (location != null) {
+            event.location = location;
+        }
+        Location unofficialLocation = getUnofficial(locationPlayaId);
+        if (unofficialLocation != null) {
+            event.burnermap_location = unofficialLocation;
+        }
+    }
+
+    /**
+     * @return an immutable copy of the locations recorded so far
+     */
+    LocationIndex freeze() {
+        return new LocationIndex(
+                Collections.unmodifiableMap(new HashMap<>(locations)),
+                Collections.unmodifiableMap(new HashMap<>(unofficialLocations)),
+                Collections.unmodifiableSet(new HashSet<>(recordedTables)));
+    }
+}
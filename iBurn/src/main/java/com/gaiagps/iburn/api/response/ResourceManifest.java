@@ -9,6 +9,11 @@ public class ResourceManifest {
 
     public String file;
     public Date updated;
+    /**
+     * Hex SHA-256 of the file's bytes, if the manifest provides one. Lets a resource republished
+     * with a new {@link #updated} date but identical contents be skipped without downloading it
+     */
+    public String hash;
 
     public ResourceManifest(String file, Date updated) {
         this.file = file;
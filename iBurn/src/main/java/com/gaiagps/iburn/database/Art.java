@@ -2,20 +2,30 @@ package com.gaiagps.iburn.database;
 
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
-import android.content.Context;
-import android.support.annotation.NonNull;
-import android.text.TextUtils;
-
-import com.gaiagps.iburn.AudioTourManager;
+import android.arch.persistence.room.Index;
 
 import static com.gaiagps.iburn.database.Art.TABLE_NAME;
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
+import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
 
 /**
  * Created by dbro on 6/8/17.
  */
 
-@Entity(tableName = TABLE_NAME)
-public class Art extends PlayaItem {
+@Entity(tableName = TABLE_NAME,
+        indices = {
+                @Index(NAME),
+                @Index(PLAYA_ID),
+                @Index(FAVORITE),
+                @Index({LATITUDE, LONGITUDE})
+        })
+public class Art extends ArtRow {
     public static final String TABLE_NAME = "arts";
 
     public static final String ARTIST = "artist";
@@ -24,25 +34,18 @@ public class Art extends PlayaItem {
 //    public static final String AUDIO_TOUR_URL = "a_url";
 
 
-    @ColumnInfo(name = ARTIST)
-    public String artist;
+    @ColumnInfo(name = URL)
+    public String url;
+
+    @ColumnInfo(name = CONTACT)
+    public String contact;
 
     @ColumnInfo(name = ARTIST_LOCATION)
     public String artistLocation;
 
-    @ColumnInfo(name = IMAGE_URL)
-    public String imageUrl;
+    @ColumnInfo(name = CONTENT_HASH)
+    public long contentHash;
 
 //    @ColumnInfo(name = AUDIO_TOUR_URL)
 //    public String audioTourUrl;
-
-    public boolean hasAudioTour(@NonNull Context context) {
-//        return !TextUtils.isEmpty(audioTourUrl);
-        return AudioTourManager.hasAudioTour(context, playaId);
-    }
-
-    public boolean hasImage() {
-        return !TextUtils.isEmpty(imageUrl);
-    }
-
-}
\ No newline at end of file
+}
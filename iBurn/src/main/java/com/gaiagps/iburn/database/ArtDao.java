@@ -3,39 +3,57 @@ package com.gaiagps.iburn.database;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
-import android.arch.persistence.room.Update;
 
 import java.util.List;
 
-import io.reactivex.Flowable;
-
+import static com.gaiagps.iburn.database.Art.ARTIST;
+import static com.gaiagps.iburn.database.Art.IMAGE_URL;
 import static com.gaiagps.iburn.database.Art.TABLE_NAME;
 import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
 import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
 import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
 import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.ROW_COLUMNS;
 
 /**
+ * Lists load {@link ArtRow}s with {@link #SELECT_ROWS}. Use {@link #findById(int)} for a complete {@link Art}.
+ * <p>
  * Created by dbro on 6/8/17.
  */
-
 @Dao
 public interface ArtDao {
 
-    @Query("SELECT * FROM " + TABLE_NAME + " ORDER BY " + NAME)
-    Flowable<List<Art>> getAll();
+    String SELECT_ROWS = "SELECT " + ROW_COLUMNS + ", " + ARTIST + ", " + IMAGE_URL + " FROM " + TABLE_NAME;
+
+    // Queries are constants so QueryPlanTest can check the SQL Room compiles
+    String GET_ALL = SELECT_ROWS + " ORDER BY " + NAME;
+    String FIND_BY_ID = "SELECT * FROM " + TABLE_NAME + " WHERE " + ID + " = :id";
+    String FIND_BY_IDS = SELECT_ROWS + " WHERE " + ID + " IN (:ids)";
+    String GET_FAVORITES = SELECT_ROWS + " WHERE " + FAVORITE + " = 1";
+    String FIND_IN_REGION = SELECT_ROWS + " WHERE (" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE +
+            " BETWEEN :minLon AND :maxLon)";
+    String FIND_IN_REGION_OR_FAVORITE = SELECT_ROWS + " WHERE " + FAVORITE + " = 1 OR ((" + LATITUDE +
+            " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon))";
+    String SET_FAVORITE = "UPDATE " + TABLE_NAME + " SET " + FAVORITE + " = :isFavorite WHERE " + ID + " = :id";
+
+    @Query(GET_ALL)
+    List<ArtRow> getAll();
+
+    @Query(FIND_BY_ID)
+    Art findById(int id);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1")
-    Flowable<List<Art>> getFavorites();
+    @Query(FIND_BY_IDS)
+    List<ArtRow> findByIds(List<Integer> ids);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + NAME + " LIKE :name")
-    Flowable<List<Art>> findByName(String name);
+    @Query(GET_FAVORITES)
+    List<ArtRow> getFavorites();
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE (" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon)")
-    Flowable<List<Art>> findInRegion(float maxLat, float minLat, float maxLon, float minLon);
+    @Query(FIND_IN_REGION)
+    List<ArtRow> findInRegion(float maxLat, float minLat, float maxLon, float minLon);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1 OR ((" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon))")
-    Flowable<List<Art>> findInRegionOrFavorite(float maxLat, float minLat, float maxLon, float minLon);
+    @Query(FIND_IN_REGION_OR_FAVORITE)
+    List<ArtRow> findInRegionOrFavorite(float maxLat, float minLat, float maxLon, float minLon);
 
 //    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + AUDIO_TOUR_URL + " IS NOT NULL")
 //    Flowable<List<Art>> getAllWithAudioTour();
@@ -43,6 +61,6 @@ public interface ArtDao {
     @Insert
     void insert(Art... arts);
 
-    @Update
-    void update(Art... arts);
-}
\ No newline at end of file
+    @Query(SET_FAVORITE)
+    void setFavorite(int id, boolean isFavorite);
+}
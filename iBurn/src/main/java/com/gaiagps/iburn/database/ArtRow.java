@@ -0,0 +1,33 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import com.gaiagps.iburn.AudioTourManager;
+
+import static com.gaiagps.iburn.database.Art.ARTIST;
+import static com.gaiagps.iburn.database.Art.IMAGE_URL;
+
+/**
+ * The columns of an {@link Art} a list row renders, as loaded by {@link ArtDao#SELECT_ROWS}.
+ * Use {@link ArtDao#findById(int)} for the complete {@link Art}.
+ */
+public class ArtRow extends PlayaItem {
+
+    @ColumnInfo(name = ARTIST)
+    public String artist;
+
+    @ColumnInfo(name = IMAGE_URL)
+    public String imageUrl;
+
+    public boolean hasAudioTour(@NonNull Context context) {
+//        return !TextUtils.isEmpty(audioTourUrl);
+        return AudioTourManager.hasAudioTour(context, playaId);
+    }
+
+    public boolean hasImage() {
+        return !TextUtils.isEmpty(imageUrl);
+    }
+}
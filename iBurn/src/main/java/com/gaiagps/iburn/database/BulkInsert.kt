@@ -0,0 +1,67 @@
+package com.gaiagps.iburn.database
+
+import android.arch.persistence.db.SupportSQLiteDatabase
+import android.arch.persistence.db.SupportSQLiteStatement
+import android.content.ContentValues
+import android.database.SQLException
+import timber.log.Timber
+import java.io.Closeable
+
+/**
+ * Inserts rows of [columns] into a table through one compiled INSERT statement, binding each
+ * column by position. Unlike [SupportSQLiteDatabase.insert], no SQL is built and no argument
+ * array is allocated per row.
+ *
+ * Not thread safe. Use on the thread performing the enclosing transaction, and [close] when done.
+ */
+class BulkInsert private constructor(private val statement: SupportSQLiteStatement,
+                                     val columns: Array<String>) : Closeable {
+
+    /**
+     * @return whether [values] holds exactly [columns], so [insert] won't bind any column as null in its place
+     */
+    fun matches(values: ContentValues): Boolean {
+        return values.size() == columns.size && columns.all { values.containsKey(it) }
+    }
+
+    /**
+     * @return the row id of the new row, or -1 on failure
+     */
+    fun insert(values: ContentValues): Long {
+        for (i in columns.indices) {
+            bind(i + 1, values.get(columns[i]))
+        }
+        return try {
+            statement.executeInsert()
+        } catch (e: SQLException) {
+            Timber.e(e, "Failed to insert %s", values)
+            -1
+        }
+    }
+
+    private fun bind(index: Int, value: Any?) {
+        when (value) {
+            null -> statement.bindNull(index)
+            is String -> statement.bindString(index, value)
+            is Boolean -> statement.bindLong(index, if (value) 1 else 0)
+            is Float, is Double -> statement.bindDouble(index, (value as Number).toDouble())
+            is Number -> statement.bindLong(index, value.toLong())
+            is ByteArray -> statement.bindBlob(index, value)
+            else -> statement.bindString(index, value.toString())
+        }
+    }
+
+    override fun close() {
+        statement.close()
+    }
+
+    companion object {
+
+        @JvmStatic
+        fun compile(db: SupportSQLiteDatabase, table: String, columns: Array<String>): BulkInsert {
+            val sql = "INSERT INTO `$table` (${columns.joinToString(", ") { "`$it`" }}) " +
+                    "VALUES (${columns.joinToString(", ") { "?" }})"
+            return BulkInsert(db.compileStatement(sql), columns)
+        }
+    }
+}
@@ -2,19 +2,43 @@ package com.gaiagps.iburn.database;
 
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
 
 import static com.gaiagps.iburn.database.Camp.TABLE_NAME;
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
+import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
 
 /**
  * Created by dbro on 6/8/17.
  */
 
-@Entity(tableName = TABLE_NAME)
-public class Camp extends PlayaItem {
+@Entity(tableName = TABLE_NAME,
+        indices = {
+                @Index(NAME),
+                @Index(PLAYA_ID),
+                @Index(FAVORITE),
+                @Index({LATITUDE, LONGITUDE})
+        })
+public class Camp extends CampRow {
     public static final String TABLE_NAME = "camps";
 
     public static final String HOMETOWN = "hometown";
 
+    @ColumnInfo(name = URL)
+    public String url;
+
+    @ColumnInfo(name = CONTACT)
+    public String contact;
+
     @ColumnInfo(name = HOMETOWN)
     public String hometown;
-}
\ No newline at end of file
+
+    @ColumnInfo(name = CONTENT_HASH)
+    public long contentHash;
+}
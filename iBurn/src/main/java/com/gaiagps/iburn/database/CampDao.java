@@ -3,47 +3,65 @@ package com.gaiagps.iburn.database;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
-import android.arch.persistence.room.Update;
 
 import java.util.List;
 
-import io.reactivex.Flowable;
-
 import static com.gaiagps.iburn.database.Camp.TABLE_NAME;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
 import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
 import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
 import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
 import static com.gaiagps.iburn.database.PlayaItem.NAME;
 import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.ROW_COLUMNS;
 
 /**
+ * Lists load {@link CampRow}s with {@link #SELECT_ROWS}. Use {@link #findById(int)} or
+ * {@link #findByPlayaId(String)} for a complete {@link Camp}.
+ * <p>
  * Created by dbro on 6/8/17.
  */
-
 @Dao
 public interface CampDao {
 
-    @Query("SELECT * FROM " + TABLE_NAME + " ORDER BY " + NAME)
-    Flowable<List<Camp>> getAll();
+    String SELECT_ROWS = "SELECT " + ROW_COLUMNS + " FROM " + TABLE_NAME;
+
+    // Queries are constants so QueryPlanTest can check the SQL Room compiles
+    String GET_ALL = SELECT_ROWS + " ORDER BY " + NAME;
+    String FIND_BY_ID = "SELECT * FROM " + TABLE_NAME + " WHERE " + ID + " = :id";
+    String FIND_BY_IDS = SELECT_ROWS + " WHERE " + ID + " IN (:ids)";
+    String GET_FAVORITES = SELECT_ROWS + " WHERE " + FAVORITE + " = 1";
+    String FIND_BY_PLAYA_ID = "SELECT * FROM " + TABLE_NAME + " WHERE " + PLAYA_ID + " = :playaId";
+    String FIND_IN_REGION = SELECT_ROWS + " WHERE (" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE +
+            " BETWEEN :minLon AND :maxLon)";
+    String FIND_IN_REGION_OR_FAVORITE = SELECT_ROWS + " WHERE " + FAVORITE + " = 1 OR ((" + LATITUDE +
+            " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon))";
+    String SET_FAVORITE = "UPDATE " + TABLE_NAME + " SET " + FAVORITE + " = :isFavorite WHERE " + ID + " = :id";
+
+    @Query(GET_ALL)
+    List<CampRow> getAll();
+
+    @Query(FIND_BY_ID)
+    Camp findById(int id);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1")
-    Flowable<List<Camp>> getFavorites();
+    @Query(FIND_BY_IDS)
+    List<CampRow> findByIds(List<Integer> ids);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + NAME + " LIKE :name")
-    Flowable<List<Camp>> findByName(String name);
+    @Query(GET_FAVORITES)
+    List<CampRow> getFavorites();
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + PLAYA_ID + " = :playaId")
-    Flowable<Camp> findByPlayaId(String playaId);
+    @Query(FIND_BY_PLAYA_ID)
+    Camp findByPlayaId(String playaId);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE (" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon)")
-    Flowable<List<Camp>> findInRegion(float maxLat, float minLat, float maxLon, float minLon);
+    @Query(FIND_IN_REGION)
+    List<CampRow> findInRegion(float maxLat, float minLat, float maxLon, float minLon);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1 OR ((" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon))")
-    Flowable<List<Camp>> findInRegionOrFavorite(float maxLat, float minLat, float maxLon, float minLon);
+    @Query(FIND_IN_REGION_OR_FAVORITE)
+    List<CampRow> findInRegionOrFavorite(float maxLat, float minLat, float maxLon, float minLon);
 
     @Insert
     void insert(Camp... camps);
 
-    @Update
-    void update(Camp... camps);
-}
\ No newline at end of file
+    @Query(SET_FAVORITE)
+    void setFavorite(int id, boolean isFavorite);
+}
@@ -0,0 +1,8 @@
+package com.gaiagps.iburn.database;
+
+/**
+ * The columns of a {@link Camp} a list row renders, as loaded by {@link CampDao#SELECT_ROWS}.
+ * Use {@link CampDao#findById(int)} for the complete {@link Camp}.
+ */
+public class CampRow extends PlayaItem {
+}
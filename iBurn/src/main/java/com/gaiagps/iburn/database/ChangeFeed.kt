@@ -0,0 +1,139 @@
+package com.gaiagps.iburn.database
+
+import io.reactivex.Flowable
+import io.reactivex.processors.PublishProcessor
+import io.reactivex.schedulers.Schedulers
+
+/**
+ * A change to [table]. If [rowId] is [ALL_ROWS] any row may have changed. Otherwise only [columns]
+ * of the row with id [rowId] changed, and [values] holds their new values.
+ */
+data class RowChange(val table: String,
+                     val rowId: Int,
+                     val columns: Set<String> = emptySet(),
+                     val values: Map<String, Any?> = emptyMap()) {
+
+    val isBulk: Boolean
+        get() = rowId == ALL_ROWS
+
+    companion object {
+        const val ALL_ROWS = -1
+
+        fun bulk(table: String) = RowChange(table, ALL_ROWS)
+
+        fun favorite(table: String, rowId: Int, isFavorite: Boolean) =
+                RowChange(table, rowId, setOf(PlayaItem.FAVORITE), mapOf(PlayaItem.FAVORITE to isFavorite))
+    }
+}
+
+/**
+ * Publishes [RowChange]s made through [DataProvider], so observers can patch lists they already hold
+ * rather than re-running their query whenever any row of a table changes, as Room's table-level
+ * invalidation would.
+ *
+ * Lists of art, camps and events are observed only through here. Room's InvalidationTracker only
+ * watches tables a Room Flowable observes, so their favorite UPDATEs don't re-run any other query.
+ */
+class ChangeFeed {
+
+    private val changes = PublishProcessor.create<RowChange>().toSerialized()
+
+    fun publish(change: RowChange) {
+        changes.onNext(change)
+    }
+
+    fun observe(tables: Collection<String>): Flowable<RowChange> {
+        return changes.filter { it.table in tables }.onBackpressureBuffer()
+    }
+
+    /**
+     * Observe the list returned by [load], reloading it on bulk changes to any of [tables].
+     * Favorite changes to rows of [tables] are applied to the current list: matching items are updated,
+     * and if [favoritesOnly], loaded with [loadRows] and added if they pass [accept], or removed.
+     * Changes that don't affect the list emit nothing.
+     *
+     * @param tables every table [load] reads. Row changes are matched by [PlayaItem.id], so
+     * only one table should publish row changes for a given list
+     */
+    fun <T : PlayaItem> observeList(tables: Collection<String>,
+                                    load: () -> List<T>,
+                                    favoritesOnly: Boolean = false,
+                                    loadRows: (List<Int>) -> List<T> = { emptyList() },
+                                    accept: (T) -> Boolean = { true }): Flowable<List<T>> {
+        return Flowable.defer<List<T>> {
+            val list = PatchedList(favoritesOnly, loadRows, accept)
+            observe(tables)
+                    .startWith(RowChange.bulk(tables.first()))
+                    .observeOn(Schedulers.io())
+                    .map { change -> if (change.isBulk) list.reset(load()) else list.patchFavorite(change) }
+                    .distinctUntilChanged { previous, next -> previous === next }
+        }
+    }
+
+    /**
+     * The current list of one [observeList] subscription, with the index of each row by id, so a
+     * favorite change finds its row without scanning the list.
+     *
+     * Emitted lists, and their items, are read by subscribers on other threads, so are never modified.
+     * A change emits a new list, holding a copy of the changed item
+     */
+    private class PatchedList<T : PlayaItem>(private val favoritesOnly: Boolean,
+                                             private val loadRows: (List<Int>) -> List<T>,
+                                             private val accept: (T) -> Boolean) {
+
+        private var rows: List<T> = emptyList()
+        private val indexById = HashMap<Int, Int>()
+
+        fun reset(rows: List<T>): List<T> {
+            this.rows = rows
+            indexById.clear()
+            rows.forEachIndexed { index, row -> indexById[row.id] = index }
+            return rows
+        }
+
+        /**
+         * @return the list with [change] applied, or the current list if it isn't affected
+         */
+        fun patchFavorite(change: RowChange): List<T> {
+            val isFavorite = change.values[PlayaItem.FAVORITE] as? Boolean ?: return rows
+            val index = indexById[change.rowId]
+
+            if (index == null) {
+                return if (favoritesOnly && isFavorite) add(change.rowId) else rows
+            }
+            if (favoritesOnly && !isFavorite) return remove(index)
+
+            // Subscribers flip isFavorite on their own item when toggling, so it may already match.
+            // Emit the copy regardless, so they still see a change
+            @Suppress("UNCHECKED_CAST")
+            val row = rows[index].copy() as T
+            row.isFavorite = isFavorite
+            val patched = ArrayList(rows)
+            patched[index] = row
+            rows = patched
+            return patched
+        }
+
+        private fun add(id: Int): List<T> {
+            val added = loadRows(listOf(id)).filter(accept)
+            if (added.isEmpty()) return rows
+
+            added.forEachIndexed { i, row -> indexById[row.id] = rows.size + i }
+            rows += added
+            return rows
+        }
+
+        private fun remove(index: Int): List<T> {
+            val patched = ArrayList<T>(rows.size - 1)
+            patched.addAll(rows.subList(0, index))
+            patched.addAll(rows.subList(index + 1, rows.size))
+
+            indexById.remove(rows[index].id)
+            for (i in index until patched.size) {
+                indexById[patched[i].id] = i
+            }
+            rows = patched
+            return patched
+        }
+    }
+}
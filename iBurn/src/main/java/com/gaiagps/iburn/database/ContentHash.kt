@@ -0,0 +1,42 @@
+package com.gaiagps.iburn.database
+
+import android.content.ContentValues
+
+/**
+ * A 64-bit FNV-1a hash of the API data bound for a row, stored in [PlayaItem.CONTENT_HASH] so
+ * updates can skip rows that haven't changed. 0 is reserved for "unknown".
+ */
+object ContentHash {
+
+    private const val OFFSET_BASIS = -0x340d631b7bdddcdbL
+    private const val PRIME = 0x100000001b3L
+
+    /**
+     * @param dependents rows stored alongside [values] (e.g: an event's occurrences), in feed order
+     */
+    fun of(values: ContentValues, dependents: List<ContentValues> = emptyList()): Long {
+        var hash = hash(OFFSET_BASIS, values)
+        for (dependent in dependents) {
+            hash = hash(hash, dependent)
+        }
+        return if (hash == 0L) 1L else hash
+    }
+
+    private fun hash(seed: Long, values: ContentValues): Long {
+        var hash = seed
+        // Internal columns are excluded, so a favorite toggle doesn't look like an API change
+        for (key in values.keySet().filter { it != PlayaItem.FAVORITE && it != PlayaItem.CONTENT_HASH }.sorted()) {
+            hash = hash(hash, key)
+            hash = hash(hash, values.get(key)?.toString() ?: "\u0000")
+        }
+        return hash(hash, "\u0001")
+    }
+
+    private fun hash(seed: Long, string: String): Long {
+        var hash = seed
+        for (char in string) {
+            hash = (hash xor char.toLong()) * PRIME
+        }
+        return (hash xor 0x1f) * PRIME
+    }
+}
@@ -1,20 +1,22 @@
 package com.gaiagps.iburn.database
 
+import android.arch.persistence.db.SupportSQLiteDatabase
 import android.content.ContentValues
 import android.content.Context
+import android.database.sqlite.SQLiteDatabase
 import com.gaiagps.iburn.AudioTourManager
 import com.gaiagps.iburn.CurrentDateProvider
 import com.gaiagps.iburn.PrefsHelper
-import com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter
-import com.gaiagps.iburn.view.Utils
-import com.gaiagps.iburn.DateUtil
-import com.mapbox.mapboxsdk.geometry.VisibleRegion
+import com.gaiagps.iburn.adapters.AdapterUtils
 import io.reactivex.Flowable
+import io.reactivex.Maybe
 import io.reactivex.Observable
+import io.reactivex.Single
 import io.reactivex.rxkotlin.Flowables
 import io.reactivex.schedulers.Schedulers
 import timber.log.Timber
 import java.util.*
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
 /**
@@ -28,30 +30,247 @@ import java.util.concurrent.atomic.AtomicBoolean
  */
 class DataProvider private constructor(private val context: Context, private val db: AppDatabase, private val interceptor: DataProvider.QueryInterceptor?) {
 
-    private val apiDateFormat = PlayaDateTypeAdapter.buildIso8601Format()
-
     interface QueryInterceptor {
         fun onQueryIntercepted(query: String, tables: Iterable<String>): String
     }
 
     private val upgradeLock = AtomicBoolean(false)
 
+    /**
+     * Changes made through this provider. Lists observed via [ChangeFeed.observeList] reload on bulk changes
+     * and patch favorite changes, rather than re-running their query on every write as Room's Flowables do.
+     * DAOs return no Flowables of art, camps or events, which would have Room re-run them on every favorite
+     */
+    private val changeFeed = ChangeFeed()
+
+    /**
+     * Tables changed within the current transaction, published when it ends
+     */
+    private val pendingChanges = HashSet<String>()
+
+    /**
+     * Shadow tables fully built by [commitShadowTables], awaiting [swapShadowTables]
+     */
+    private val completedShadows = LinkedHashSet<String>()
+
+    /**
+     * Compiled inserts into shadow tables, by shadow table name. Used only by the updating thread
+     */
+    private val shadowInserts = HashMap<String, BulkInsert>()
+
+    /**
+     * Begin a data upgrade. Until [endUpgrade], shadow tables committed with [commitShadowTables]
+     * are held back, and change notifications are deferred
+     */
     fun beginUpgrade() {
         upgradeLock.set(true)
     }
 
+    /**
+     * Swap in every committed shadow table within a single transaction, then notify observers
+     * of all changed tables at once
+     */
     fun endUpgrade() {
+        val tables = synchronized(completedShadows) {
+            val tables = completedShadows.toList()
+            completedShadows.clear()
+            tables
+        }
+        if (tables.isNotEmpty()) swapShadowTables(tables)
+
         upgradeLock.set(false)
+        publishPendingChanges()
+    }
 
-        // TODO : Trigger Room observers
-        // Trigger all SqlBrite observers via reflection (uses private method)
-        //        try {
-        //            Method method = db.getClass().getDeclaredMethod("sendTableTrigger", Set.class);
-        //            method.setAccessible(true);
-        //            method.invoke(db, new HashSet<>(PlayaDatabase.ALL_TABLES));
-        //        } catch (SecurityException | NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-        //            Timber.w(e, "Failed to notify observers on endUpgrade");
-        //        }
+    /**
+     * Create empty shadow copies of [table], and of the tables stored alongside it, to be filled
+     * via [insertShadow] without touching the live tables readers observe.
+     * Replaces any shadow left over from an interrupted update
+     */
+    fun beginShadowTables(table: String) {
+        closeShadowInserts(table)
+        val database = db.openHelper.writableDatabase
+        for (liveTable in tablesStoredWith(table)) {
+            val shadow = shadowOf(liveTable)
+            database.execSQL("DROP TABLE IF EXISTS `$shadow`")
+
+            val createSql = database.query("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+                    arrayOf(liveTable)).use { cursor ->
+                if (!cursor.moveToFirst()) throw IllegalStateException("No table $liveTable")
+                cursor.getString(0)
+            }
+            database.execSQL(createSql.replaceFirst(createTableRegex(liveTable), "CREATE TABLE `$shadow`"))
+        }
+    }
+
+    /**
+     * Insert a row into the shadow of [table] created by [beginShadowTables].
+     * For events, [dependents] are its occurrences, inserted into the shadow of [EventOccurrence.TABLE_NAME].
+     * Rows are inserted as non-favorites. Favorites are carried over from the live tables when they're swapped
+     *
+     * @return the row id of the new row
+     */
+    @JvmOverloads
+    fun insertShadow(table: String, values: ContentValues, dependents: List<ContentValues> = emptyList()): Long {
+        // Events carry no favorite state. Their occurrences do
+        if (table != Event.TABLE_NAME) values.put(PlayaItem.FAVORITE, false)
+        val rowId = insertShadowRow(shadowOf(table), values)
+        if (rowId == -1L) return rowId
+
+        for (dependent in dependents) {
+            dependent.put(EventOccurrence.EVENT_ID, rowId)
+            dependent.put(PlayaItem.FAVORITE, false)
+            insertShadowRow(shadowOf(EventOccurrence.TABLE_NAME), dependent)
+        }
+        return rowId
+    }
+
+    /**
+     * Insert through a [BulkInsert] compiled for the columns of [values], reused while rows keep the same columns
+     */
+    private fun insertShadowRow(shadow: String, values: ContentValues): Long {
+        var insert = shadowInserts[shadow]
+        if (insert == null || !insert.matches(values)) {
+            insert?.close()
+            insert = BulkInsert.compile(db.openHelper.writableDatabase, shadow, values.keySet().toTypedArray())
+            shadowInserts[shadow] = insert
+        }
+        return insert.insert(values)
+    }
+
+    private fun closeShadowInserts(table: String) {
+        tablesStoredWith(table).forEach { shadowInserts.remove(shadowOf(it))?.close() }
+    }
+
+    /**
+     * Drop the shadows of [table] after a failed update
+     */
+    fun abortShadowTables(table: String) {
+        closeShadowInserts(table)
+        val database = db.openHelper.writableDatabase
+        tablesStoredWith(table).forEach { database.execSQL("DROP TABLE IF EXISTS `${shadowOf(it)}`") }
+    }
+
+    /**
+     * Mark the shadow of [table] complete. It's swapped in at [endUpgrade], or now if no upgrade is in progress
+     */
+    fun commitShadowTables(table: String) {
+        closeShadowInserts(table)
+        if (upgradeLock.get()) {
+            synchronized(completedShadows) { completedShadows.add(table) }
+        } else {
+            swapShadowTables(listOf(table))
+            publishPendingChanges()
+        }
+    }
+
+    /**
+     * Replace each of [tables] with its shadow in one transaction, carrying over favorites made up to that moment.
+     *
+     * The live table is dropped and its shadow renamed in its place, so rows are written once, when the shadow
+     * is filled, rather than copied again. Observers are notified through [markChanged], not Room's
+     * InvalidationTracker, so losing the triggers Room installed on the dropped table stops nothing.
+     * Dropping the table drops its indices too; they're created again from the statements Room made them with,
+     * keeping their names. Row ids are those of the new feed, so anything kept across updates refers to rows
+     * by playa id, as favorites do.
+     * Only the [SearchIndex] entries of rows that changed are rewritten.
+     * Readers aren't blocked, as Room opens the database in WAL mode, but writes such as favorites wait
+     */
+    private fun swapShadowTables(tables: List<String>) {
+        val startMs = System.currentTimeMillis()
+        val database = db.openHelper.writableDatabase
+        db.runInTransaction(Runnable {
+            for (table in tables) {
+                val tableStartMs = System.currentTimeMillis()
+                carryOverFavorites(database, table)
+                val changedIds = changedIndexedRows(database, table)
+
+                val renameStartMs = System.currentTimeMillis()
+                for (liveTable in tablesStoredWith(table)) {
+                    val indexSql = database.query("SELECT sql FROM sqlite_master " +
+                            "WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL", arrayOf(liveTable)).use { cursor ->
+                        val sql = ArrayList<String>(cursor.count)
+                        while (cursor.moveToNext()) sql.add(cursor.getString(0))
+                        sql
+                    }
+                    database.execSQL("DROP TABLE `$liveTable`")
+                    database.execSQL("ALTER TABLE `${shadowOf(liveTable)}` RENAME TO `$liveTable`")
+                    indexSql.forEach { database.execSQL(it) }
+                    markChanged(liveTable)
+                }
+
+                val indexStartMs = System.currentTimeMillis()
+                if (changedIds == null) rebuildIndices(table) else updateIndices(table, changedIds)
+                Timber.d("Swapped in %s: favorites and diff %d ms, rename and indices %d ms, %s index rows %d ms", table,
+                        renameStartMs - tableStartMs, indexStartMs - renameStartMs, changedIds?.size ?: "all",
+                        System.currentTimeMillis() - indexStartMs)
+            }
+        })
+        Timber.d("Swapped in %s holding the write lock %d ms", tables, System.currentTimeMillis() - startMs)
+    }
+
+    /**
+     * @return ids of the rows of [table] added, removed, or with [INDEXED_COLUMNS] changed in its shadow,
+     * or null if that's over half of them, when rebuilding every index entry is as cheap
+     */
+    private fun changedIndexedRows(database: SupportSQLiteDatabase, table: String): List<Int>? {
+        val id = PlayaItem.ID
+        val shadow = shadowOf(table)
+        val differs = INDEXED_COLUMNS.joinToString(" OR ") { "l.`$it` IS NOT s.`$it`" }
+
+        val ids = ArrayList<Int>()
+        database.query("SELECT s.`$id` FROM `$shadow` s LEFT JOIN `$table` l ON l.`$id` = s.`$id` " +
+                "WHERE l.`$id` IS NULL OR $differs " +
+                "UNION ALL SELECT `$id` FROM `$table` WHERE `$id` NOT IN (SELECT `$id` FROM `$shadow`)").use { cursor ->
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0))
+            }
+        }
+
+        val rows = database.query("SELECT COUNT(*) FROM `$shadow`").use { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+        return if (ids.size > rows / 2) null else ids
+    }
+
+    /**
+     * Mark favorite the rows in the shadow of [table] whose live counterparts are favorites: camps and art
+     * by playa id, and event occurrences by their event's playa id and start time.
+     *
+     * The favorites' keys are copied into a temp table keyed on them, so the shadow is matched in a
+     * single UPDATE doing one indexed lookup per row
+     */
+    private fun carryOverFavorites(database: SupportSQLiteDatabase, table: String) {
+        val id = PlayaItem.ID
+        val playaId = PlayaItem.PLAYA_ID
+        val favorite = PlayaItem.FAVORITE
+        database.execSQL("DROP TABLE IF EXISTS temp.`$FAVORITE_KEYS_TABLE`")
+
+        if (table == Event.TABLE_NAME) {
+            val occurrences = EventOccurrence.TABLE_NAME
+            val shadowOccurrences = shadowOf(occurrences)
+            val eventId = EventOccurrence.EVENT_ID
+            val startTime = Event.START_TIME
+            database.execSQL("CREATE TEMP TABLE `$FAVORITE_KEYS_TABLE` " +
+                    "(`$playaId` TEXT NOT NULL, `$startTime` INTEGER NOT NULL, PRIMARY KEY (`$playaId`, `$startTime`))")
+            database.execSQL("INSERT OR IGNORE INTO temp.`$FAVORITE_KEYS_TABLE` " +
+                    "SELECT e.`$playaId`, o.`$startTime` FROM `$occurrences` o " +
+                    "JOIN `${Event.TABLE_NAME}` e ON e.`$id` = o.`$eventId` " +
+                    "WHERE o.`$favorite` = 1 AND e.`$playaId` IS NOT NULL")
+            database.execSQL("UPDATE `$shadowOccurrences` SET `$favorite` = 1 WHERE EXISTS (" +
+                    "SELECT 1 FROM `${shadowOf(Event.TABLE_NAME)}` e, temp.`$FAVORITE_KEYS_TABLE` f " +
+                    "WHERE e.`$id` = `$shadowOccurrences`.`$eventId` AND f.`$playaId` = e.`$playaId` " +
+                    "AND f.`$startTime` = `$shadowOccurrences`.`$startTime`)")
+        } else {
+            database.execSQL("CREATE TEMP TABLE `$FAVORITE_KEYS_TABLE` (`$playaId` TEXT NOT NULL PRIMARY KEY)")
+            database.execSQL("INSERT OR IGNORE INTO temp.`$FAVORITE_KEYS_TABLE` " +
+                    "SELECT `$playaId` FROM `$table` WHERE `$favorite` = 1 AND `$playaId` IS NOT NULL")
+            database.execSQL("UPDATE `${shadowOf(table)}` SET `$favorite` = 1 " +
+                    "WHERE `$playaId` IN (SELECT `$playaId` FROM temp.`$FAVORITE_KEYS_TABLE`)")
+        }
+
+        database.execSQL("DROP TABLE temp.`$FAVORITE_KEYS_TABLE`")
     }
 
     fun deleteCamps(): Int {
@@ -59,28 +278,53 @@ class DataProvider private constructor(private val context: Context, private val
     }
 
     private fun clearTable(tablename: String): Int {
+        markChanged(tablename)
         return db.openHelper.writableDatabase.delete(tablename, null, null)
     }
 
-    fun observeCamps(): Flowable<List<Camp>> {
-        return db.campDao().all
+    /**
+     * Publish a bulk change to [table], or defer it until the current transaction or upgrade ends
+     */
+    private fun markChanged(table: String) {
+        if (db.inTransaction() || upgradeLock.get()) {
+            synchronized(pendingChanges) { pendingChanges.add(table) }
+        } else {
+            changeFeed.publish(RowChange.bulk(table))
+        }
+    }
+
+    private fun publishPendingChanges() {
+        val tables = synchronized(pendingChanges) {
+            val tables = pendingChanges.toList()
+            pendingChanges.clear()
+            tables
+        }
+        tables.forEach { changeFeed.publish(RowChange.bulk(it)) }
+    }
+
+    fun observeCamps(): Flowable<List<CampRow>> {
+        return changeFeed.observeList(CAMP_TABLES, { db.campDao().all })
     }
 
-    fun observeCampFavorites(): Flowable<List<Camp>> {
+    fun observeCampFavorites(): Flowable<List<CampRow>> {
 
         // TODO : Honor upgradeLock?
-        return db.campDao().favorites
+        return changeFeed.observeList(CAMP_TABLES, { db.campDao().favorites },
+                favoritesOnly = true, loadRows = { db.campDao().findByIds(it) })
     }
 
-    fun observeCampsByName(query: String): Flowable<List<Camp>> {
+    fun observeCampsByName(query: String): Flowable<List<CampRow>> {
 
         // TODO : Honor upgradeLock
-        val wildQuery = addWildcardsToQuery(query)
-        return db.campDao().findByName(wildQuery)
+        // Prefix matches name tokens through SearchIndex, where a '%query%' LIKE would scan every camp
+        return Flowable.fromCallable {
+            loadInOrder(SearchIndex.searchNames(db, query, Camp.TABLE_NAME)) { db.campDao().findByIds(it) }
+        }
     }
 
-    fun observeCampByPlayaId(playaId: String): Flowable<Camp> {
-        return db.campDao().findByPlayaId(playaId)
+    fun getCampByPlayaId(playaId: String): Maybe<Camp> {
+        return Maybe.fromCallable<Camp> { db.campDao().findByPlayaId(playaId) }
+                .subscribeOn(Schedulers.io())
     }
 
     fun beginTransaction() {
@@ -104,10 +348,124 @@ class DataProvider private constructor(private val context: Context, private val
 
         // TODO: Don't allow this call to proceed without prior call to beginTransaction
         db.endTransaction()
+
+        if (!db.inTransaction() && !upgradeLock.get()) {
+            // Publish even if rolled back. Observers will reload unchanged data
+            publishPendingChanges()
+        }
+    }
+
+    /**
+     * @return the row id of the new row
+     */
+    fun insert(table: String, values: ContentValues): Long {
+        markChanged(table)
+        return db.openHelper.writableDatabase.insert(table, 0, values) // TODO : wtf is the int here?
+    }
+
+    /**
+     * @return the [RowVersion] of every row in [table]
+     */
+    fun getRowVersions(table: String): List<RowVersion> {
+        val versions = ArrayList<RowVersion>()
+        db.query("SELECT ${PlayaItem.ID}, ${PlayaItem.PLAYA_ID}, ${PlayaItem.CONTENT_HASH} FROM $table", null).use { cursor ->
+            while (cursor.moveToNext()) {
+                versions.add(RowVersion(cursor.getInt(0), cursor.getString(1), cursor.getLong(2)))
+            }
+        }
+        return versions
+    }
+
+    /**
+     * @return the stored locations of the rows of [table], a camp or art table, for events to inherit
+     */
+    fun getStoredLocations(table: String): List<StoredLocation> {
+        val locations = ArrayList<StoredLocation>()
+        db.query("SELECT ${PlayaItem.PLAYA_ID}, ${PlayaItem.LATITUDE}, ${PlayaItem.LONGITUDE}, ${PlayaItem.PLAYA_ADDR}, " +
+                "${PlayaItem.LATITUDE_UNOFFICIAL}, ${PlayaItem.LONGITUDE_UNOFFICIAL}, ${PlayaItem.PLAYA_ADDR_UNOFFICIAL} " +
+                "FROM $table WHERE ${PlayaItem.PLAYA_ID} IS NOT NULL", null).use { cursor ->
+            while (cursor.moveToNext()) {
+                locations.add(StoredLocation(cursor.getString(0),
+                        cursor.getDouble(1), cursor.getDouble(2), cursor.getString(3),
+                        cursor.getDouble(4), cursor.getDouble(5), cursor.getString(6)))
+            }
+        }
+        return locations
     }
 
-    fun insert(table: String, values: ContentValues) {
-        db.openHelper.writableDatabase.insert(table, 0, values) // TODO : wtf is the int here?
+    /**
+     * Write API data for a single row of [table], leaving its favorite state untouched.
+     * For events, [dependents] are its occurrences. They're matched to existing occurrences by start time,
+     * so favorite occurrences stay favorites
+     *
+     * @param id the row to update, or null to insert a new row
+     * @return the row id
+     */
+    fun upsert(table: String, id: Int?, values: ContentValues, dependents: List<ContentValues>): Long {
+        markChanged(table)
+        val database = db.openHelper.writableDatabase
+        val rowId = if (id == null) {
+            values.put(PlayaItem.FAVORITE, false)
+            database.insert(table, SQLiteDatabase.CONFLICT_NONE, values)
+        } else {
+            values.remove(PlayaItem.FAVORITE)
+            database.update(table, SQLiteDatabase.CONFLICT_NONE, values, "${PlayaItem.ID} = ?", arrayOf(id))
+            id.toLong()
+        }
+
+        if (table == Event.TABLE_NAME && rowId != -1L) {
+            replaceOccurrences(rowId, dependents)
+        }
+        return rowId
+    }
+
+    private fun replaceOccurrences(eventId: Long, occurrences: List<ContentValues>) {
+        markChanged(EventOccurrence.TABLE_NAME)
+        val database = db.openHelper.writableDatabase
+        val table = EventOccurrence.TABLE_NAME
+
+        // Occurrence ids by start time
+        val existing = HashMap<Long, Long>()
+        database.query("SELECT ${PlayaItem.ID}, ${Event.START_TIME} FROM $table WHERE ${EventOccurrence.EVENT_ID} = ?",
+                arrayOf(eventId)).use { cursor ->
+            while (cursor.moveToNext()) {
+                existing[cursor.getLong(1)] = cursor.getLong(0)
+            }
+        }
+
+        for (occurrence in occurrences) {
+            occurrence.put(EventOccurrence.EVENT_ID, eventId)
+            val occurrenceId = existing.remove(occurrence.getAsLong(Event.START_TIME))
+            if (occurrenceId != null) {
+                occurrence.remove(PlayaItem.FAVORITE)
+                database.update(table, SQLiteDatabase.CONFLICT_NONE, occurrence, "${PlayaItem.ID} = ?", arrayOf(occurrenceId))
+            } else {
+                occurrence.put(PlayaItem.FAVORITE, false)
+                database.insert(table, SQLiteDatabase.CONFLICT_NONE, occurrence)
+            }
+        }
+
+        for (occurrenceId in existing.values) {
+            database.delete(table, "${PlayaItem.ID} = ?", arrayOf(occurrenceId))
+        }
+    }
+
+    /**
+     * Delete rows of [table] by id, along with any rows stored alongside them
+     */
+    fun deleteRows(table: String, ids: Collection<Int>) {
+        if (ids.isEmpty()) return
+        markChanged(table)
+        val database = db.openHelper.writableDatabase
+        ids.chunked(MAX_QUERY_ARGS).forEach { chunk ->
+            val placeholders = chunk.joinToString(", ") { "?" }
+            val args = chunk.toTypedArray<Any>()
+            if (table == Event.TABLE_NAME) {
+                markChanged(EventOccurrence.TABLE_NAME)
+                database.delete(EventOccurrence.TABLE_NAME, "${EventOccurrence.EVENT_ID} IN ($placeholders)", args)
+            }
+            database.delete(table, "${PlayaItem.ID} IN ($placeholders)", args)
+        }
     }
 
     fun delete(table: String): Int {
@@ -121,7 +479,9 @@ class DataProvider private constructor(private val context: Context, private val
     }
 
     fun deleteEvents(): Int {
-        return clearTable(Event.TABLE_NAME)
+        val occurrences = clearTable(EventOccurrence.TABLE_NAME)
+        clearTable(Event.TABLE_NAME)
+        return occurrences
 
         //        return db.getOpenHelper().getWritableDatabase().delete(Event.TABLE_NAME, "*", null);
         //        Cursor result = db.query("DELETE FROM event; VACUUM", null);
@@ -131,73 +491,57 @@ class DataProvider private constructor(private val context: Context, private val
     fun observeEventsOnDayOfTypes(day: String,
                                   types: ArrayList<String>?,
                                   includeExpired: Boolean,
-                                  eventTiming: String): Flowable<List<Event>> {
+                                  eventTiming: String): Flowable<List<EventRow>> {
 
         // TODO : Honor upgradeLock?
-        val wildDay = addWildcardsToQuery(day)
-        val nowDate = CurrentDateProvider.getCurrentDate()
-        val now = Utils.convertDateToString(nowDate)
-        val allDayStart = Utils.convertDateToString(
-                DateUtil.getAllDayStartDateTime(day))
-        val allDayEnd = Utils.convertDateToString(
-                DateUtil.getAllDayEndDateTime(day))
-
-        if (types == null || types.isEmpty()) {
-            if(eventTiming=="timed"){
-                if(includeExpired == true) {
-                    return db.eventDao().findByDayTimed(wildDay,
-                            allDayStart,allDayEnd)
-                }
-                else{
-                    return db.eventDao().findByDayNoExpiredTimed(wildDay, now,
-                            allDayStart,allDayEnd)
-                }
-            }
-            else{
-                return db.eventDao().findByDayAllDay(wildDay,allDayStart,
-                        allDayEnd)
-            }
-        } else {
-            if(eventTiming=="timed"){
-                if(includeExpired == true) {
-                    return db.eventDao().findByDayAndTypeTimed(wildDay,types,
-                            allDayStart,allDayEnd)
+        val playaDay = AdapterUtils.sDayAbbreviations.indexOf(day)
+        val now = CurrentDateProvider.getCurrentDate().time
+        val allDay = eventTiming != "timed"
+        // Expired events are only filtered from timed events
+        val includeExpiredOrAllDay = includeExpired || allDay
+
+        return changeFeed.observeList(EVENT_TABLES, {
+            if (types == null || types.isEmpty()) {
+                if (includeExpiredOrAllDay) {
+                    db.eventDao().findByDay(playaDay, allDay)
+                } else {
+                    db.eventDao().findByDayNoExpired(playaDay, allDay, now)
                 }
-                else{
-                    return db.eventDao().findByDayAndTypeNoExpiredTimed(wildDay,
-                            types,now,
-                            allDayStart,allDayEnd)
+            } else {
+                if (includeExpiredOrAllDay) {
+                    db.eventDao().findByDayAndType(playaDay, allDay, types)
+                } else {
+                    db.eventDao().findByDayAndTypeNoExpired(playaDay, allDay, types, now)
                 }
             }
-            else{
-                return db.eventDao().findByDayAndTypeAllDay(wildDay,types,
-                        allDayStart,
-                        allDayEnd)
-            }
-        }
+        })
     }
 
-    fun observeEventsHostedByCamp(camp: Camp): Flowable<List<Event>> {
-        return db.eventDao().findByCampPlayaId(camp.playaId)
+    fun observeEventsHostedByCamp(camp: CampRow): Flowable<List<EventRow>> {
+        return changeFeed.observeList(EVENT_TABLES, { db.eventDao().findByCampPlayaId(camp.playaId) })
     }
 
-    fun observeOtherOccurrencesOfEvent(event: Event): Flowable<List<Event>> {
-        return db.eventDao().findOtherOccurrences(event.playaId, event.id)
+    fun observeOtherOccurrencesOfEvent(event: EventRow): Flowable<List<EventRow>> {
+        return changeFeed.observeList(EVENT_TABLES, { db.eventDao().findOtherOccurrences(event.eventId, event.id) })
     }
 
-    fun observeEventFavorites(): Flowable<List<Event>> {
+    fun observeEventFavorites(): Flowable<List<EventRow>> {
 
         // TODO : Honor upgradeLock?
-        return db.eventDao().favorites
+        return changeFeed.observeList(EVENT_TABLES, { db.eventDao().favorites },
+                favoritesOnly = true, loadRows = { db.eventDao().findByIds(it) })
     }
 
-    fun observeEventBetweenDates(start: Date, end: Date): Flowable<List<Event>> {
+    private fun observeNonExpiredEventFavorites(now: Long): Flowable<List<EventRow>> {
+        return changeFeed.observeList(EVENT_TABLES, { db.eventDao().getNonExpiredFavorites(now) },
+                favoritesOnly = true, loadRows = { db.eventDao().findByIds(it) }, accept = { it.endTime >= now })
+    }
+
+    fun observeEventBetweenDates(start: Date, end: Date): Flowable<List<EventRow>> {
 
-        val startDateStr = apiDateFormat.format(start)
-        val endDateStr = apiDateFormat.format(end)
         // TODO : Honor upgradeLock?
-        Timber.d("Start time between %s and %s", startDateStr, endDateStr)
-        return db.eventDao().findInDateRange(startDateStr, endDateStr)
+        Timber.d("Start time between %s and %s", start, end)
+        return changeFeed.observeList(EVENT_TABLES, { db.eventDao().findInDateRange(start.time, end.time) })
     }
 
     fun deleteArt(): Int {
@@ -207,22 +551,25 @@ class DataProvider private constructor(private val context: Context, private val
         //        if (result != null) result.close();
     }
 
-    fun observeArt(): Flowable<List<Art>> {
+    fun observeArt(): Flowable<List<ArtRow>> {
 
         // TODO : Honor upgradeLock?
-        return db.artDao().all
+        return changeFeed.observeList(ART_TABLES, { db.artDao().all })
     }
 
-    fun observeArtFavorites(): Flowable<List<Art>> {
+    fun observeArtFavorites(): Flowable<List<ArtRow>> {
 
         // TODO : Honor upgradeLock?
-        return db.artDao().favorites
+        return changeFeed.observeList(ART_TABLES, { db.artDao().favorites },
+                favoritesOnly = true, loadRows = { db.artDao().findByIds(it) })
     }
 
-    fun observeArtWithAudioTour(): Flowable<List<Art>> {
+    fun observeArtWithAudioTour(): Flowable<List<ArtRow>> {
 
         // TODO : Honor upgradeLock?
-        return db.artDao().all.map { it.filter { AudioTourManager.hasAudioTour(context, it.playaId) } }
+        return changeFeed.observeList(ART_TABLES, {
+            db.artDao().all.filter { AudioTourManager.hasAudioTour(context, it.playaId) }
+        })
     }
 
     /**
@@ -237,9 +584,9 @@ class DataProvider private constructor(private val context: Context, private val
         // TODO : Honor upgradeLock
         // TODO : Return structure with metadata on how many art, camps, events etc?
         return Flowables.combineLatest(
-                db.artDao().favorites,
-                db.campDao().favorites,
-                db.eventDao().favorites)
+                observeArtFavorites(),
+                observeCampFavorites(),
+                observeEventFavorites())
         { arts, camps, events ->
 
             val sections = ArrayList<IntRange>(3)
@@ -273,99 +620,118 @@ class DataProvider private constructor(private val context: Context, private val
     }
 
     /**
-     * Observe all results for a name query.
-     *
-     *
-     * Note: This query automatically adds in Event.startTime (and 0 values for all non-events),
-     * since we always want to show this data for an event.
+     * Observe all results for a full-text query against item names and descriptions.
+     * Each token of [query] is prefix-matched, and results within each section are ranked by relevance.
      */
     fun observeNameQuery(query: String): Flowable<SectionedPlayaItems> {
 
         // TODO : Honor upgradeLock
-        // TODO : Return structure with metadata on how many art, camps, events etc?
-        val wildQuery = addWildcardsToQuery(query)
-        return Flowables.combineLatest(
-                db.artDao().findByName(wildQuery),
-                db.campDao().findByName(wildQuery),
-                db.eventDao().findByName(wildQuery),
-                db.userPoiDao().findByName(wildQuery))
-        { arts, camps, events, userpois ->
-            val sections = ArrayList<IntRange>(4)
-            val items = ArrayList<PlayaItem>(arts.size + camps.size + events.size)
-
-            var lastRangeEnd = 0
-
-            if (camps.size > 0) {
-                items.addAll(camps)
-                val campRangeEnd = items.size
-                sections.add(IntRange(lastRangeEnd, campRangeEnd))
-                lastRangeEnd = campRangeEnd
-            }
-
-            if (arts.size > 0) {
-                items.addAll(arts)
-                val artRangeEnd = items.size
-                sections.add(IntRange(lastRangeEnd, artRangeEnd))
-                lastRangeEnd = artRangeEnd
-            }
-
-            if (events.size > 0) {
-                items.addAll(events)
-                val eventsRangeEnd = items.size
-                sections.add(IntRange(lastRangeEnd, eventsRangeEnd))
-                lastRangeEnd = eventsRangeEnd
+        // Re-run the search when items are added, removed or edited, as the SearchIndex is updated alongside.
+        // Room can't observe the virtual SearchIndex, and favorite changes don't touch it, so they're ignored
+        return changeFeed.observe(ItemKey.TABLES)
+                .filter { it.isBulk }
+                .debounce(SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS)
+                .startWith(RowChange.bulk(Camp.TABLE_NAME))
+                .observeOn(Schedulers.io())
+                .map { searchItems(query) }
+                .subscribeOn(Schedulers.io())
+    }
+
+    private fun searchItems(query: String): SectionedPlayaItems {
+        val startMs = System.currentTimeMillis()
+        val idsByTable = SearchIndex.search(db, query)
+                .groupBy({ ItemKey.tableOf(it) }, { ItemKey.idOf(it) })
+
+        val camps = loadInOrder(idsByTable[Camp.TABLE_NAME]) { db.campDao().findByIds(it) }
+        val arts = loadInOrder(idsByTable[Art.TABLE_NAME]) { db.artDao().findByIds(it) }
+        // Event keys are EventInfo ids. Show the first occurrence of each event
+        val events = loadInOrder(idsByTable[Event.TABLE_NAME], { it.eventId }) { db.eventDao().findByEventIds(it) }
+                .distinctBy { it.name }
+        val userpois = loadInOrder(idsByTable[UserPoi.TABLE_NAME]) { db.userPoiDao().findByIds(it) }
+
+        val sections = ArrayList<IntRange>(4)
+        val items = ArrayList<PlayaItem>(camps.size + arts.size + events.size + userpois.size)
+
+        var lastRangeEnd = 0
+        for (section in listOf(camps, arts, events, userpois)) {
+            if (section.isNotEmpty()) {
+                items.addAll(section)
+                sections.add(IntRange(lastRangeEnd, items.size))
+                lastRangeEnd = items.size
             }
+        }
 
-            if (userpois.size > 0) {
-                items.addAll(userpois)
-                val userPoiRangeEnd = items.size
-                sections.add(IntRange(lastRangeEnd, userPoiRangeEnd))
-                lastRangeEnd = userPoiRangeEnd
-            }
+        Timber.d("Search '%s' returned %d items in %d ms", query, items.size, System.currentTimeMillis() - startMs)
+        return SectionedPlayaItems(data = items, ranges = sections)
+    }
 
-            SectionedPlayaItems(data = items, ranges = sections)
+    /**
+     * Load items with the given ids, preserving the order of [ids].
+     * If [load] returns several items with the same [idOf], the first is kept
+     */
+    private fun <T : PlayaItem> loadInOrder(ids: List<Int>?,
+                                            idOf: (T) -> Int = { it.id },
+                                            load: (List<Int>) -> List<T>): List<T> {
+        if (ids == null || ids.isEmpty()) return emptyList()
+
+        val itemsById = HashMap<Int, T>(ids.size)
+        ids.chunked(MAX_QUERY_ARGS).forEach { chunk ->
+            load(chunk).forEach { itemsById.getOrPut(idOf(it)) { it } }
         }
+        return ids.mapNotNull { itemsById[it] }
     }
 
     /**
-     * Returns ongoing events in [region], favorites, and user-added markers
+     * Refresh the [SearchIndex] entries for [table].
+     * Call within the transaction that modified [table]
      */
-    fun observeAllMapItemsInVisibleRegion(region: VisibleRegion): Flowable<List<PlayaItem>> {
-        // TODO : Honor upgradeLock
+    fun rebuildIndices(table: String) {
+        markChanged(table)
+        val database = db.openHelper.writableDatabase
+        SearchIndex.rebuild(database, table)
+    }
 
-        // Warning: The following is very ethnocentric to Earth C-137 North-Western ... Quadrasphere(?)
-        val maxLat = region.farRight.latitude.toFloat()
-        val minLat = region.nearRight.latitude.toFloat()
-        val maxLon = region.farRight.longitude.toFloat()
-        val minLon = region.farLeft.longitude.toFloat()
+    /**
+     * Refresh the [SearchIndex] entries for the rows of [table] with [ids], which may
+     * have been inserted, updated or deleted. Call within the transaction that modified them
+     */
+    fun updateIndices(table: String, ids: Collection<Int>) {
+        markChanged(table)
+        val database = db.openHelper.writableDatabase
+        SearchIndex.update(database, table, ids)
+    }
 
-        return Flowables.combineLatest(
-                db.artDao().favorites,
-                db.campDao().favorites,
-                db.eventDao().findInRegionOrFavorite(minLat, maxLat, minLon, maxLon),
-                db.userPoiDao().all)
-        { arts, camps, events, userpois ->
-            val all = ArrayList<PlayaItem>(arts.size + camps.size + events.size + userpois.size)
-            all.addAll(arts)
-            all.addAll(camps)
-            all.addAll(events)
-            all.addAll(userpois)
+    /**
+     * Returns every located camp and art installation, for clustering on the map.
+     * Events are left out, as they're mapped at their hosting camp
+     */
+    fun observeClusterableMapItems(): Flowable<List<PlayaItem>> {
+        return Flowables.combineLatest(observeCamps(), observeArt())
+        { camps, arts ->
+            val all = ArrayList<PlayaItem>(camps.size + arts.size)
+            camps.filterTo(all) { it.hasLocation() }
+            arts.filterTo(all) { it.hasLocation() }
             all
         }
     }
 
     /**
-     * Returns favorites and user-added markers only
+     * Returns favorites and user-added markers only. Favorite events drop out as they end,
+     * checked every [EXPIRY_CHECK_INTERVAL_S]
      */
     fun observeUserAddedMapItemsOnly(): Flowable<List<PlayaItem>> {
         // TODO : Honor upgradeLock
-        val nowDate = CurrentDateProvider.getCurrentDate()
-        val now = Utils.convertDateToString(nowDate)
+        val events = Flowables.combineLatest(
+                observeNonExpiredEventFavorites(CurrentDateProvider.getCurrentDate().time),
+                Flowable.interval(0, EXPIRY_CHECK_INTERVAL_S, TimeUnit.SECONDS)
+                        .map { CurrentDateProvider.getCurrentDate().time })
+        { events, now -> events.filter { it.endTime >= now } }
+                .distinctUntilChanged()
 
         return Flowables.combineLatest(
-                db.artDao().favorites,
-                db.campDao().favorites,
-                db.eventDao().getNonExpiredFavorites(now),
+                observeArtFavorites(),
+                observeCampFavorites(),
+                events,
                 db.userPoiDao().all)
         { arts, camps, events, userpois ->
             val all = ArrayList<PlayaItem>(arts.size + camps.size + events.size + userpois.size)
@@ -377,6 +743,21 @@ class DataProvider private constructor(private val context: Context, private val
         }
     }
 
+    /**
+     * Load the entity [item] is a list row of, such as the [Art] of an [ArtRow]. List rows hold only
+     * the columns a list row renders, with the description truncated
+     */
+    fun getFullItem(item: PlayaItem): Single<PlayaItem> {
+        return Single.fromCallable<PlayaItem> {
+            when (item) {
+                is ArtRow -> db.artDao().findById(item.id)
+                is CampRow -> db.campDao().findById(item.id)
+                is EventRow -> db.eventDao().findById(item.id)
+                else -> item
+            } ?: item
+        }.subscribeOn(Schedulers.io())
+    }
+
     fun getUserPoi(): Flowable<List<UserPoi>> {
         return db.userPoiDao().all
     }
@@ -386,22 +767,41 @@ class DataProvider private constructor(private val context: Context, private val
     }
 
     fun insertUserPoi(poi: UserPoi) {
-        db.userPoiDao().insert(poi)
+        db.runInTransaction(Runnable {
+            val id = db.userPoiDao().insert(poi)
+            updateIndices(UserPoi.TABLE_NAME, listOf(id.toInt()))
+        })
+        publishPendingChanges()
     }
 
     fun deleteUserPoi(poi: UserPoi) {
-        db.userPoiDao().delete(poi)
+        db.runInTransaction(Runnable {
+            db.userPoiDao().delete(poi)
+            updateIndices(UserPoi.TABLE_NAME, listOf(poi.id))
+        })
+        publishPendingChanges()
     }
 
+    /**
+     * Persist changes to [item]. Only the favorite state of art, camps and events is user-editable,
+     * and those items may be partial list rows, so only that column is written
+     */
     fun update(item: PlayaItem) {
-        if (item is Art) {
-            db.artDao().update(item)
-        } else if (item is Event) {
-            db.eventDao().update(item)
-        } else if (item is Camp) {
-            db.campDao().update(item)
+        if (item is ArtRow) {
+            db.artDao().setFavorite(item.id, item.isFavorite)
+            changeFeed.publish(RowChange.favorite(Art.TABLE_NAME, item.id, item.isFavorite))
+        } else if (item is EventRow) {
+            db.eventDao().setFavorite(item.id, item.isFavorite)
+            changeFeed.publish(RowChange.favorite(EventOccurrence.TABLE_NAME, item.id, item.isFavorite))
+        } else if (item is CampRow) {
+            db.campDao().setFavorite(item.id, item.isFavorite)
+            changeFeed.publish(RowChange.favorite(Camp.TABLE_NAME, item.id, item.isFavorite))
         } else if (item is UserPoi) {
-            db.userPoiDao().update(item)
+            db.runInTransaction(Runnable {
+                db.userPoiDao().update(item)
+                updateIndices(UserPoi.TABLE_NAME, listOf(item.id))
+            })
+            publishPendingChanges()
         } else {
             Timber.e("Cannot update item of unknown type")
         }
@@ -431,6 +831,56 @@ class DataProvider private constructor(private val context: Context, private val
          */
         const val BUNDLED_DATABASE_VERSION: Long = 1
 
+        /**
+         * Stay under SQLite's default limit of 999 bound arguments per statement
+         */
+        private const val MAX_QUERY_ARGS = 500
+
+        /**
+         * How often favorite events on the map are checked for having ended
+         */
+        private const val EXPIRY_CHECK_INTERVAL_S = 60L
+
+        /**
+         * Wait for item changes to settle before re-running a search, as a data update changes each table in turn
+         */
+        private const val SEARCH_DEBOUNCE_MS = 300L
+
+        /**
+         * Tables read by lists of each item type. Event favorites are published on [EventOccurrence.TABLE_NAME]
+         */
+        private val CAMP_TABLES = listOf(Camp.TABLE_NAME)
+        private val ART_TABLES = listOf(Art.TABLE_NAME)
+        private val EVENT_TABLES = listOf(EventOccurrence.TABLE_NAME, Event.TABLE_NAME)
+
+        private const val SHADOW_SUFFIX = "_shadow"
+
+        /**
+         * Columns read by [SearchIndex]
+         */
+        private val INDEXED_COLUMNS = listOf(PlayaItem.NAME, PlayaItem.DESC)
+
+        /**
+         * Temp table holding the keys of favorites while a shadow table is swapped in
+         */
+        private const val FAVORITE_KEYS_TABLE = "favorite_keys"
+
+        fun shadowOf(table: String) = table + SHADOW_SUFFIX
+
+        /**
+         * @return [table] and any tables holding rows that only exist alongside its rows,
+         * in the order they should be filled
+         */
+        private fun tablesStoredWith(table: String): List<String> {
+            return if (table == Event.TABLE_NAME) listOf(Event.TABLE_NAME, EventOccurrence.TABLE_NAME) else listOf(table)
+        }
+
+        /**
+         * Matches the head of [table]'s CREATE TABLE statement, however SQLite quoted its name
+         */
+        private fun createTableRegex(table: String) = Regex("^CREATE TABLE\\s+[`\"\\[]?$table[`\"\\]]?\\s*",
+                RegexOption.IGNORE_CASE)
+
         /**
          * Version of database data and mbtiles. This is basically the unix time at which bundled data was provided to this build.
          */
@@ -467,16 +917,19 @@ class DataProvider private constructor(private val context: Context, private val
             // Remove the last comma
             return builder.substring(0, builder.length - 1)
         }
+    }
 
-        /**
-         * Add wildcards to the beginning and end of a query term
+    /**
+     * The id, playa id and [PlayaItem.CONTENT_HASH] of a stored row
+     */
+    data class RowVersion(val id: Int, val playaId: String?, val hash: Long)
 
-         * @return "%{@param query}%"
-         */
-        private fun addWildcardsToQuery(query: String): String {
-            return "%$query%"
-        }
-    }
+    /**
+     * The playa id of a stored camp or art, with its location and unofficial location. Coordinates are 0 where unknown
+     */
+    data class StoredLocation(val playaId: String,
+                              val latitude: Double, val longitude: Double, val address: String?,
+                              val unofficialLatitude: Double, val unofficialLongitude: Double, val unofficialAddress: String?)
 
     data class SectionedPlayaItems(val data: List<PlayaItem>,
                                    val ranges: List<IntRange>)
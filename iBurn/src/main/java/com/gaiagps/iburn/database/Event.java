@@ -1,17 +1,19 @@
 package com.gaiagps.iburn.database;
 
 import android.arch.persistence.room.ColumnInfo;
-import android.arch.persistence.room.Entity;
-import android.text.TextUtils;
-
-import static com.gaiagps.iburn.database.Event.TABLE_NAME;
 
 /**
+ * An occurrence of an event, joined with the details it shares with other occurrences.
+ * {@link #id} and {@link #isFavorite} belong to the occurrence.
+ * <p>
+ * Stored across {@link EventInfo} and {@link EventOccurrence}, and read via {@link EventDao}.
+ * <p>
  * Created by dbro on 6/8/17.
  */
-
-@Entity(tableName = TABLE_NAME)
-public class Event extends PlayaItem {
+public class Event extends EventRow {
+    /**
+     * Table of {@link EventInfo}
+     */
     public static final String TABLE_NAME = "events";
 
     public static final String TYPE = "e_type";
@@ -22,34 +24,12 @@ public class Event extends PlayaItem {
     public static final String START_TIME_PRETTY = "s_time_p";
     public static final String END_TIME = "e_time";
     public static final String END_TIME_PRETTY = "e_time_p";
+    public static final String DAY = "day";
+    public static final String SPANS_DAY = "spans_day";
 
+    @ColumnInfo(name = URL)
+    public String url;
 
-
-    @ColumnInfo(name = TYPE)
-    public String type;
-
-    @ColumnInfo(name = ALL_DAY)
-    public boolean allDay;
-
-    @ColumnInfo(name = CHECK_LOC)
-    public boolean checkLocation;
-
-    @ColumnInfo(name = CAMP_PLAYA_ID)
-    public String campPlayaId;
-
-    @ColumnInfo(name = START_TIME)
-    public String startTime;
-
-    @ColumnInfo(name = START_TIME_PRETTY)
-    public String startTimePretty;
-
-    @ColumnInfo(name = END_TIME)
-    public String endTime;
-
-    @ColumnInfo(name = END_TIME_PRETTY)
-    public String endTimePretty;
-
-    public boolean hasCampHost() {
-        return !TextUtils.isEmpty(campPlayaId);
-    }
-}
\ No newline at end of file
+    @ColumnInfo(name = CONTACT)
+    public String contact;
+}
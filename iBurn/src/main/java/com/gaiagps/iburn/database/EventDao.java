@@ -1,122 +1,134 @@
 package com.gaiagps.iburn.database;
 
 import android.arch.persistence.room.Dao;
-import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
-import android.arch.persistence.room.Update;
 
 import java.util.List;
 
-import io.reactivex.Flowable;
-
 import static com.gaiagps.iburn.database.Event.ALL_DAY;
 import static com.gaiagps.iburn.database.Event.CAMP_PLAYA_ID;
+import static com.gaiagps.iburn.database.Event.CHECK_LOC;
+import static com.gaiagps.iburn.database.Event.DAY;
 import static com.gaiagps.iburn.database.Event.END_TIME;
+import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
 import static com.gaiagps.iburn.database.Event.START_TIME;
 import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
 import static com.gaiagps.iburn.database.Event.TABLE_NAME;
 import static com.gaiagps.iburn.database.Event.TYPE;
+import static com.gaiagps.iburn.database.EventOccurrence.EVENT_ID;
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.DESC;
 import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
 import static com.gaiagps.iburn.database.PlayaItem.ID;
 import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE_UNOFFICIAL;
 import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE_UNOFFICIAL;
 import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR_UNOFFICIAL;
 import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.ROW_DESC_LENGTH;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
 
 /**
+ * Queries {@link Event}s: each {@link EventOccurrence} (aliased o) joined with its {@link EventInfo} (aliased e).
+ * Lists load {@link EventRow}s with {@link #SELECT_ROWS}. Use {@link #findById(int)} for a complete {@link Event}.
+ * <p>
  * Created by dbro on 6/8/17.
  */
-
 @Dao
 public interface EventDao {
-    @Query("SELECT * FROM " + TABLE_NAME)
-    Flowable<List<Event>> getAll();
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1")
-    Flowable<List<Event>> getFavorites();
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1 AND " + END_TIME + " >= :now")
-    Flowable<List<Event>> getNonExpiredFavorites(String now);
+    String FROM_EVENTS = " FROM " + EventOccurrence.TABLE_NAME + " AS o INNER JOIN " + TABLE_NAME +
+            " AS e ON o." + EVENT_ID + " = e." + ID;
+
+    String ROW_COLUMNS = "o." + ID + ", o." + EVENT_ID + ", o." + START_TIME + ", o." + START_TIME_PRETTY + ", " +
+            "o." + END_TIME + ", o." + END_TIME_PRETTY + ", o." + DAY + ", o." + SPANS_DAY + ", o." + FAVORITE + ", " +
+            "e." + NAME + ", e." + PLAYA_ADDR + ", e." + PLAYA_ADDR_UNOFFICIAL + ", e." + PLAYA_ID + ", " +
+            "e." + LATITUDE + ", e." + LONGITUDE + ", e." + LATITUDE_UNOFFICIAL + ", e." + LONGITUDE_UNOFFICIAL + ", " +
+            "e." + TYPE + ", e." + ALL_DAY + ", e." + CHECK_LOC + ", e." + CAMP_PLAYA_ID;
+
+    /**
+     * Every column of {@link Event}
+     */
+    String SELECT_EVENTS = "SELECT " + ROW_COLUMNS + ", e.`" + DESC + "`, e." + URL + ", e." + CONTACT + FROM_EVENTS;
+
+    /**
+     * Columns of {@link Event} rendered by list rows. See {@link PlayaItem#ROW_COLUMNS}
+     */
+    String SELECT_ROWS = "SELECT " + ROW_COLUMNS + ", substr(e.`" + DESC + "`, 1, " + ROW_DESC_LENGTH + ") AS `" +
+            DESC + "`" + FROM_EVENTS;
+
+    // Queries are constants so QueryPlanTest can check the SQL Room compiles
+    String GET_ALL = SELECT_ROWS;
+    String FIND_BY_ID = SELECT_EVENTS + " WHERE o." + ID + " = :id";
+    String FIND_BY_IDS = SELECT_ROWS + " WHERE o." + ID + " IN (:ids)";
+    String FIND_BY_EVENT_IDS = SELECT_ROWS + " WHERE o." + EVENT_ID + " IN (:eventIds) ORDER BY o." + START_TIME;
+    String GET_FAVORITES = SELECT_ROWS + " WHERE o." + FAVORITE + " = 1";
+    String GET_NON_EXPIRED_FAVORITES = SELECT_ROWS + " WHERE o." + FAVORITE + " = 1 AND o." + END_TIME + " >= :now";
+    String FIND_BY_CAMP_PLAYA_ID = SELECT_ROWS + " WHERE e." + CAMP_PLAYA_ID + " = :campPlayaId GROUP BY e." + NAME;
+    String FIND_OTHER_OCCURRENCES = SELECT_ROWS + " WHERE o." + EVENT_ID + " = :eventId AND o." + ID +
+            " != :excludingId ORDER BY o." + START_TIME;
+    String FIND_BY_DAY = SELECT_ROWS + " WHERE o." + DAY + " = :day AND o." + SPANS_DAY + " = :spansDay" +
+            " ORDER BY e." + ALL_DAY + ", o." + START_TIME + " ASC";
+    String FIND_BY_DAY_NO_EXPIRED = SELECT_ROWS + " WHERE o." + DAY + " = :day AND o." + SPANS_DAY +
+            " = :spansDay AND o." + END_TIME + " >= :now ORDER BY e." + ALL_DAY + ", o." + START_TIME + " ASC";
+    String FIND_BY_DAY_AND_TYPE = SELECT_ROWS + " WHERE o." + DAY + " = :day AND o." + SPANS_DAY +
+            " = :spansDay AND e." + TYPE + " IN (:types) ORDER BY e." + ALL_DAY + ", o." + START_TIME + " ASC";
+    String FIND_BY_DAY_AND_TYPE_NO_EXPIRED = SELECT_ROWS + " WHERE o." + DAY + " = :day AND o." + SPANS_DAY +
+            " = :spansDay AND e." + TYPE + " IN (:types) AND o." + END_TIME + " >= :now ORDER BY e." + ALL_DAY +
+            ", o." + START_TIME + " ASC";
+    String FIND_IN_DATE_RANGE = SELECT_ROWS + " WHERE o." + START_TIME + " BETWEEN :startDate AND :endDate AND e." +
+            ALL_DAY + " = 0 ORDER BY o." + START_TIME;
+    String SET_FAVORITE = "UPDATE " + EventOccurrence.TABLE_NAME + " SET " + FAVORITE + " = :isFavorite WHERE " + ID +
+            " = :occurrenceId";
+
+    @Query(GET_ALL)
+    List<EventRow> getAll();
+
+    @Query(FIND_BY_ID)
+    Event findById(int id);
+
+    @Query(FIND_BY_IDS)
+    List<EventRow> findByIds(List<Integer> ids);
+
+    /**
+     * @param eventIds {@link EventInfo} ids
+     * @return all occurrences of the given events, by start time
+     */
+    @Query(FIND_BY_EVENT_IDS)
+    List<EventRow> findByEventIds(List<Integer> eventIds);
+
+    @Query(GET_FAVORITES)
+    List<EventRow> getFavorites();
+
+    @Query(GET_NON_EXPIRED_FAVORITES)
+    List<EventRow> getNonExpiredFavorites(long now);
+
+    @Query(FIND_BY_CAMP_PLAYA_ID)
+    List<EventRow> findByCampPlayaId(String campPlayaId);
+
+    @Query(FIND_OTHER_OCCURRENCES)
+    List<EventRow> findOtherOccurrences(int eventId, int excludingId);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + NAME + " LIKE :name GROUP BY " + NAME)
-    Flowable<List<Event>> findByName(String name);
+    //Event-related Queries
+    @Query(FIND_BY_DAY)
+    List<EventRow> findByDay(int day, boolean spansDay);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + CAMP_PLAYA_ID + " = :campPlayaId GROUP BY " + NAME)
-    Flowable<List<Event>> findByCampPlayaId(String campPlayaId);
+    @Query(FIND_BY_DAY_NO_EXPIRED)
+    List<EventRow> findByDayNoExpired(int day, boolean spansDay, long now);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + PLAYA_ID + " = :playaId AND " + ID + " != :excludingId")
-    Flowable<List<Event>> findOtherOccurrences(String playaId, int excludingId);
+    @Query(FIND_BY_DAY_AND_TYPE)
+    List<EventRow> findByDayAndType(int day, boolean spansDay, List<String> types);
 
+    @Query(FIND_BY_DAY_AND_TYPE_NO_EXPIRED)
+    List<EventRow> findByDayAndTypeNoExpired(int day, boolean spansDay, List<String> types, long now);
 
+    @Query(FIND_IN_DATE_RANGE)
+    List<EventRow> findInDateRange(long startDate, long endDate);
 
-    //Event-related Queries
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " +
-            START_TIME_PRETTY + " LIKE :day AND "+
-            "not(s_time <= :allDayStart AND e_time >= :allDayEnd)"+
-            "ORDER BY "
-            + ALL_DAY + ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayTimed(String day,String allDayStart,
-                                         String allDayEnd);
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE (" + START_TIME_PRETTY +
-            " LIKE :day AND " + END_TIME + ">= :now AND " +
-            "not(s_time <= :allDayStart AND e_time >= :allDayEnd)"+
-            " ) ORDER BY "
-            + ALL_DAY + ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayNoExpiredTimed(String day,String now,
-                                                  String allDayStart,
-                                                  String allDayEnd);
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE (" + START_TIME_PRETTY +
-            " LIKE :day AND "+
-            "s_time<= :allDayStart AND e_time >= :allDayEnd"+
-            " ) ORDER BY " + ALL_DAY + ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayAllDay(String day,
-                                                    String allDayStart,
-                                                    String allDayEnd);
-
-      @Query("SELECT * FROM " + TABLE_NAME + " WHERE ("
-              + START_TIME_PRETTY + " LIKE :day AND " +
-              "not(s_time <= :allDayStart AND e_time >= :allDayEnd) AND "+
-              TYPE + " IN (:types)) ORDER BY " + ALL_DAY +
-              ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayAndTypeTimed(String day, List<String> types,
-                                                String allDayStart,
-                                                String allDayEnd);
-
-    @Query("SELECT * FROM " + TABLE_NAME +
-            " WHERE (" + START_TIME_PRETTY +
-            " LIKE :day AND " +
-            END_TIME + ">= :now AND "+
-            "not(s_time <= :allDayStart AND e_time >= :allDayEnd) AND "+
-             TYPE + " IN (:types)) ORDER BY " + ALL_DAY + ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayAndTypeNoExpiredTimed
-            (String day, List<String> types, String now,
-             String allDayStart, String allDayEnd);
-
-    @Query("SELECT * FROM " + TABLE_NAME +
-            " WHERE (" + START_TIME_PRETTY +
-            " LIKE :day AND "
-            + TYPE + " IN (:types) AND "+
-            "s_time <= :allDayStart AND e_time >= :allDayEnd "+
-            ") ORDER BY " + ALL_DAY + ", " + START_TIME + " ASC")
-    Flowable<List<Event>> findByDayAndTypeAllDay(String day, List<String> types,
-                                                          String allDayStart,
-                                                          String allDayEnd);
-
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + START_TIME + " BETWEEN :startDate AND :endDate AND " + ALL_DAY + " = 0  ORDER BY " + START_TIME)
-    Flowable<List<Event>> findInDateRange(String startDate, String endDate);
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE (" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon)")
-    Flowable<List<Event>> findInRegion(float maxLat, float minLat, float maxLon, float minLon);
-
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + FAVORITE + " = 1 OR ((" + LATITUDE + " BETWEEN :minLat AND :maxLat) AND (" + LONGITUDE + " BETWEEN :minLon AND :maxLon))")
-    Flowable<List<Event>> findInRegionOrFavorite(float minLat, float maxLat, float minLon, float maxLon);
-
-    @Insert
-    void insert(Event... arts);
-
-    @Update
-    void update(Event... arts);
+    @Query(SET_FAVORITE)
+    void setFavorite(int occurrenceId, boolean isFavorite);
 }
@@ -0,0 +1,95 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+import static com.gaiagps.iburn.database.Event.ALL_DAY;
+import static com.gaiagps.iburn.database.Event.CAMP_PLAYA_ID;
+import static com.gaiagps.iburn.database.Event.CHECK_LOC;
+import static com.gaiagps.iburn.database.Event.TABLE_NAME;
+import static com.gaiagps.iburn.database.Event.TYPE;
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.CONTENT_HASH;
+import static com.gaiagps.iburn.database.PlayaItem.DESC;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LATITUDE_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE;
+import static com.gaiagps.iburn.database.PlayaItem.LONGITUDE_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ADDR_UNOFFICIAL;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
+
+/**
+ * Details shared by all occurrences of an event. One row per playa id.
+ * The app reads these joined with each {@link EventOccurrence} as an {@link Event}.
+ */
+@Entity(tableName = TABLE_NAME,
+        indices = {
+                @Index(NAME),
+                @Index(PLAYA_ID),
+                @Index(CAMP_PLAYA_ID),
+                @Index(TYPE),
+                @Index({LATITUDE, LONGITUDE})
+        })
+public class EventInfo {
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = ID)
+    public int id;
+
+    @ColumnInfo(name = NAME)
+    public String name;
+
+    @ColumnInfo(name = DESC)
+    public String description;
+
+    @ColumnInfo(name = URL)
+    public String url;
+
+    @ColumnInfo(name = CONTACT)
+    public String contact;
+
+    @ColumnInfo(name = PLAYA_ADDR)
+    public String playaAddress;
+
+    @ColumnInfo(name = PLAYA_ADDR_UNOFFICIAL)
+    public String playaAddressUnofficial;
+
+    @ColumnInfo(name = PLAYA_ID)
+    public String playaId;
+
+    @ColumnInfo(name = LATITUDE)
+    public float latitude;
+
+    @ColumnInfo(name = LONGITUDE)
+    public float longitude;
+
+    @ColumnInfo(name = LATITUDE_UNOFFICIAL)
+    public float latitudeUnofficial;
+
+    @ColumnInfo(name = LONGITUDE_UNOFFICIAL)
+    public float longitudeUnofficial;
+
+    @ColumnInfo(name = TYPE)
+    public String type;
+
+    @ColumnInfo(name = ALL_DAY)
+    public boolean allDay;
+
+    @ColumnInfo(name = CHECK_LOC)
+    public boolean checkLocation;
+
+    @ColumnInfo(name = CAMP_PLAYA_ID)
+    public String campPlayaId;
+
+    /**
+     * Covers this event's {@link EventOccurrence}s too
+     */
+    @ColumnInfo(name = CONTENT_HASH)
+    public long contentHash;
+}
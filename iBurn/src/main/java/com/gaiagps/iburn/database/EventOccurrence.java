@@ -0,0 +1,62 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+import static com.gaiagps.iburn.database.Event.DAY;
+import static com.gaiagps.iburn.database.Event.END_TIME;
+import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
+import static com.gaiagps.iburn.database.Event.START_TIME;
+import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
+import static com.gaiagps.iburn.database.EventOccurrence.EVENT_ID;
+import static com.gaiagps.iburn.database.EventOccurrence.TABLE_NAME;
+import static com.gaiagps.iburn.database.PlayaItem.FAVORITE;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
+
+/**
+ * A single scheduled time of an {@link EventInfo}. Favorites are per-occurrence.
+ * The app reads these joined with their {@link EventInfo} as an {@link Event}.
+ */
+@Entity(tableName = TABLE_NAME,
+        indices = {
+                @Index(EVENT_ID),
+                @Index({START_TIME, END_TIME}),
+                @Index({DAY, SPANS_DAY, START_TIME}),
+                @Index(FAVORITE)
+        })
+public class EventOccurrence {
+    public static final String TABLE_NAME = "event_occurrences";
+
+    public static final String EVENT_ID = "event_id";
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = ID)
+    public int id;
+
+    @ColumnInfo(name = EVENT_ID)
+    public int eventId;
+
+    @ColumnInfo(name = START_TIME)
+    public long startTime;
+
+    @ColumnInfo(name = START_TIME_PRETTY)
+    public String startTimePretty;
+
+    @ColumnInfo(name = END_TIME)
+    public long endTime;
+
+    @ColumnInfo(name = END_TIME_PRETTY)
+    public String endTimePretty;
+
+    @ColumnInfo(name = DAY)
+    public int day;
+
+    @ColumnInfo(name = SPANS_DAY)
+    public boolean spansDay;
+
+    @ColumnInfo(name = FAVORITE)
+    public boolean isFavorite;
+}
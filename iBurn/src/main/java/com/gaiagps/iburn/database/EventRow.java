@@ -0,0 +1,75 @@
+package com.gaiagps.iburn.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.text.TextUtils;
+
+import static com.gaiagps.iburn.database.Event.ALL_DAY;
+import static com.gaiagps.iburn.database.Event.CAMP_PLAYA_ID;
+import static com.gaiagps.iburn.database.Event.CHECK_LOC;
+import static com.gaiagps.iburn.database.Event.DAY;
+import static com.gaiagps.iburn.database.Event.END_TIME;
+import static com.gaiagps.iburn.database.Event.END_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.SPANS_DAY;
+import static com.gaiagps.iburn.database.Event.START_TIME;
+import static com.gaiagps.iburn.database.Event.START_TIME_PRETTY;
+import static com.gaiagps.iburn.database.Event.TYPE;
+
+/**
+ * The columns of an {@link Event} a list row renders, as loaded by {@link EventDao#SELECT_ROWS}.
+ * Use {@link EventDao#findById(int)} for the complete {@link Event}.
+ */
+public class EventRow extends PlayaItem {
+
+    /**
+     * Row id of the {@link EventInfo} this occurrence belongs to
+     */
+    @ColumnInfo(name = EventOccurrence.EVENT_ID)
+    public int eventId;
+
+    @ColumnInfo(name = TYPE)
+    public String type;
+
+    @ColumnInfo(name = ALL_DAY)
+    public boolean allDay;
+
+    @ColumnInfo(name = CHECK_LOC)
+    public boolean checkLocation;
+
+    @ColumnInfo(name = CAMP_PLAYA_ID)
+    public String campPlayaId;
+
+    /**
+     * Start time in epoch milliseconds
+     */
+    @ColumnInfo(name = START_TIME)
+    public long startTime;
+
+    @ColumnInfo(name = START_TIME_PRETTY)
+    public String startTimePretty;
+
+    /**
+     * End time in epoch milliseconds
+     */
+    @ColumnInfo(name = END_TIME)
+    public long endTime;
+
+    @ColumnInfo(name = END_TIME_PRETTY)
+    public String endTimePretty;
+
+    /**
+     * Day of the burn this event starts on. See {@link com.gaiagps.iburn.DateUtil#getPlayaDay(long)}
+     */
+    @ColumnInfo(name = DAY)
+    public int day;
+
+    /**
+     * Whether this event covers the core hours of the day it starts on, and so is listed
+     * among all-day events. See {@link com.gaiagps.iburn.DateUtil#spansPlayaDay(long, long)}
+     */
+    @ColumnInfo(name = SPANS_DAY)
+    public boolean spansDay;
+
+    public boolean hasCampHost() {
+        return !TextUtils.isEmpty(campPlayaId);
+    }
+}
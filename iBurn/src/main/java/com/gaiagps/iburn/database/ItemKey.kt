@@ -0,0 +1,50 @@
+package com.gaiagps.iburn.database
+
+/**
+ * Packs a [PlayaItem]'s table and row id into a single Long. Used as the rowid of
+ * auxiliary indexes (e.g: [SearchIndex]) that span our item tables.
+ */
+object ItemKey {
+
+    /**
+     * Item tables, indexed by their type code. Append only, as codes are persisted.
+     */
+    val TABLES = listOf(Camp.TABLE_NAME, Art.TABLE_NAME, Event.TABLE_NAME, UserPoi.TABLE_NAME)
+
+    private const val TYPE_COUNT = 4
+
+    fun typeCode(table: String): Int {
+        val code = TABLES.indexOf(table)
+        if (code < 0) throw IllegalArgumentException("Unknown item table $table")
+        return code
+    }
+
+    fun pack(table: String, id: Int): Long = id.toLong() * TYPE_COUNT + typeCode(table)
+
+    fun tableOf(key: Long): String = TABLES[(key % TYPE_COUNT).toInt()]
+
+    fun idOf(key: Long): Int = (key / TYPE_COUNT).toInt()
+
+    /**
+     * @return the key of [item]. An [Event]'s id is its occurrence's
+     */
+    fun of(item: PlayaItem): Long = pack(tableOf(item), item.id)
+
+    fun tableOf(item: PlayaItem): String = when (item) {
+        is CampRow -> Camp.TABLE_NAME
+        is ArtRow -> Art.TABLE_NAME
+        is EventRow -> Event.TABLE_NAME
+        is UserPoi -> UserPoi.TABLE_NAME
+        else -> throw IllegalArgumentException("Unknown item type ${item.javaClass.simpleName}")
+    }
+
+    /**
+     * @return a SQL expression computing the key of each row in [table]
+     */
+    fun sqlExpression(table: String): String = "(${PlayaItem.ID} * $TYPE_COUNT + ${typeCode(table)})"
+
+    /**
+     * @return a SQL predicate matching keys of rows belonging to [table]
+     */
+    fun sqlTypeFilter(keyColumn: String, table: String): String = "($keyColumn % $TYPE_COUNT = ${typeCode(table)})"
+}
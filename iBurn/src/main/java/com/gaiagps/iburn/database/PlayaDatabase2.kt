@@ -1,13 +1,16 @@
 package com.gaiagps.iburn.database
 
+import android.arch.persistence.db.SupportSQLiteDatabase
 import android.arch.persistence.room.Database
 import android.arch.persistence.room.RoomDatabase
 import android.arch.persistence.room.TypeConverter
 import android.arch.persistence.room.TypeConverters
 import android.content.Context
+import com.gaiagps.iburn.DateUtil
 import java.util.*
 import com.mapbox.mapboxsdk.Mapbox.getApplicationContext
 import android.arch.persistence.room.Room
+import android.arch.persistence.room.migration.Migration
 import com.jaus.albertogiunta.justintrain_oraritreni.db.sqliteAsset.AssetSQLiteOpenHelperFactory
 
 
@@ -21,8 +24,15 @@ import com.jaus.albertogiunta.justintrain_oraritreni.db.sqliteAsset.AssetSQLiteO
 private const val USE_BUNDLED_DB = true
 
 private const val DATABASE_V1 = 1
+private const val DATABASE_V2 = 2
+private const val DATABASE_V3 = 3
+private const val DATABASE_V4 = 4
+private const val DATABASE_V5 = 5
+private const val DATABASE_V6 = 6
+private const val DATABASE_V7 = 7
+private const val DATABASE_V8 = 8
 
-@Database(entities = arrayOf(Art::class, Camp::class, Event::class, UserPoi::class), version = DATABASE_V1)
+@Database(entities = arrayOf(Art::class, Camp::class, EventInfo::class, EventOccurrence::class, UserPoi::class), version = DATABASE_V8)
 @TypeConverters(Converters::class)
 abstract class AppDatabase : RoomDatabase() {
     abstract fun artDao(): ArtDao
@@ -44,9 +54,14 @@ fun getSharedDb(context: Context): AppDatabase {
 
         // TODO : Possible to optionally use bundled db?
         val newDb = if (USE_BUNDLED_DB) {
-            builder.openHelperFactory(AssetSQLiteOpenHelperFactory()).build()
+            builder.openHelperFactory(AssetSQLiteOpenHelperFactory())
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                    .addCallback(DatabaseCallback)
+                    .build()
         } else {
-            builder.build()
+            builder.addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                    .addCallback(DatabaseCallback)
+                    .build()
         }
 
         sharedDb = newDb
@@ -56,6 +71,204 @@ fun getSharedDb(context: Context): AppDatabase {
     }
 }
 
+/**
+ * Adds the indices declared on our entities to databases created at [DATABASE_V1],
+ * including the bundled pre-populated database.
+ * Index names must match Room's generated names (index_<table>_<columns>) to pass schema validation.
+ */
+val MIGRATION_1_2: Migration = object : Migration(DATABASE_V1, DATABASE_V2) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        createIndex(database, Art.TABLE_NAME, PlayaItem.NAME)
+        createIndex(database, Art.TABLE_NAME, PlayaItem.PLAYA_ID)
+        createIndex(database, Art.TABLE_NAME, PlayaItem.FAVORITE)
+        createIndex(database, Art.TABLE_NAME, PlayaItem.LATITUDE, PlayaItem.LONGITUDE)
+
+        createIndex(database, Camp.TABLE_NAME, PlayaItem.NAME)
+        createIndex(database, Camp.TABLE_NAME, PlayaItem.PLAYA_ID)
+        createIndex(database, Camp.TABLE_NAME, PlayaItem.FAVORITE)
+        createIndex(database, Camp.TABLE_NAME, PlayaItem.LATITUDE, PlayaItem.LONGITUDE)
+
+        createIndex(database, Event.TABLE_NAME, PlayaItem.NAME)
+        createIndex(database, Event.TABLE_NAME, Event.START_TIME, Event.END_TIME)
+        createIndex(database, Event.TABLE_NAME, PlayaItem.PLAYA_ID)
+        createIndex(database, Event.TABLE_NAME, Event.CAMP_PLAYA_ID)
+        createIndex(database, Event.TABLE_NAME, PlayaItem.FAVORITE)
+        createIndex(database, Event.TABLE_NAME, Event.TYPE)
+        createIndex(database, Event.TABLE_NAME, PlayaItem.LATITUDE, PlayaItem.LONGITUDE)
+
+        createIndex(database, UserPoi.TABLE_NAME, PlayaItem.PLAYA_ID)
+    }
+}
+
+/**
+ * Adds the [SearchIndex] full-text table, populated from existing items
+ */
+val MIGRATION_2_3: Migration = object : Migration(DATABASE_V2, DATABASE_V3) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        SearchIndex.create(database)
+        ItemKey.TABLES.forEach { SearchIndex.rebuild(database, it) }
+    }
+}
+
+/**
+ * Added a spatial index of items, which nothing queried: the map clusters every located item in memory.
+ * Kept, doing nothing, so the versions after it still follow on
+ */
+val MIGRATION_3_4: Migration = object : Migration(DATABASE_V3, DATABASE_V4) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+    }
+}
+
+/**
+ * Converts [Event.START_TIME] and [Event.END_TIME] from ISO-8601 strings to epoch millisecond integers.
+ * SQLite can't change a column's type, so the events table is rebuilt, preserving row ids.
+ */
+val MIGRATION_4_5: Migration = object : Migration(DATABASE_V4, DATABASE_V5) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        val table = Event.TABLE_NAME
+        val newTable = "${table}_new"
+        val copiedColumns = listOf(PlayaItem.ID, PlayaItem.NAME, PlayaItem.DESC, PlayaItem.URL, PlayaItem.CONTACT,
+                PlayaItem.PLAYA_ADDR, PlayaItem.PLAYA_ADDR_UNOFFICIAL, PlayaItem.PLAYA_ID,
+                PlayaItem.LATITUDE, PlayaItem.LONGITUDE, PlayaItem.LATITUDE_UNOFFICIAL, PlayaItem.LONGITUDE_UNOFFICIAL,
+                PlayaItem.FAVORITE, Event.TYPE, Event.ALL_DAY, Event.CHECK_LOC, Event.CAMP_PLAYA_ID,
+                Event.START_TIME_PRETTY, Event.END_TIME_PRETTY)
+                .joinToString(", ") { "`$it`" }
+
+        database.execSQL("CREATE TABLE `$newTable` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`name` TEXT, `desc` TEXT, `url` TEXT, `contact` TEXT, `p_addr` TEXT, `p_addr_unof` TEXT, `p_id` TEXT, " +
+                "`lat` REAL NOT NULL, `lon` REAL NOT NULL, `lat_unof` REAL NOT NULL, `lon_unof` REAL NOT NULL, " +
+                "`fav` INTEGER NOT NULL, `e_type` TEXT, `all_day` INTEGER NOT NULL, `check_loc` INTEGER NOT NULL, " +
+                "`c_id` TEXT, `s_time` INTEGER NOT NULL, `s_time_p` TEXT, `e_time` INTEGER NOT NULL, `e_time_p` TEXT)")
+        database.execSQL("INSERT INTO `$newTable` ($copiedColumns, `${Event.START_TIME}`, `${Event.END_TIME}`) " +
+                "SELECT $copiedColumns, ${isoToEpochMillis(Event.START_TIME)}, ${isoToEpochMillis(Event.END_TIME)} " +
+                "FROM `$table`")
+        database.execSQL("DROP TABLE `$table`")
+        database.execSQL("ALTER TABLE `$newTable` RENAME TO `$table`")
+
+        createIndex(database, table, PlayaItem.NAME)
+        createIndex(database, table, Event.START_TIME, Event.END_TIME)
+        createIndex(database, table, PlayaItem.PLAYA_ID)
+        createIndex(database, table, Event.CAMP_PLAYA_ID)
+        createIndex(database, table, PlayaItem.FAVORITE)
+        createIndex(database, table, Event.TYPE)
+        createIndex(database, table, PlayaItem.LATITUDE, PlayaItem.LONGITUDE)
+    }
+
+    /**
+     * SQL converting a "yyyy-MM-dd'T'HH:mm:ssZ" string column, as written by
+     * [com.gaiagps.iburn.api.typeadapter.PlayaDateTypeAdapter.buildIso8601Format], to epoch milliseconds
+     */
+    private fun isoToEpochMillis(column: String): String {
+        val offsetSeconds = "(CASE substr($column, 20, 1) WHEN '-' THEN -1 ELSE 1 END) * " +
+                "(CAST(substr($column, 21, 2) AS INTEGER) * 3600 + CAST(substr($column, 23, 2) AS INTEGER) * 60)"
+        return "IFNULL((CAST(strftime('%s', substr($column, 1, 19)) AS INTEGER) - $offsetSeconds) * 1000, 0)"
+    }
+}
+
+/**
+ * Adds the precomputed [Event.DAY] and [Event.SPANS_DAY] columns used to list events by day
+ */
+val MIGRATION_5_6: Migration = object : Migration(DATABASE_V5, DATABASE_V6) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        val table = Event.TABLE_NAME
+        database.execSQL("ALTER TABLE `$table` ADD COLUMN `${Event.DAY}` INTEGER NOT NULL DEFAULT 0")
+        database.execSQL("ALTER TABLE `$table` ADD COLUMN `${Event.SPANS_DAY}` INTEGER NOT NULL DEFAULT 0")
+
+        val update = database.compileStatement("UPDATE `$table` SET `${Event.DAY}` = ?, `${Event.SPANS_DAY}` = ? " +
+                "WHERE `${PlayaItem.ID}` = ?")
+        database.query("SELECT `${PlayaItem.ID}`, `${Event.START_TIME}`, `${Event.END_TIME}` FROM `$table`").use { cursor ->
+            while (cursor.moveToNext()) {
+                val startTime = cursor.getLong(1)
+                update.bindLong(1, DateUtil.getPlayaDay(startTime).toLong())
+                update.bindLong(2, if (DateUtil.spansPlayaDay(startTime, cursor.getLong(2))) 1 else 0)
+                update.bindLong(3, cursor.getLong(0))
+                update.executeUpdateDelete()
+            }
+        }
+
+        createIndex(database, table, Event.DAY, Event.SPANS_DAY, Event.ALL_DAY, Event.START_TIME)
+    }
+}
+
+/**
+ * Splits the events table, which repeated an event's details for every occurrence, into one [EventInfo]
+ * row per playa id and an [EventOccurrence] row per time slot. Each event keeps the row id of its first
+ * occurrence, and each occurrence keeps its old row id, so favorites are carried over in place.
+ */
+val MIGRATION_6_7: Migration = object : Migration(DATABASE_V6, DATABASE_V7) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        val table = Event.TABLE_NAME
+        val newTable = "${table}_new"
+        val occurrences = EventOccurrence.TABLE_NAME
+        val infoColumns = listOf(PlayaItem.ID, PlayaItem.NAME, PlayaItem.DESC, PlayaItem.URL, PlayaItem.CONTACT,
+                PlayaItem.PLAYA_ADDR, PlayaItem.PLAYA_ADDR_UNOFFICIAL, PlayaItem.PLAYA_ID,
+                PlayaItem.LATITUDE, PlayaItem.LONGITUDE, PlayaItem.LATITUDE_UNOFFICIAL, PlayaItem.LONGITUDE_UNOFFICIAL,
+                Event.TYPE, Event.ALL_DAY, Event.CHECK_LOC, Event.CAMP_PLAYA_ID)
+                .joinToString(", ") { "`$it`" }
+        val occurrenceColumns = listOf(Event.START_TIME, Event.START_TIME_PRETTY, Event.END_TIME, Event.END_TIME_PRETTY,
+                Event.DAY, Event.SPANS_DAY, PlayaItem.FAVORITE)
+                .joinToString(", ") { "`$it`" }
+        val firstIdWithPlayaId = "(SELECT MIN(x.`${PlayaItem.ID}`) FROM `$table` AS x " +
+                "WHERE x.`${PlayaItem.PLAYA_ID}` = `$table`.`${PlayaItem.PLAYA_ID}`)"
+
+        database.execSQL("CREATE TABLE `$newTable` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`name` TEXT, `desc` TEXT, `url` TEXT, `contact` TEXT, `p_addr` TEXT, `p_addr_unof` TEXT, `p_id` TEXT, " +
+                "`lat` REAL NOT NULL, `lon` REAL NOT NULL, `lat_unof` REAL NOT NULL, `lon_unof` REAL NOT NULL, " +
+                "`e_type` TEXT, `all_day` INTEGER NOT NULL, `check_loc` INTEGER NOT NULL, `c_id` TEXT)")
+        database.execSQL("CREATE TABLE `$occurrences` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`event_id` INTEGER NOT NULL, `s_time` INTEGER NOT NULL, `s_time_p` TEXT, `e_time` INTEGER NOT NULL, " +
+                "`e_time_p` TEXT, `day` INTEGER NOT NULL, `spans_day` INTEGER NOT NULL, `fav` INTEGER NOT NULL)")
+
+        database.execSQL("INSERT INTO `$newTable` ($infoColumns) SELECT $infoColumns FROM `$table` " +
+                "WHERE `${PlayaItem.PLAYA_ID}` IS NULL OR `${PlayaItem.ID}` = $firstIdWithPlayaId")
+        database.execSQL("INSERT INTO `$occurrences` (`${PlayaItem.ID}`, `${EventOccurrence.EVENT_ID}`, $occurrenceColumns) " +
+                "SELECT `${PlayaItem.ID}`, IFNULL($firstIdWithPlayaId, `${PlayaItem.ID}`), $occurrenceColumns FROM `$table`")
+
+        database.execSQL("DROP TABLE `$table`")
+        database.execSQL("ALTER TABLE `$newTable` RENAME TO `$table`")
+
+        createIndex(database, table, PlayaItem.NAME)
+        createIndex(database, table, PlayaItem.PLAYA_ID)
+        createIndex(database, table, Event.CAMP_PLAYA_ID)
+        createIndex(database, table, Event.TYPE)
+        createIndex(database, table, PlayaItem.LATITUDE, PlayaItem.LONGITUDE)
+
+        createIndex(database, occurrences, EventOccurrence.EVENT_ID)
+        createIndex(database, occurrences, Event.START_TIME, Event.END_TIME)
+        createIndex(database, occurrences, Event.DAY, Event.SPANS_DAY, Event.START_TIME)
+        createIndex(database, occurrences, PlayaItem.FAVORITE)
+
+        // Index keys of dropped duplicate rows no longer resolve
+        SearchIndex.rebuild(database, table)
+    }
+}
+
+/**
+ * Adds [PlayaItem.CONTENT_HASH] to API-sourced tables. Existing rows get 0, which makes the next
+ * update of each table a full rebuild
+ */
+val MIGRATION_7_8: Migration = object : Migration(DATABASE_V7, DATABASE_V8) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        for (table in listOf(Art.TABLE_NAME, Camp.TABLE_NAME, Event.TABLE_NAME)) {
+            database.execSQL("ALTER TABLE `$table` ADD COLUMN `${PlayaItem.CONTENT_HASH}` INTEGER NOT NULL DEFAULT 0")
+        }
+    }
+}
+
+/**
+ * Creates tables Room doesn't manage when starting from a fresh database
+ */
+object DatabaseCallback : RoomDatabase.Callback() {
+    override fun onCreate(db: SupportSQLiteDatabase) {
+        SearchIndex.create(db)
+    }
+}
+
+internal fun createIndex(database: SupportSQLiteDatabase, table: String, vararg columns: String) {
+    val name = "index_${table}_${columns.joinToString("_")}"
+    database.execSQL("CREATE INDEX IF NOT EXISTS `$name` ON `$table` (${columns.joinToString(", ") { "`$it`" }})")
+}
+
 object Converters {
     @TypeConverter
     fun fromTimestamp(value: Long?): Date? {
@@ -8,10 +8,13 @@ import com.mapbox.mapboxsdk.geometry.LatLng;
 import java.io.Serializable;
 
 /**
+ * Columns common to every item. Lists load row POJOs, such as {@link ArtRow}, which extend this with the
+ * columns a list row renders. Entities, such as {@link Art}, extend those with the remaining columns.
+ * <p>
  * Created by dbro on 6/8/17.
  */
 
-public class PlayaItem implements Serializable {
+public class PlayaItem implements Serializable, Cloneable {
     public static final String ID = "_id";
     public static final String NAME = "name";
     public static final String DESC = "desc";
@@ -26,6 +29,24 @@ public class PlayaItem implements Serializable {
     public static final String LONGITUDE_UNOFFICIAL = "lon_unof";
     public static final String FAVORITE = "fav";
 
+    /**
+     * Hash of the iBurn API data a row was built from. Stored by API-sourced tables, not by {@link UserPoi}.
+     * See {@link ContentHash}
+     */
+    public static final String CONTENT_HASH = "c_hash";
+
+    /**
+     * Characters of {@link #description} loaded for list rows, which show at most a few lines
+     */
+    public static final int ROW_DESC_LENGTH = 240;
+
+    /**
+     * Columns of {@link PlayaItem}, as loaded for list rows. {@link #DESC} is truncated to {@link #ROW_DESC_LENGTH}
+     */
+    public static final String ROW_COLUMNS = ID + ", " + NAME + ", substr(`" + DESC + "`, 1, " + ROW_DESC_LENGTH +
+            ") AS `" + DESC + "`, " + PLAYA_ADDR + ", " + PLAYA_ADDR_UNOFFICIAL + ", " + PLAYA_ID + ", " +
+            LATITUDE + ", " + LONGITUDE + ", " + LATITUDE_UNOFFICIAL + ", " + LONGITUDE_UNOFFICIAL + ", " + FAVORITE;
+
 
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ID)
@@ -37,12 +58,6 @@ public class PlayaItem implements Serializable {
     @ColumnInfo(name = DESC)
     public String description;
 
-    @ColumnInfo(name = URL)
-    public String url;
-
-    @ColumnInfo(name = CONTACT)
-    public String contact;
-
     @ColumnInfo(name = PLAYA_ADDR)
     public String playaAddress;
 
@@ -83,10 +98,21 @@ public class PlayaItem implements Serializable {
         return new LatLng(latitudeUnofficial, longitudeUnofficial);
     }
 
+    /**
+     * @return a shallow copy of this item, of the same class
+     */
+    public PlayaItem copy() {
+        try {
+            return (PlayaItem) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof PlayaItem) || rowClass(getClass()) != rowClass(o.getClass())) return false;
 
         PlayaItem playaItem = (PlayaItem) o;
 
@@ -100,4 +126,15 @@ public class PlayaItem implements Serializable {
         result = 31 * result + (playaId != null ? playaId.hashCode() : 0);
         return result;
     }
+
+    /**
+     * @return the direct subclass of PlayaItem that itemClass is or extends, such that a list row and
+     * its entity, like an {@link ArtRow} and an {@link Art}, are the same kind of item
+     */
+    private static Class<?> rowClass(Class<?> itemClass) {
+        while (itemClass.getSuperclass() != PlayaItem.class && itemClass != PlayaItem.class) {
+            itemClass = itemClass.getSuperclass();
+        }
+        return itemClass;
+    }
 }
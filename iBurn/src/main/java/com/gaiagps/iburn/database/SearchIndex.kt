@@ -0,0 +1,131 @@
+package com.gaiagps.iburn.database
+
+import android.arch.persistence.db.SupportSQLiteDatabase
+import android.arch.persistence.room.RoomDatabase
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.*
+
+/**
+ * An FTS4 index over the name and description of every [PlayaItem], keyed by [ItemKey].
+ *
+ * Room doesn't model virtual tables, so this table is created by [MIGRATION_2_3] and
+ * [DatabaseCallback], and kept in sync by calling [rebuild], or [update] for a few rows,
+ * within the transaction that modifies an item table.
+ */
+object SearchIndex {
+
+    const val TABLE_NAME = "search_index"
+
+    private const val COL_NAME = "name"
+    private const val COL_DESC = "description"
+
+    // BM25 tuning, and per-column weights in table column order (name, description)
+    private const val K1 = 1.2
+    private const val B = 0.75
+    private val COLUMN_WEIGHTS = doubleArrayOf(4.0, 1.0)
+
+    // Rows updated per statement, keeping statements short
+    private const val UPDATE_CHUNK = 500
+
+    private val NON_TOKEN = Regex("[^\\p{L}\\p{N}]+")
+
+    fun create(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS $TABLE_NAME USING fts4($COL_NAME, $COL_DESC)")
+    }
+
+    /**
+     * Replace the index entries for [table] with its current rows
+     */
+    fun rebuild(db: SupportSQLiteDatabase, table: String) {
+        db.execSQL("DELETE FROM $TABLE_NAME WHERE ${ItemKey.sqlTypeFilter("docid", table)}")
+        db.execSQL("INSERT INTO $TABLE_NAME (docid, $COL_NAME, $COL_DESC) " +
+                "SELECT ${ItemKey.sqlExpression(table)}, ${PlayaItem.NAME}, `${PlayaItem.DESC}` FROM $table")
+    }
+
+    /**
+     * Replace the index entries for the rows of [table] with [ids], removing those of rows no longer in [table].
+     * Cheaper than [rebuild] when few rows changed
+     */
+    fun update(db: SupportSQLiteDatabase, table: String, ids: Collection<Int>) {
+        ids.chunked(UPDATE_CHUNK).forEach { chunk ->
+            val keys = chunk.joinToString(",") { ItemKey.pack(table, it).toString() }
+            db.execSQL("DELETE FROM $TABLE_NAME WHERE docid IN ($keys)")
+            db.execSQL("INSERT INTO $TABLE_NAME (docid, $COL_NAME, $COL_DESC) " +
+                    "SELECT ${ItemKey.sqlExpression(table)}, ${PlayaItem.NAME}, `${PlayaItem.DESC}` FROM $table " +
+                    "WHERE ${PlayaItem.ID} IN (${chunk.joinToString(",")})")
+        }
+    }
+
+    /**
+     * @return an FTS MATCH expression requiring a prefix match on every token of [query],
+     * or null if [query] has no searchable tokens
+     */
+    fun toMatchExpression(query: String): String? {
+        val tokens = query.toLowerCase(Locale.US).split(NON_TOKEN).filter { it.isNotEmpty() }
+        if (tokens.isEmpty()) return null
+        return tokens.joinToString(" ") { "$it*" }
+    }
+
+    /**
+     * @return [ItemKey]s of items matching [query], best match first
+     */
+    fun search(db: RoomDatabase, query: String): List<Long> {
+        val match = toMatchExpression(query) ?: return emptyList()
+
+        val scored = ArrayList<Pair<Long, Double>>()
+        db.query("SELECT docid, matchinfo($TABLE_NAME, 'pcnalx') FROM $TABLE_NAME WHERE $TABLE_NAME MATCH ?",
+                arrayOf(match)).use { cursor ->
+            while (cursor.moveToNext()) {
+                scored.add(Pair(cursor.getLong(0), bm25(cursor.getBlob(1))))
+            }
+        }
+        return scored.sortedByDescending { it.second }.map { it.first }
+    }
+
+    /**
+     * @return ids of items in [table] whose names prefix-match every token of [query]
+     */
+    fun searchNames(db: RoomDatabase, query: String, table: String): List<Int> {
+        val match = toMatchExpression(query) ?: return emptyList()
+
+        val ids = ArrayList<Int>()
+        db.query("SELECT docid FROM $TABLE_NAME WHERE $COL_NAME MATCH ? AND ${ItemKey.sqlTypeFilter("docid", table)}",
+                arrayOf(match)).use { cursor ->
+            while (cursor.moveToNext()) {
+                ids.add(ItemKey.idOf(cursor.getLong(0)))
+            }
+        }
+        return ids
+    }
+
+    /**
+     * Okapi BM25 computed from an FTS4 matchinfo 'pcnalx' blob. See https://www.sqlite.org/fts3.html#matchinfo
+     */
+    private fun bm25(matchinfo: ByteArray): Double {
+        val info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phraseCount = info[0]
+        val columnCount = info[1]
+        val rowCount = info[2].toDouble()
+        val avgLengthOffset = 3
+        val lengthOffset = avgLengthOffset + columnCount
+        val hitsOffset = lengthOffset + columnCount
+
+        var score = 0.0
+        for (phrase in 0 until phraseCount) {
+            for (column in 0 until minOf(columnCount, COLUMN_WEIGHTS.size)) {
+                val hits = hitsOffset + 3 * (phrase * columnCount + column)
+                val termFrequency = info[hits].toDouble()
+                if (termFrequency == 0.0) continue
+
+                val rowsWithTerm = info[hits + 2].toDouble()
+                val idf = Math.max(Math.log((rowCount - rowsWithTerm + 0.5) / (rowsWithTerm + 0.5)), 1e-6)
+                val lengthRatio = info[lengthOffset + column].toDouble() / Math.max(info[avgLengthOffset + column], 1)
+
+                score += COLUMN_WEIGHTS[column] * idf * (termFrequency * (K1 + 1)) /
+                        (termFrequency + K1 * (1 - B + B * lengthRatio))
+            }
+        }
+        return score
+    }
+}
@@ -2,10 +2,14 @@ package com.gaiagps.iburn.database;
 
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
 import android.support.annotation.StringDef;
 
 import java.lang.annotation.Retention;
 
+import static com.gaiagps.iburn.database.PlayaItem.CONTACT;
+import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
+import static com.gaiagps.iburn.database.PlayaItem.URL;
 import static com.gaiagps.iburn.database.UserPoi.TABLE_NAME;
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
@@ -13,7 +17,7 @@ import static java.lang.annotation.RetentionPolicy.SOURCE;
  * Created by dbro on 6/12/17.
  */
 
-@Entity(tableName = TABLE_NAME)
+@Entity(tableName = TABLE_NAME, indices = {@Index(PLAYA_ID)})
 public class UserPoi extends PlayaItem {
     public static final String TABLE_NAME = "user_pois";
 
@@ -33,6 +37,12 @@ public class UserPoi extends PlayaItem {
     })
     public @interface Icon {}
 
+    @ColumnInfo(name = URL)
+    public String url;
+
+    @ColumnInfo(name = CONTACT)
+    public String contact;
+
     @ColumnInfo(name = ICON)
     @Icon
     public String icon;
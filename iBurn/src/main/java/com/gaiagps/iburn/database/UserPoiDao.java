@@ -10,7 +10,7 @@ import java.util.List;
 
 import io.reactivex.Flowable;
 
-import static com.gaiagps.iburn.database.PlayaItem.NAME;
+import static com.gaiagps.iburn.database.PlayaItem.ID;
 import static com.gaiagps.iburn.database.PlayaItem.PLAYA_ID;
 import static com.gaiagps.iburn.database.UserPoi.TABLE_NAME;
 
@@ -21,17 +21,25 @@ import static com.gaiagps.iburn.database.UserPoi.TABLE_NAME;
 @Dao
 public interface UserPoiDao {
 
-    @Query("SELECT * FROM " + TABLE_NAME)
+    // Queries are constants so QueryPlanTest can check the SQL Room compiles
+    String GET_ALL = "SELECT * FROM " + TABLE_NAME;
+    String FIND_BY_IDS = "SELECT * FROM " + TABLE_NAME + " WHERE " + ID + " IN (:ids)";
+    String FIND_BY_PLAYA_ID = "SELECT * FROM " + TABLE_NAME + " WHERE " + PLAYA_ID + " = :playaId";
+
+    @Query(GET_ALL)
     Flowable<List<UserPoi>> getAll();
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + NAME + " LIKE :name")
-    Flowable<List<UserPoi>> findByName(String name);
+    @Query(FIND_BY_IDS)
+    List<UserPoi> findByIds(List<Integer> ids);
 
-    @Query("SELECT * FROM " + TABLE_NAME + " WHERE " + PLAYA_ID + " LIKE :playaId")
+    @Query(FIND_BY_PLAYA_ID)
     Flowable<UserPoi> findByPlayaId(String playaId);
 
+    /**
+     * @return the id of the inserted poi
+     */
     @Insert
-    void insert(UserPoi... poi);
+    long insert(UserPoi poi);
 
     @Update
     void update(UserPoi... poi);
@@ -20,7 +20,7 @@ import android.widget.Filterable;
 import android.widget.TextView;
 
 import com.gaiagps.iburn.R;
-import com.gaiagps.iburn.database.Camp;
+import com.gaiagps.iburn.database.CampRow;
 import com.gaiagps.iburn.database.DataProvider;
 import com.gaiagps.iburn.database.Embargo;
 
@@ -73,7 +73,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
             campSearchView = rootView.findViewById(R.id.campNameSearch);
             campSearchView.setAdapter(new CampAutoCompleteAdapter(getActivity()));
             campSearchView.setOnItemClickListener((parent, view, position, id) -> {
-                Camp selectedCamp = ((Camp) campSearchView.getAdapter().getItem(position));
+                CampRow selectedCamp = ((CampRow) campSearchView.getAdapter().getItem(position));
 
                 if (!selectedCamp.hasLocation() && !selectedCamp.hasUnofficialLocation()) {
                     rootView.findViewById(R.id.error).setVisibility(View.VISIBLE);
@@ -187,7 +187,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
 
     private class CampAutoCompleteAdapter extends BaseAdapter implements Filterable {
 
-        private List<Camp> camps;
+        private List<CampRow> camps;
         private DataProvider dataProvider;
         private CampNameFilter filter;
         LayoutInflater inflater;
@@ -198,7 +198,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
                     .subscribe(readyDataProvider -> this.dataProvider = readyDataProvider);
         }
 
-        public void changeData(List<Camp> camps) {
+        public void changeData(List<CampRow> camps) {
             this.camps = camps;
         }
 
@@ -208,7 +208,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
         }
 
         @Override
-        public Camp getItem(int position) {
+        public CampRow getItem(int position) {
             if (camps == null) return null;
             return camps.get(position);
         }
@@ -230,7 +230,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
             }
 
             if (camps != null) {
-                Camp camp = camps.get(position);
+                CampRow camp = camps.get(position);
                 ((TextView) convertView).setText(camp.name);
             }
 
@@ -256,7 +256,7 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
 
                 if (constraint != null) {
                     String query = constraint.toString();// '%' + constraint.toString() + '%';
-                    List<Camp> camps = dataProvider.observeCampsByName(query).blockingFirst();
+                    List<CampRow> camps = dataProvider.observeCampsByName(query).blockingFirst();
 
                     r.values = camps;
                     r.count = camps.size();
@@ -266,11 +266,11 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                Timber.d("Publish %d result for %s", results.values == null ? 0 : ((List<Camp>) results.values).size(), constraint == null ? "None" : constraint.toString());
+                Timber.d("Publish %d result for %s", results.values == null ? 0 : ((List<CampRow>) results.values).size(), constraint == null ? "None" : constraint.toString());
 
                 if (results.values == null || results.count > 0) {
                     Timber.d("Publishing results to adapter");
-                    changeData((List<Camp>) results.values);
+                    changeData((List<CampRow>) results.values);
                     notifyDataSetChanged();
                 } else {
                     notifyDataSetInvalidated();
@@ -279,8 +279,8 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
 
             @Override
             public CharSequence convertResultToString(Object result) {
-                if (result instanceof Camp) {
-                    return ((Camp) result).name;
+                if (result instanceof CampRow) {
+                    return ((CampRow) result).name;
                 }
                 return super.convertResultToString(result);
             }
@@ -288,6 +288,6 @@ public class WelcomeFragment extends Fragment implements TextureView.SurfaceText
     }
 
     public interface HomeCampSelectionListener {
-        void onHomeCampSelected(Camp homeCamp);
+        void onHomeCampSelected(CampRow homeCamp);
     }
 }
\ No newline at end of file
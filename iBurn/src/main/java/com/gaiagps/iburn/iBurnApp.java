@@ -1,5 +1,6 @@
 package com.gaiagps.iburn;
 
+import com.gaiagps.iburn.js.Geocoder;
 import com.mapbox.mapboxsdk.Mapbox;
 
 import timber.log.Timber;
@@ -19,10 +20,21 @@ public class iBurnApp extends android.app.Application {
             Timber.plant(new Timber.DebugTree());
         }
 
+        // Before Mapbox opens the database the bundled map is installed to
+        MapboxBundledMapKt.installBundledMap(getApplicationContext());
         Mapbox.getInstance(getApplicationContext(), MAPBOX_API_KEY);
 
+        Geocoder.INSTANCE.prewarm(getApplicationContext())
+                .subscribe(() -> {}, throwable -> Timber.e(throwable, "Failed to prewarm geocoding"));
+
         // If we abandon Timber logging in this app, enable below line
         // to enable Timber logging in any library modules that use it
         //Logging.forceLogging();
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        Geocoder.INSTANCE.onTrimMemory(level);
+    }
 }
\ No newline at end of file
@@ -1,114 +1,185 @@
 package com.gaiagps.iburn.js
 
+import android.content.ComponentCallbacks2
 import android.content.Context
-import com.eclipsesource.v8.V8
-import com.eclipsesource.v8.V8Array
+import com.gaiagps.iburn.location.PlayaGeocoder
+import com.gaiagps.iburn.location.ReverseGeocodeCache
+import com.gaiagps.iburn.location.ReverseGeocodeRaster
 import com.mapbox.mapboxsdk.geometry.LatLng
+import io.reactivex.Completable
 import io.reactivex.Single
+import io.reactivex.disposables.Disposable
 import io.reactivex.schedulers.Schedulers
 import timber.log.Timber
-import java.util.concurrent.Executors
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.util.concurrent.TimeUnit
 
 /**
  * Created by dbro on 6/12/17.
  */
 
 /**
- * Use a single threaded executor to prevent spinning up multiple instances of the JS engine,
- * which is very expensive
+ * Addresses shorter than this can't be geocoded
  */
-private val jsScheduler =
-        Schedulers.from(
-                Executors.newSingleThreadExecutor()
-        )
+private const val MIN_ADDRESS_LENGTH = 8
 
+private const val REVERSE_CACHE_FILE = "reverse_geocode_cells"
+
+private const val REVERSE_RASTER_ASSET = "reverse_geocode.raster"
+
+/**
+ * How long [PlayaGeocoder]'s geometry is kept after it was last used
+ */
+private const val GEOCODER_IDLE_TIMEOUT_S = 60L
+
+/**
+ * Geocodes playa addresses with [PlayaGeocoder], off the calling thread
+ */
 object Geocoder {
 
-    val jsPath = "js/bundle.js"
-    private var v8: V8? = null
-    private var jsContent: String? = null
+    private var reverseCache: ReverseGeocodeCache? = null
+    private var reverseRaster: ReverseGeocodeRaster? = null
+    private var reverseRasterOpened = false
+    private var geocoderRelease: Disposable? = null
+
+    /**
+     * Map the reverse geocode raster and read cached cells, so the first reverse geocode doesn't wait on them
+     */
+    fun prewarm(context: Context): Completable {
+        return Completable.fromAction {
+            val startNs = System.nanoTime()
+            getReverseRaster(context)
+            getReverseCache(context).load()
+            Timber.d("Prewarmed reverse geocoding in %d ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs))
+        }.subscribeOn(Schedulers.io())
+    }
+
+    /**
+     * Release memory held for geocoding, at the [level] passed to [ComponentCallbacks2.onTrimMemory].
+     * The geocoder's geometry goes when memory runs low while running, or once in the background. The
+     * reverse cache only goes in the background. Just hiding the UI, at [ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN],
+     * releases nothing: levels aren't ordered by pressure across running and background
+     */
+    @Synchronized
+    fun onTrimMemory(level: Int) {
+        val runningLow = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+        val inBackground = level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+        if (runningLow || inBackground) {
+            releaseGeocoder()
+        }
+        if (inBackground) {
+            reverseCache?.let { cache ->
+                Completable.fromAction { cache.release() }
+                        .subscribeOn(Schedulers.io())
+                        .subscribe({}, { error -> Timber.e(error, "Failed to release reverse geocode cache") })
+            }
+        }
+    }
 
-    fun reverseGeocode(context: Context, lat: Float, lon: Float): Single<String> {
+    /**
+     * Reverse geocode the [ReverseGeocodeCache.cell] containing [lat], [lon]. Within the city that's a lookup
+     * in the bundled [ReverseGeocodeRaster]
+     */
+    fun reverseGeocode(context: Context, lat: Double, lon: Double): Single<String> {
 
-        return Single.just(true)
-                .observeOn(jsScheduler)
-                .map { ignored ->
+        return Single.fromCallable {
+            val playaAddress = getReverseRaster(context)?.reverse(lat, lon)
+                    ?: getReverseCache(context).reverse(lat, lon).also { scheduleGeocoderRelease() }
+            Timber.d("Reverse geocode result %s", playaAddress)
+            playaAddress
+        }.subscribeOn(Schedulers.computation())
 
-                    init(context)
+    }
 
-                    Timber.d("Reverse geocoding...")
-                    // Call into the JavaScript object to decode a string.
-                    val playaAddress = v8?.executeStringScript("coder.reverse($lat, $lon)")
-                    Timber.d("Reverse geocode result %s", playaAddress)
+    /**
+     * Persist reverse geocoded cells, so they're ready on the next launch
+     */
+    fun saveReverseCache(context: Context): Completable {
+        return Completable.fromAction { getReverseCache(context).save() }
+                .subscribeOn(Schedulers.io())
+    }
 
-                    playaAddress ?: "?"
+    @Synchronized
+    private fun getReverseRaster(context: Context): ReverseGeocodeRaster? {
+        if (!reverseRasterOpened) {
+            reverseRasterOpened = true
+            try {
+                val descriptor = context.assets.openFd(REVERSE_RASTER_ASSET)
+                try {
+                    FileInputStream(descriptor.fileDescriptor).channel.use { channel ->
+                        val buffer = channel.map(FileChannel.MapMode.READ_ONLY, descriptor.startOffset, descriptor.length)
+                        reverseRaster = ReverseGeocodeRaster(buffer)
+                    }
+                } finally {
+                    descriptor.close()
                 }
+            } catch (e: IOException) {
+                Timber.e(e, "Failed to open reverse geocode raster")
+            }
+        }
+        return reverseRaster
+    }
 
+    @Synchronized
+    private fun getReverseCache(context: Context): ReverseGeocodeCache {
+        return reverseCache ?: ReverseGeocodeCache(File(context.cacheDir, REVERSE_CACHE_FILE)).also {
+            reverseCache = it
+        }
     }
 
     fun forwardGeocode(context: Context, playaAddress: String): Single<LatLng> {
-        return Single.just(true)
-                .observeOn(jsScheduler)
-                .map { ignored ->
-
-                    init(context)
-
-                    val result = LatLng()
-                    Timber.d("Forward geocoding '$playaAddress'...")
-                    if (playaAddress.length < 8) {
-                        Timber.w("Invalid playa address $playaAddress, not geocoding")
-                    } else {
-                        // Call into the JavaScript object to decode a string.
-                        val latLon = v8?.executeObjectScript("coder.forward(\"$playaAddress\")")
-                        Timber.d("Forward geocode result %s", latLon)
-
-                        latLon?.let {
-                            if (it.toString() == "undefined") {
-                                Timber.w("Undefined result for $playaAddress")
-                                return@let
-                            }
-                            val rawCoords = it.getObject("geometry").getObject("coordinates")
-                            if (rawCoords is V8Array) {
-                                var item: V8Array = rawCoords
-                                while (item.type != 2 /* double */) {
-                                    item = item.getArray(0)
-                                }
-                                val coords = item.getDoubles(0, 2)
-                                Timber.d("Got coords! ${coords[0]}, ${coords[1]}")
-                                result.latitude = coords[1]
-                                result.longitude = coords[0]
-                            }
-                        }
-                    }
-                    result
+        return forwardGeocode(context, listOf(playaAddress)).map { it[0] }
+    }
+
+    /**
+     * Forward geocode [playaAddresses], geocoding each distinct address once
+     *
+     * @return coordinates in the order of [playaAddresses]. Those that can't be geocoded are 0, 0
+     */
+    fun forwardGeocode(context: Context, playaAddresses: List<String>): Single<List<LatLng>> {
+        return Single.fromCallable {
+            val geocoder = PlayaGeocoder.getInstance()
+            val results = HashMap<String, DoubleArray?>()
+            playaAddresses.map { address ->
+                val latLon = if (address in results) {
+                    results[address]
+                } else {
+                    forwardGeocode(geocoder, address).also { results[address] = it }
                 }
+                latLon?.let { LatLng(it[0], it[1]) } ?: LatLng()
+            }.also { scheduleGeocoderRelease() }
+        }.subscribeOn(Schedulers.computation())
     }
 
-    private fun init(context: Context) {
-        if (jsContent == null) {
-            Timber.d("Loading JS...")
-            val inStream = context.assets.open(jsPath)
-            jsContent = inStream.bufferedReader().use { it.readText() }
-            inStream.close()
-            Timber.d("Loaded JS")
-        }
+    /**
+     * Release [PlayaGeocoder] once it's gone unused for [GEOCODER_IDLE_TIMEOUT_S]
+     */
+    @Synchronized
+    private fun scheduleGeocoderRelease() {
+        geocoderRelease?.dispose()
+        geocoderRelease = Schedulers.computation().scheduleDirect(
+                { releaseGeocoder() }, GEOCODER_IDLE_TIMEOUT_S, TimeUnit.SECONDS)
+    }
 
-        if (v8 == null) {
-            Timber.d("Creating V8...")
-            v8 = V8.createV8Runtime()
-            Timber.d("Created V8. Initializing Geocoder...")
-            v8?.executeVoidScript("var window = this;")
-            v8?.executeVoidScript(jsContent)
-            v8?.executeVoidScript("var coder = window.prepare();")
-            Timber.d("Initialized Geocoder")
-        }
+    @Synchronized
+    private fun releaseGeocoder() {
+        geocoderRelease?.dispose()
+        geocoderRelease = null
+        PlayaGeocoder.release()
+        Timber.d("Released geocoder")
     }
 
-    fun close() {
-        Timber.d("Closing")
-        jsScheduler.scheduleDirect {
-            v8?.release()
-            v8 = null
+    private fun forwardGeocode(geocoder: PlayaGeocoder, playaAddress: String): DoubleArray? {
+        if (playaAddress.length < MIN_ADDRESS_LENGTH) {
+            Timber.w("Invalid playa address $playaAddress, not geocoding")
+            return null
         }
+        val latLon = geocoder.forward(playaAddress)
+        if (latLon == null) Timber.w("Undefined result for $playaAddress")
+        return latLon
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,644 @@
+package com.gaiagps.iburn.location;
+
+import com.gaiagps.iburn.location.PlayaGeometry.Area;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import timber.log.Timber;
+
+import static com.gaiagps.iburn.location.PlayaGeometry.convexHull;
+import static com.gaiagps.iburn.location.PlayaGeometry.createArc;
+import static com.gaiagps.iburn.location.PlayaGeometry.destination;
+import static com.gaiagps.iburn.location.PlayaGeometry.difference;
+import static com.gaiagps.iburn.location.PlayaGeometry.feetToMiles;
+
+/**
+ * Converts between Black Rock City addresses, like "7:30 & E", and coordinates.
+ * <p>
+ * This is a port of the JavaScript geocoder iBurn previously ran in a JS engine, and gives the same results:
+ * the street plan is built from {@link PlayaLayout} into the same polygons and lines, and addresses are parsed
+ * and matched to them the same way, quirks included. Instances are immutable, so safe to share between threads.
+ */
+public final class PlayaGeocoder {
+
+    private static final String OUTSIDE = "Outside Black Rock City";
+
+    private static final Pattern SEPARATOR = Pattern.compile("(?: @|&)");
+    private static final Pattern TIME = Pattern.compile("([0-9]|0[0-9]|1[0-9]|2[0-3]):[0-5][0-9]");
+    private static final Pattern FEET = Pattern.compile("[0-9]*(?=')");
+    private static final Pattern FEATURE = Pattern.compile("(^[a-l|rod|p|center].*)|(^.*[plaza|portal].*$)");
+
+    private static final double ARC_FREQUENCY = 5;
+
+    /**
+     * Segments of street lines searched together when reverse geocoding
+     */
+    private static final int RUN_SEGMENTS = 4;
+
+    private static volatile PlayaGeocoder instance;
+    private static int buildCount;
+
+    /**
+     * @return the geocoder for the current layout, built on first use or first use since {@link #release}
+     */
+    public static PlayaGeocoder getInstance() {
+        PlayaGeocoder geocoder = instance;
+        if (geocoder != null) return geocoder;
+
+        synchronized (PlayaGeocoder.class) {
+            if (instance == null) {
+                long startNs = System.nanoTime();
+                instance = new PlayaGeocoder(PlayaLayout.BRC_2018);
+                buildCount++;
+                Timber.d("Built geocoder in %d ms. %d builds",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs), buildCount);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Let the geocoder's geometry be collected once those using it are done. The next {@link #getInstance}
+     * builds it again
+     */
+    public static void release() {
+        instance = null;
+    }
+
+    /**
+     * A named street or area an address can refer to
+     */
+    private static abstract class Feature {
+        final String name;
+        final String lowerCaseName;
+
+        Feature(String name) {
+            this.name = name;
+            this.lowerCaseName = name.toLowerCase(Locale.US);
+        }
+
+        /**
+         * @return the first point where the segment from 0 to 1 meets this feature, or null
+         */
+        abstract double[] intersect(double x0, double y0, double x1, double y1);
+    }
+
+    private static final class Street extends Feature {
+        final String ref;
+        final List<double[]> lines;
+
+        Street(String name, String ref, List<double[]> lines) {
+            super(name);
+            this.ref = ref;
+            this.lines = lines;
+        }
+
+        Street(String name, String ref, double[] line) {
+            this(name, ref, Collections.singletonList(line));
+        }
+
+        @Override
+        double[] intersect(double x0, double y0, double x1, double y1) {
+            return PlayaGeometry.intersectLines(x0, y0, x1, y1, lines);
+        }
+    }
+
+    private static final class Place extends Feature {
+        final Area area;
+
+        Place(String name, Area area) {
+            super(name);
+            this.area = area;
+        }
+
+        @Override
+        double[] intersect(double x0, double y0, double x1, double y1) {
+            return PlayaGeometry.intersectArea(x0, y0, x1, y1, area);
+        }
+    }
+
+    /**
+     * A run of consecutive segments of a street line, and their bounding box
+     */
+    private static final class StreetRun {
+        final Street street;
+        final double[] line;
+        final int from;
+        final int to;
+        final double minX, minY, maxX, maxY;
+
+        StreetRun(Street street, double[] line, int from, int to) {
+            this.street = street;
+            this.line = line;
+            this.from = from;
+            this.to = to;
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = from; i < to + 2 && i < line.length; i += 2) {
+                minX = Math.min(minX, line[i]);
+                maxX = Math.max(maxX, line[i]);
+                minY = Math.min(minY, line[i + 1]);
+                maxY = Math.max(maxY, line[i + 1]);
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        double distanceToBox(double x, double y) {
+            return PlayaGeometry.distanceToBox(x, y, minX, minY, maxX, maxY);
+        }
+
+        double pointOnLine(double x, double y, double[] closest) {
+            return PlayaGeometry.pointOnLine(x, y, line, from, to, closest);
+        }
+    }
+
+    /**
+     * The parts of an address
+     */
+    private static final class ParsedAddress {
+        String time;
+        /**
+         * In feet, NaN if not given
+         */
+        double distance = Double.NaN;
+        String feature;
+    }
+
+    private final PlayaLayout layout;
+    private final double[] center;
+    private final double[] centerCampCenter;
+
+    private final Place centerPlaza;
+    private final Place cafe;
+    private final Place innerPlaya;
+    private final Place outerPlaya;
+    private final Area streetsArea;
+    /**
+     * Streets reverse geocoded results are given on, in runs of {@link #RUN_SEGMENTS}
+     */
+    private final List<StreetRun> reverseStreetRuns = new ArrayList<>();
+
+    /**
+     * Streets and areas addresses can refer to, in the order they're matched
+     */
+    private final List<Feature> features = new ArrayList<>();
+
+    PlayaGeocoder(PlayaLayout layout) {
+        this.layout = layout;
+        center = layout.center;
+        centerCampCenter = destination(center, feetToMiles(layout.centerCampDistance), layout.timeToBearing(6, 0));
+
+        // Center camp streets
+        double[] rodRoad = createArc(centerCampCenter, feetToMiles(layout.rodRoadDistance), 0, 360, ARC_FREQUENCY);
+        Area rodArea = Area.polygon(rodRoad);
+        double plazaRoadRadius = feetToMiles(layout.cafeRadius + (layout.cafePlazaRadius - layout.cafeRadius) / 2);
+        double[] plazaRoad = createArc(centerCampCenter, plazaRoadRadius, 0, 360, ARC_FREQUENCY);
+        Area plazaRoadArea = Area.polygon(plazaRoad);
+
+        // A runs from the plaza road out to where A meets Rod's Road, on either side
+        PlayaLayout.CircleStreet aInfo = find(layout.circleStreets, "a");
+        List<double[]> aStreet = circleStreet(aInfo);
+        double[][] aEnds = intersections(aStreet, rodRoad);
+        double[] a1 = difference(Collections.singletonList(new double[]{centerCampCenter[0], centerCampCenter[1],
+                aEnds[0][0], aEnds[0][1]}), plazaRoadArea).get(0);
+        double[] a2 = difference(Collections.singletonList(new double[]{centerCampCenter[0], centerCampCenter[1],
+                aEnds[1][0], aEnds[1][1]}), plazaRoadArea).get(0);
+
+        // Route 66 arcs between the A spokes, man facing and six facing, less the 6:00 portal
+        double a1Bearing = PlayaGeometry.bearing(a1[0], a1[1], a1[2], a1[3]);
+        double a2Bearing = PlayaGeometry.bearing(a2[0], a2[1], a2[2], a2[3]);
+        double negativeBearing;
+        double positiveBearing;
+        if (a1Bearing < 0) {
+            negativeBearing = 360 + a1Bearing;
+            positiveBearing = a2Bearing;
+        } else {
+            negativeBearing = 360 + a2Bearing;
+            positiveBearing = a1Bearing;
+        }
+        double manDistance = feetToMiles(layout.sixSixManFacingDistance);
+        double[] arc0 = createArc(centerCampCenter, manDistance, negativeBearing, 360, ARC_FREQUENCY);
+        double[] arc1 = createArc(centerCampCenter, manDistance, 0, positiveBearing, ARC_FREQUENCY);
+        double[] manFacing = Arrays.copyOf(arc0, arc0.length - 2 + arc1.length);
+        System.arraycopy(arc1, 0, manFacing, arc0.length - 2, arc1.length);
+        double sixDistance = feetToMiles(layout.sixSixSixFacingDistance);
+        double[] sixFacing = createArc(centerCampCenter, sixDistance, positiveBearing, negativeBearing, ARC_FREQUENCY);
+
+        List<double[]> esplanade = circleStreet(find(layout.circleStreets, "esplanade"));
+        List<Place> portals = portals(esplanade, rodRoad);
+        Area sixPortal = null;
+        for (Place portal : portals) {
+            if (portal.name.equals("6:00 Portal")) sixPortal = portal.area;
+        }
+        List<double[]> routeSixSix = difference(Arrays.asList(manFacing, sixFacing), sixPortal);
+
+        List<Street> streets = new ArrayList<>();
+        streets.add(new Street("Rod's Road", "rod", rodRoad));
+        streets.add(new Street("Inner Circle", "centerCampPlazaRoad", plazaRoad));
+        streets.add(new Street(aInfo.name, aInfo.ref, a1));
+        streets.add(new Street(aInfo.name, aInfo.ref, a2));
+        streets.add(new Street("Route 66", "66", routeSixSix));
+
+        // Circle streets, less center camp
+        for (PlayaLayout.CircleStreet info : layout.circleStreets) {
+            streets.add(new Street(info.name, info.ref, difference(circleStreet(info), rodArea)));
+        }
+        for (Street street : streets) {
+            for (double[] line : street.lines) {
+                for (int from = 0; from + 3 < line.length; from += RUN_SEGMENTS * 2) {
+                    reverseStreetRuns.add(new StreetRun(street, line, from, from + RUN_SEGMENTS * 2));
+                }
+            }
+        }
+
+        // Time streets, less the center camp plaza, and the airport road from the end of 5:00
+        double[] fence = fence();
+        for (PlayaLayout.TimeStreets info : layout.timeStreets) {
+            for (String time : info.refs) {
+                double bearing = layout.timeToBearing(time);
+                List<double[]> lines = new ArrayList<>();
+                for (String[] segment : info.segments) {
+                    double[] start = destination(center, feetToMiles(layout.distance(segment[0])), bearing);
+                    double[] end = destination(center, feetToMiles(layout.distance(segment[1])), bearing);
+                    lines.add(new double[]{start[0], start[1], end[0], end[1]});
+                }
+                List<double[]> cut = difference(lines, plazaRoadArea);
+                streets.add(new Street(time, time, cut));
+
+                if (time.equals("5:00")) {
+                    double[] line = cut.get(cut.size() - 1);
+                    streets.add(new Street("Airport Road", "airport",
+                            airportRoad(line[line.length - 2], line[line.length - 1], fence)));
+                }
+            }
+        }
+        streets.add(new Street("Entrance Road", "entrance", entranceRoad(fence)));
+        features.addAll(streets);
+
+        // Plazas, center camp, and portals less them
+        List<Place> places = new ArrayList<>();
+        for (PlayaLayout.Plaza plaza : layout.plazas) {
+            double[] point = plaza.distance.equals("0") ? center :
+                    destination(center, feetToMiles(layout.distance(plaza.distance)), layout.timeToBearing(plaza.time));
+            places.add(new Place(plaza.name, Area.polygon(
+                    createArc(point, feetToMiles(plaza.diameter) / 2, 0, 360, ARC_FREQUENCY))));
+        }
+        double[] cafeRing = createArc(centerCampCenter, feetToMiles(layout.cafeRadius), 0, 360, ARC_FREQUENCY);
+        double[] plazaRing = createArc(centerCampCenter, feetToMiles(layout.cafePlazaRadius), 0, 360, ARC_FREQUENCY);
+        cafe = new Place("Caf\u00e9", Area.polygon(cafeRing));
+        centerPlaza = new Place("Center Camp Plaza", Area.polygon(plazaRing, cafeRing));
+        places.add(cafe);
+        places.add(centerPlaza);
+        features.addAll(places);
+        for (Place portal : portals) {
+            Area area = portal.area;
+            for (Place place : places) {
+                area = area.minus(place.area);
+            }
+            features.add(new Place(portal.name, area));
+        }
+
+        // Playa areas
+        double esplanadeDistance = feetToMiles(find(layout.circleStreets, "esplanade").distance);
+        innerPlaya = new Place(PlayaLayout.INNER_PLAYA,
+                Area.polygon(createArc(center, esplanadeDistance, 0, 360, ARC_FREQUENCY)).minus(rodArea));
+        streetsArea = Area.polygon(streetsRing(esplanade)).union(rodArea);
+        outerPlaya = new Place(PlayaLayout.OUTER_PLAYA,
+                Area.polygon(fence).minus(streetsArea).minus(rodArea).minus(innerPlaya.area));
+    }
+
+    /**
+     * @return the address nearest latitude, longitude: an intersection like "7:30 & E", a time and distance
+     * from the Man on open playa, a place name, or "Outside Black Rock City"
+     */
+    public String reverse(double latitude, double longitude) {
+        double x = longitude;
+        double y = latitude;
+        if (centerPlaza.area.contains(x, y)) {
+            return centerPlaza.name;
+        } else if (cafe.area.contains(x, y)) {
+            return cafe.name;
+        } else if (innerPlaya.area.contains(x, y)) {
+            return playaResult(x, y, innerPlaya);
+        } else if (outerPlaya.area.contains(x, y)) {
+            return playaResult(x, y, outerPlaya);
+        } else if (streetsArea.contains(x, y)) {
+            return streetResult(x, y);
+        } else {
+            return OUTSIDE;
+        }
+    }
+
+    /**
+     * @return the latitude and longitude of address, or null if it can't be geocoded
+     */
+    public double[] forward(String address) {
+        double[] location = layout.hardcodedLocations.get(address);
+        if (location == null) {
+            location = geocode(address);
+        }
+        return location == null ? null : new double[]{location[1], location[0]};
+    }
+
+    private String playaResult(double x, double y, Place playa) {
+        return layout.playaAddress(x, y, playa.name);
+    }
+
+    private String streetResult(double x, double y) {
+        // Closest point at 0 and 1, and scratch space
+        double[] point = new double[4];
+
+        // The runs nearest x, y bound the distance to the closest street from above.
+        // Only runs that might come closer need to be searched
+        double bound = Double.MAX_VALUE;
+        double nearestBox = Double.MAX_VALUE;
+        StreetRun nearest = null;
+        for (StreetRun run : reverseStreetRuns) {
+            double distance = run.distanceToBox(x, y);
+            if (distance < nearestBox) {
+                nearestBox = distance;
+                nearest = run;
+            }
+        }
+        if (nearest != null) {
+            bound = nearest.pointOnLine(x, y, point);
+        }
+
+        // Search in street order, so ties go to the same street as they always have
+        double bestX = 0;
+        double bestY = 0;
+        double bestDistance = Double.MAX_VALUE;
+        Street best = null;
+        for (StreetRun run : reverseStreetRuns) {
+            if (run.distanceToBox(x, y) > bound) continue;
+            double distance = run.pointOnLine(x, y, point);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestX = point[0];
+                bestY = point[1];
+                best = run.street;
+            }
+        }
+        if (best == null) {
+            return OUTSIDE;
+        }
+        double[] from = isCenterCampStreet(best.ref) ? centerCampCenter : center;
+        return layout.bearingToTime(PlayaGeometry.bearing(from[0], from[1], bestX, bestY)) + " & " + best.name;
+    }
+
+    private static boolean isCenterCampStreet(String ref) {
+        return ref.equals("66") || ref.equals("rod") || ref.equals("centerCampPlazaRoad");
+    }
+
+    /**
+     * @return longitude, latitude
+     */
+    private double[] geocode(String address) {
+        ParsedAddress parsed = parse(address);
+        if (parsed == null) {
+            return null;
+        }
+        if (parsed.distance >= 0) {
+            if (parsed.time == null) return null;
+            return destination(center, feetToMiles(parsed.distance), layout.timeToBearing(parsed.time));
+        }
+        if (parsed.time == null || parsed.feature == null) {
+            return null;
+        }
+
+        String featureName = parsed.feature;
+        double timeBearing = layout.timeToBearing(parsed.time);
+        double[] start = featureName.contains("rod") || featureName.contains("inner") ||
+                featureName.contains("66") || featureName.contains("center camp") ? centerCampCenter : center;
+
+        List<Feature> matches = new ArrayList<>();
+        for (Feature feature : features) {
+            int largestNameLength = Math.max(feature.lowerCaseName.length(), featureName.length());
+            double match = (largestNameLength - levenshtein(feature.lowerCaseName, featureName)) / (double) largestNameLength;
+            if (match > .6) {
+                matches.add(feature);
+            }
+        }
+
+        // Look along the time, then a little either side of it
+        double[] end = new double[2];
+        for (int i = 0; i < 3; i++) {
+            double bearing = i > 1 ? timeBearing - 1 / 20d : timeBearing + i / 20d;
+            PlayaGeometry.destination(start[0], start[1], 5, bearing, PlayaGeometry.MILES, end, 0);
+            for (Feature feature : matches) {
+                double[] intersection = feature.intersect(start[0], start[1], end[0], end[1]);
+                if (intersection != null) {
+                    return intersection;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the parts of string, or null if any part is empty
+     */
+    private static ParsedAddress parse(String string) {
+        if (string == null || string.isEmpty()) {
+            return null;
+        }
+        string = string.trim().toLowerCase(Locale.US);
+
+        String[] split = SEPARATOR.split(string, -1);
+        if (split.length > 1) {
+            ParsedAddress result = new ParsedAddress();
+            for (String item : split) {
+                ParsedAddress part = parse(item.trim());
+                if (part == null) return null;
+                if (part.time != null) result.time = part.time;
+                if (part.distance > 0) result.distance = part.distance;
+                if (part.feature != null) result.feature = part.feature;
+            }
+            return result;
+        }
+
+        ParsedAddress result = new ParsedAddress();
+        Matcher time = TIME.matcher(string);
+        if (time.find()) {
+            result.time = time.group();
+        }
+        result.distance = -1;
+        Matcher feet = FEET.matcher(string);
+        if (feet.find() && feet.group().length() > 0) {
+            result.distance = Double.parseDouble(feet.group());
+        }
+        Matcher feature = FEATURE.matcher(string);
+        if (feature.find()) {
+            result.feature = feature.group();
+        }
+        return result;
+    }
+
+    private static int levenshtein(String m, String n) {
+        if (m.equals(n)) return 0;
+        if (m.isEmpty()) return n.length();
+        if (n.isEmpty()) return m.length();
+        int[] previous = new int[m.length() + 1];
+        int[] current = new int[m.length() + 1];
+        for (int i = 0; i <= m.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= n.length(); j++) {
+            current[0] = j;
+            for (int i = 1; i <= m.length(); i++) {
+                if (m.charAt(i - 1) == n.charAt(j - 1)) {
+                    current[i] = previous[i - 1];
+                } else {
+                    current[i] = Math.min(Math.min(previous[i] + 1, current[i - 1] + 1), previous[i - 1] + 1);
+                }
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m.length()];
+    }
+
+    // Layout geometry
+
+    private static PlayaLayout.CircleStreet find(PlayaLayout.CircleStreet[] streets, String ref) {
+        for (PlayaLayout.CircleStreet street : streets) {
+            if (street.ref.equals(ref)) return street;
+        }
+        throw new IllegalArgumentException("No street " + ref);
+    }
+
+    private List<double[]> circleStreet(PlayaLayout.CircleStreet street) {
+        List<double[]> lines = new ArrayList<>();
+        for (String[] segment : street.segments) {
+            lines.add(createArc(center, feetToMiles(street.distance), layout.timeToBearing(segment[0]),
+                    layout.timeToBearing(segment[1]), ARC_FREQUENCY));
+        }
+        return lines;
+    }
+
+    /**
+     * @return the points where lines meet line, in x, then y order
+     */
+    private static double[][] intersections(List<double[]> lines, double[] line) {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i + 3 < line.length; i += 2) {
+            // Each segment of line is short enough to meet lines at most once
+            double[] point = PlayaGeometry.intersectLines(line[i], line[i + 1], line[i + 2], line[i + 3], lines);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        Collections.sort(points, (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        return points.toArray(new double[0][]);
+    }
+
+    /**
+     * @return the fence around the city, as a closed ring
+     */
+    private double[] fence() {
+        List<double[]> vertices = new ArrayList<>();
+        for (double bearing = 0; bearing < 365; bearing += 360 / 5) {
+            vertices.add(destination(center, feetToMiles(layout.fenceDistance), bearing + layout.bearing));
+        }
+        return convexHull(vertices);
+    }
+
+    /**
+     * @return the road from x, y to the nearest fence vertex
+     */
+    private static double[] airportRoad(double x, double y, double[] fence) {
+        double winningX = 0;
+        double winningY = 0;
+        double winningDistance = 300;
+        for (int i = 0; i < fence.length; i += 2) {
+            double distance = PlayaGeometry.distance(fence[i], fence[i + 1], x, y, PlayaGeometry.KILOMETERS);
+            if (distance < winningDistance) {
+                winningDistance = distance;
+                winningX = fence[i];
+                winningY = fence[i + 1];
+            }
+        }
+        return new double[]{x, y, winningX, winningY};
+    }
+
+    /**
+     * @return the road in from where 6:00 meets the fence, forking toward 12:00
+     */
+    private List<double[]> entranceRoad(double[] fence) {
+        double[] longSix = destination(center, 5, layout.timeToBearing(6, 0));
+        double[] gate = PlayaGeometry.intersectLines(center[0], center[1], longSix[0], longSix[1],
+                Collections.singletonList(fence));
+        double[] fork = destination(gate, feetToMiles(layout.entranceRoadDistance), layout.timeToBearing(12, 0));
+
+        List<double[]> lines = new ArrayList<>();
+        lines.add(new double[]{gate[0], gate[1], fork[0], fork[1]});
+
+        double[] lStreet = circleStreet(find(layout.circleStreets, "l")).get(0);
+        double[] outerRing = Arrays.copyOf(lStreet, lStreet.length + 2);
+        outerRing[lStreet.length] = lStreet[0];
+        outerRing[lStreet.length + 1] = lStreet[1];
+        Area outer = Area.polygon(outerRing);
+        for (double bearing : new double[]{layout.bearing + layout.entranceRoadAngle / 2,
+                layout.bearing - layout.entranceRoadAngle / 2}) {
+            double[] end = destination(fork, 1, bearing);
+            lines.addAll(difference(Collections.singletonList(new double[]{fork[0], fork[1], end[0], end[1]}), outer));
+        }
+        return lines;
+    }
+
+    /**
+     * @return triangles opening toward the Man from each portal's street, up to Esplanade or Rod's Road
+     */
+    private List<Place> portals(List<double[]> esplanade, double[] rodRoad) {
+        Area esplanadeHull = Area.polygon(convexHull(esplanade));
+        Area rodRoadHull = Area.polygon(convexHull(Collections.singletonList(rodRoad)));
+        List<Place> portals = new ArrayList<>();
+        for (PlayaLayout.Portal info : layout.portals) {
+            double distance = feetToMiles(layout.distance(info.distance));
+            double timeBearing = layout.timeToBearing(info.time);
+            double[] start = destination(center, distance, timeBearing);
+            double portalBearing = 180 - Math.abs(timeBearing);
+            if (timeBearing > 0) {
+                portalBearing = portalBearing * -1;
+            }
+            double[] first = destination(start, .5, portalBearing - info.angle / 2);
+            double[] second = destination(start, .5, portalBearing + info.angle / 2);
+            Area triangle = Area.polygon(new double[]{start[0], start[1], first[0], first[1], second[0], second[1],
+                    start[0], start[1]});
+            portals.add(new Place(info.name,
+                    info.time.equals("6:00") ? triangle.intersect(rodRoadHull) : triangle.minus(esplanadeHull)));
+        }
+        return portals;
+    }
+
+    /**
+     * @return the band between Esplanade and the outermost street, as a closed ring
+     */
+    private double[] streetsRing(List<double[]> esplanade) {
+        List<double[]> outer = circleStreet(layout.circleStreets[layout.circleStreets.length - 1]);
+        PlayaGeometry.CoordinateList ring = new PlayaGeometry.CoordinateList();
+        for (int l = outer.size() - 1; l >= 0; l--) {
+            double[] line = outer.get(l);
+            for (int i = line.length - 2; i >= 0; i -= 2) {
+                ring.add(line[i], line[i + 1]);
+            }
+        }
+        for (double[] line : esplanade) {
+            ring.add(line);
+        }
+        double[] points = ring.toArray();
+        ring.add(points[0], points[1]);
+        return ring.toArray();
+    }
+}
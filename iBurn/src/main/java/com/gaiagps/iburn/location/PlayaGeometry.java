@@ -0,0 +1,465 @@
+package com.gaiagps.iburn.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Geometry behind {@link PlayaGeocoder}. The spherical functions follow the Turf.js versions the JavaScript
+ * geocoder was built on, using {@link StrictMath} so they round as the JS engine does. Polygon operations the
+ * JavaScript geocoder delegated to JSTS are done with clipping and point-in-polygon tests instead.
+ * <p>
+ * Coordinates are longitude, latitude pairs packed into flat arrays. Distances are in miles unless noted.
+ */
+final class PlayaGeometry {
+
+    static final double MILES = 3960;
+    static final double KILOMETERS = 6373;
+
+    private PlayaGeometry() {
+    }
+
+    static double feetToMiles(double feet) {
+        return feet * 189394e-9;
+    }
+
+    static double milesToFeet(double miles) {
+        return miles / 189394e-9;
+    }
+
+    private static double toRad(double degree) {
+        return degree * Math.PI / 180;
+    }
+
+    private static double toDeg(double radian) {
+        return radian * 180 / Math.PI;
+    }
+
+    /**
+     * Write the point distance along bearing from lon, lat to out[offset], out[offset + 1]
+     *
+     * @param radius of the earth, in the units of distance
+     */
+    static void destination(double lon, double lat, double distance, double bearing, double radius,
+                            double[] out, int offset) {
+        double longitude1 = toRad(lon);
+        double latitude1 = toRad(lat);
+        double bearingRad = toRad(bearing);
+        double latitude2 = StrictMath.asin(StrictMath.sin(latitude1) * StrictMath.cos(distance / radius) +
+                StrictMath.cos(latitude1) * StrictMath.sin(distance / radius) * StrictMath.cos(bearingRad));
+        double longitude2 = longitude1 + StrictMath.atan2(
+                StrictMath.sin(bearingRad) * StrictMath.sin(distance / radius) * StrictMath.cos(latitude1),
+                StrictMath.cos(distance / radius) - StrictMath.sin(latitude1) * StrictMath.sin(latitude2));
+        out[offset] = toDeg(longitude2);
+        out[offset + 1] = toDeg(latitude2);
+    }
+
+    static double[] destination(double[] point, double distance, double bearing) {
+        double[] result = new double[2];
+        destination(point[0], point[1], distance, bearing, MILES, result, 0);
+        return result;
+    }
+
+    /**
+     * @return the initial bearing from 1 to 2, in degrees between -180 and 180
+     */
+    static double bearing(double lon1, double lat1, double lon2, double lat2) {
+        double lon1Rad = toRad(lon1);
+        double lon2Rad = toRad(lon2);
+        double lat1Rad = toRad(lat1);
+        double lat2Rad = toRad(lat2);
+        double a = StrictMath.sin(lon2Rad - lon1Rad) * StrictMath.cos(lat2Rad);
+        double b = StrictMath.cos(lat1Rad) * StrictMath.sin(lat2Rad) -
+                StrictMath.sin(lat1Rad) * StrictMath.cos(lat2Rad) * StrictMath.cos(lon2Rad - lon1Rad);
+        return toDeg(StrictMath.atan2(a, b));
+    }
+
+    /**
+     * @return the haversine distance from 1 to 2, in the units of radius
+     */
+    static double distance(double lon1, double lat1, double lon2, double lat2, double radius) {
+        double dLat = toRad(lat2 - lat1);
+        double dLon = toRad(lon2 - lon1);
+        double lat1Rad = toRad(lat1);
+        double lat2Rad = toRad(lat2);
+        double a = StrictMath.sin(dLat / 2) * StrictMath.sin(dLat / 2) +
+                StrictMath.sin(dLon / 2) * StrictMath.sin(dLon / 2) * StrictMath.cos(lat1Rad) * StrictMath.cos(lat2Rad);
+        double c = 2 * StrictMath.atan2(StrictMath.sqrt(a), StrictMath.sqrt(1 - a));
+        return radius * c;
+    }
+
+    /**
+     * @return whether the normalized second bearing is less than the first
+     */
+    private static boolean bearingCompare(double firstBearing, double secondBearing) {
+        firstBearing = (firstBearing % 360 + 360) % 360;
+        secondBearing = (secondBearing % 360 + 360) % 360;
+        return secondBearing < firstBearing;
+    }
+
+    /**
+     * @return points every frequency degrees around center from startBearing to endBearing, closed into a ring
+     * when the bearings coincide
+     */
+    static double[] createArc(double[] center, double distance, double startBearing, double endBearing,
+                              double frequency) {
+        boolean fullCircle = endBearing % 360 == startBearing % 360;
+        boolean endsAtZero = endBearing % 360 == 0;
+        if (endsAtZero || fullCircle) {
+            endBearing += -1 * frequency;
+        }
+        CoordinateList points = new CoordinateList();
+        double currentBearing = startBearing;
+        while (bearingCompare(endBearing, currentBearing)) {
+            points.addDestination(center, distance, currentBearing);
+            currentBearing += frequency;
+            if (currentBearing > 180) {
+                currentBearing += -360;
+            }
+        }
+        points.addDestination(center, distance, endBearing);
+        if (endsAtZero || fullCircle) {
+            points.addDestination(center, distance, endBearing + frequency);
+        }
+        return points.toArray();
+    }
+
+    /**
+     * @return the convex hull of the points of lines, as a closed ring
+     */
+    static double[] convexHull(List<double[]> lines) {
+        List<double[]> points = new ArrayList<>();
+        for (double[] line : lines) {
+            for (int i = 0; i < line.length; i += 2) {
+                points.add(new double[]{line[i], line[i + 1]});
+            }
+        }
+        Collections.sort(points, (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+
+        // Andrew's monotone chain, lower hull then upper
+        double[][] hull = new double[points.size() * 2][];
+        int size = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int start = size;
+            for (int i = 0; i < points.size(); i++) {
+                double[] point = points.get(pass == 0 ? i : points.size() - 1 - i);
+                while (size >= start + 2 && cross(hull[size - 2], hull[size - 1], point) <= 0) {
+                    size--;
+                }
+                hull[size++] = point;
+            }
+            size--;
+        }
+
+        double[] ring = new double[(size + 1) * 2];
+        for (int i = 0; i <= size; i++) {
+            double[] point = hull[i % size];
+            ring[i * 2] = point[0];
+            ring[i * 2 + 1] = point[1];
+        }
+        return ring;
+    }
+
+    private static double cross(double[] o, double[] a, double[] b) {
+        return (a[0] - o[0]) * (b[1] - o[1]) - (a[1] - o[1]) * (b[0] - o[0]);
+    }
+
+    /**
+     * Even-odd test of whether x, y is within the closed ring
+     */
+    static boolean inRing(double x, double y, double[] ring) {
+        boolean isInside = false;
+        int n = ring.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = ring[i * 2], yi = ring[i * 2 + 1];
+            double xj = ring[j * 2], yj = ring[j * 2 + 1];
+            boolean intersect = ((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi);
+            if (intersect) {
+                isInside = !isInside;
+            }
+        }
+        return isInside;
+    }
+
+    /**
+     * Find the point of line closest to x, y, as turf.pointOnLine does, considering the segments starting
+     * at coordinates from up to to
+     *
+     * @param closest receives the closest point's coordinates at 0 and 1. Indices 2 and 3 are scratch space
+     * @return the distance in miles to the closest point, or {@link Double#POSITIVE_INFINITY} if there are
+     * no segments
+     */
+    static double pointOnLine(double x, double y, double[] line, int from, int to, double[] closest) {
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to && i + 3 < line.length; i += 2) {
+            double startX = line[i], startY = line[i + 1];
+            double stopX = line[i + 2], stopY = line[i + 3];
+            double startDistance = distance(x, y, startX, startY, MILES);
+            double stopDistance = distance(x, y, stopX, stopY, MILES);
+            double direction = bearing(startX, startY, stopX, stopY);
+
+            destination(x, y, 1e3, direction + 90, MILES, closest, 2);
+            boolean intersects = perpendicularIntersects(x, y, startX, startY, stopX, stopY, closest);
+            if (!intersects) {
+                destination(x, y, 1e3, direction - 90, MILES, closest, 2);
+                intersects = perpendicularIntersects(x, y, startX, startY, stopX, stopY, closest);
+            }
+            double intersectDistance = intersects ? distance(x, y, closest[2], closest[3], MILES) : 0;
+
+            if (startDistance < closestDistance) {
+                closestDistance = startDistance;
+                closest[0] = startX;
+                closest[1] = startY;
+            }
+            if (stopDistance < closestDistance) {
+                closestDistance = stopDistance;
+                closest[0] = stopX;
+                closest[1] = stopY;
+            }
+            if (intersects && intersectDistance < closestDistance) {
+                closestDistance = intersectDistance;
+                closest[0] = closest[2];
+                closest[1] = closest[3];
+            }
+        }
+        return closestDistance;
+    }
+
+    /**
+     * @return a lower bound on the distance in miles from x, y to any point within the bounding box
+     */
+    static double distanceToBox(double x, double y, double minX, double minY, double maxX, double maxY) {
+        double dx = x < minX ? minX - x : x > maxX ? x - maxX : 0;
+        double dy = y < minY ? minY - y : y > maxY ? y - maxY : 0;
+        // Equirectangular distance, scaled at the latitude farthest from the equator, is within a fraction
+        // of a percent of the haversine distance over a city. Shave off more than that
+        double cosLatitude = Math.cos(toRad(Math.max(Math.max(Math.abs(minY), Math.abs(maxY)), Math.abs(y))));
+        return 0.99 * MILES * toRad(Math.sqrt(dy * dy + dx * cosLatitude * dx * cosLatitude));
+    }
+
+    /**
+     * Intersect the line from x, y to the point at point[2], point[3] with the segment from start to stop,
+     * strictly within both, writing the intersection to point[2], point[3]
+     */
+    private static boolean perpendicularIntersects(double x, double y, double startX, double startY,
+                                                   double stopX, double stopY, double[] point) {
+        double endX = point[2], endY = point[3];
+        double denominator = (stopY - startY) * (endX - x) - (stopX - startX) * (endY - y);
+        if (denominator == 0) {
+            return false;
+        }
+        double a = y - startY;
+        double b = x - startX;
+        double numerator1 = (stopX - startX) * a - (stopY - startY) * b;
+        double numerator2 = (endX - x) * a - (endY - y) * b;
+        a = numerator1 / denominator;
+        b = numerator2 / denominator;
+        if (a > 0 && a < 1 && b > 0 && b < 1) {
+            point[2] = x + a * (endX - x);
+            point[3] = y + a * (endY - y);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the parameter along p0-p1 at which it meets q0-q1, or NaN if the segments don't meet or are parallel
+     */
+    private static double crossing(double p0x, double p0y, double p1x, double p1y,
+                                   double q0x, double q0y, double q1x, double q1y) {
+        double rx = p1x - p0x, ry = p1y - p0y;
+        double sx = q1x - q0x, sy = q1y - q0y;
+        double denominator = rx * sy - ry * sx;
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        double qpx = q0x - p0x, qpy = q0y - p0y;
+        double t = (qpx * sy - qpy * sx) / denominator;
+        double u = (qpx * ry - qpy * rx) / denominator;
+        return t >= 0 && t <= 1 && u >= 0 && u <= 1 ? t : Double.NaN;
+    }
+
+    /**
+     * @return the intersection of segment p0-p1 with lines first in x, then y order, or null if they don't meet
+     */
+    static double[] intersectLines(double p0x, double p0y, double p1x, double p1y, List<double[]> lines) {
+        double[] first = null;
+        for (double[] line : lines) {
+            for (int i = 0; i + 3 < line.length; i += 2) {
+                double t = crossing(p0x, p0y, p1x, p1y, line[i], line[i + 1], line[i + 2], line[i + 3]);
+                if (Double.isNaN(t)) continue;
+                double x = p0x + t * (p1x - p0x);
+                double y = p0y + t * (p1y - p0y);
+                if (first == null || x < first[0] || (x == first[0] && y < first[1])) {
+                    first = new double[]{x, y};
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return the first point along segment p0-p1 within area, or null if it doesn't enter area
+     */
+    static double[] intersectArea(double p0x, double p0y, double p1x, double p1y, Area area) {
+        double[] ts = area.crossings(p0x, p0y, p1x, p1y);
+        for (int i = 0; i + 1 < ts.length; i++) {
+            double t0 = ts[i], t1 = ts[i + 1];
+            if (t1 <= t0) continue;
+            double mid = (t0 + t1) / 2;
+            if (area.contains(p0x + mid * (p1x - p0x), p0y + mid * (p1y - p0y))) {
+                return new double[]{p0x + t0 * (p1x - p0x), p0y + t0 * (p1y - p0y)};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the parts of lines outside area
+     */
+    static List<double[]> difference(List<double[]> lines, Area area) {
+        List<double[]> pieces = new ArrayList<>();
+        CoordinateList piece = new CoordinateList();
+        for (double[] line : lines) {
+            for (int i = 0; i + 3 < line.length; i += 2) {
+                double p0x = line[i], p0y = line[i + 1];
+                double p1x = line[i + 2], p1y = line[i + 3];
+                double[] ts = area.crossings(p0x, p0y, p1x, p1y);
+                for (int k = 0; k + 1 < ts.length; k++) {
+                    double t0 = ts[k], t1 = ts[k + 1];
+                    if (t1 <= t0) continue;
+                    double mid = (t0 + t1) / 2;
+                    if (area.contains(p0x + mid * (p1x - p0x), p0y + mid * (p1y - p0y))) {
+                        piece.flushTo(pieces);
+                        continue;
+                    }
+                    if (piece.isEmpty()) {
+                        piece.add(t0 == 0 ? p0x : p0x + t0 * (p1x - p0x), t0 == 0 ? p0y : p0y + t0 * (p1y - p0y));
+                    }
+                    piece.add(t1 == 1 ? p1x : p0x + t1 * (p1x - p0x), t1 == 1 ? p1y : p0y + t1 * (p1y - p0y));
+                }
+            }
+            piece.flushTo(pieces);
+        }
+        return pieces;
+    }
+
+    /**
+     * A region bounded by rings, which may be combined with others
+     */
+    static final class Area {
+
+        private interface Membership {
+            boolean contains(double x, double y);
+        }
+
+        /**
+         * Every ring bounding the area, closed
+         */
+        private final double[][] rings;
+        private final Membership membership;
+
+        private Area(double[][] rings, Membership membership) {
+            this.rings = rings;
+            this.membership = membership;
+        }
+
+        /**
+         * A polygon of a closed outer ring, less any holes
+         */
+        static Area polygon(double[] outer, double[]... holes) {
+            double[][] rings = new double[holes.length + 1][];
+            rings[0] = outer;
+            System.arraycopy(holes, 0, rings, 1, holes.length);
+            return new Area(rings, (x, y) -> {
+                if (!inRing(x, y, outer)) return false;
+                for (double[] hole : holes) {
+                    if (inRing(x, y, hole)) return false;
+                }
+                return true;
+            });
+        }
+
+        Area union(Area other) {
+            return new Area(concat(rings, other.rings), (x, y) -> contains(x, y) || other.contains(x, y));
+        }
+
+        Area intersect(Area other) {
+            return new Area(concat(rings, other.rings), (x, y) -> contains(x, y) && other.contains(x, y));
+        }
+
+        Area minus(Area other) {
+            return new Area(concat(rings, other.rings), (x, y) -> contains(x, y) && !other.contains(x, y));
+        }
+
+        boolean contains(double x, double y) {
+            return membership.contains(x, y);
+        }
+
+        /**
+         * @return sorted parameters along p0-p1, from 0 to 1, at which it crosses the area's boundary
+         */
+        double[] crossings(double p0x, double p0y, double p1x, double p1y) {
+            CoordinateList ts = new CoordinateList();
+            ts.add(0, 1);
+            for (double[] ring : rings) {
+                for (int i = 0; i + 3 < ring.length; i += 2) {
+                    double t = crossing(p0x, p0y, p1x, p1y, ring[i], ring[i + 1], ring[i + 2], ring[i + 3]);
+                    if (!Double.isNaN(t)) {
+                        ts.add(t);
+                    }
+                }
+            }
+            double[] result = ts.toArray();
+            Arrays.sort(result);
+            return result;
+        }
+
+        private static double[][] concat(double[][] a, double[][] b) {
+            double[][] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+    }
+
+    /**
+     * A growable array of doubles
+     */
+    static final class CoordinateList {
+
+        private double[] values = new double[32];
+        private int size;
+
+        void add(double... coordinates) {
+            if (size + coordinates.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + coordinates.length));
+            }
+            System.arraycopy(coordinates, 0, values, size, coordinates.length);
+            size += coordinates.length;
+        }
+
+        void addDestination(double[] center, double distance, double bearing) {
+            add(0, 0);
+            destination(center[0], center[1], distance, bearing, MILES, values, size - 2);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        /**
+         * Add the coordinates so far to lines, if they make a line, and clear them
+         */
+        void flushTo(List<double[]> lines) {
+            if (size >= 4) {
+                lines.add(toArray());
+            }
+            size = 0;
+        }
+    }
+}
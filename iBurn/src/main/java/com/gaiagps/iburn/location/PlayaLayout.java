@@ -0,0 +1,259 @@
+package com.gaiagps.iburn.location;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The Black Rock City street plan {@link PlayaGeocoder} works from. Distances are in feet from
+ * the Man, or street refs standing for their distance. Times are clock positions, as in addresses.
+ */
+public final class PlayaLayout {
+
+    /**
+     * Geographic bounds of Black Rock City. Used to determine whether a location lies within its general
+     * vicinity, and the extent of what's mapped and geocoded
+     */
+    public static final double MAX_LAT = 40.807569;
+    public static final double MAX_LON = -119.181100;
+    public static final double MIN_LAT = 40.764355;
+    public static final double MIN_LON = -119.236979;
+
+    static final String INNER_PLAYA = "Inner Playa";
+    static final String OUTER_PLAYA = "Outer Playa";
+
+    static final class CircleStreet {
+        final String ref;
+        final String name;
+        final double distance;
+        /**
+         * Start and end times of each segment
+         */
+        final String[][] segments;
+
+        CircleStreet(String ref, String name, double distance, String[][] segments) {
+            this.ref = ref;
+            this.name = name;
+            this.distance = distance;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * Radial streets sharing segments
+     */
+    static final class TimeStreets {
+        final String[] refs;
+        /**
+         * Start and end distance of each segment
+         */
+        final String[][] segments;
+
+        TimeStreets(String[] refs, String[][] segments) {
+            this.refs = refs;
+            this.segments = segments;
+        }
+    }
+
+    static final class Plaza {
+        final String name;
+        final String time;
+        final String distance;
+        final double diameter;
+
+        Plaza(String name, String time, String distance, double diameter) {
+            this.name = name;
+            this.time = time;
+            this.distance = distance;
+            this.diameter = diameter;
+        }
+    }
+
+    static final class Portal {
+        final String name;
+        final String ref;
+        final String time;
+        final String distance;
+        final double angle;
+
+        Portal(String name, String ref, String time, String distance, double angle) {
+            this.name = name;
+            this.ref = ref;
+            this.time = time;
+            this.distance = distance;
+            this.angle = angle;
+        }
+    }
+
+    /**
+     * The 2018 layout
+     */
+    static final PlayaLayout BRC_2018 = new PlayaLayout();
+
+    final double[] center = {-119.2065, 40.7864};
+    final double bearing = 45;
+    final double fenceDistance = 8160;
+
+    final double entranceRoadDistance = 390;
+    final double entranceRoadAngle = 108;
+
+    final double centerCampDistance = 2907;
+    final double rodRoadDistance = 750;
+    final double cafePlazaRadius = 330;
+    final double cafeRadius = 110;
+    final double sixSixManFacingDistance = 500;
+    final double sixSixSixFacingDistance = 560;
+
+    final CircleStreet[] circleStreets = {
+            new CircleStreet("esplanade", "Esplanade", 2500, new String[][]{{"2:00", "6:00"}, {"6:00", "10:00"}}),
+            new CircleStreet("a", "A", 2940, new String[][]{{"2:00", "6:00"}, {"6:00", "10:00"}}),
+            new CircleStreet("b", "B", 3180, new String[][]{{"2:00", "5:30"}, {"6:30", "10:00"}}),
+            new CircleStreet("c", "C", 3420, new String[][]{{"2:00", "6:00"}, {"6:00", "10:00"}}),
+            new CircleStreet("d", "D", 3660, new String[][]{{"2:00", "6:00"}, {"6:00", "10:00"}}),
+            new CircleStreet("e", "E", 3900, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("f", "F", 4140, new String[][]{{"2:30", "3:30"}, {"4:00", "5:00"}, {"7:00", "8:00"}, {"8:30", "9:30"}}),
+            new CircleStreet("g", "G", 4380, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("h", "H", 4620, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("i", "I", 4860, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("j", "J", 5100, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("k", "K", 5340, new String[][]{{"2:00", "10:00"}}),
+            new CircleStreet("l", "L", 5580, new String[][]{{"2:00", "10:00"}}),
+    };
+
+    final TimeStreets[] timeStreets = {
+            new TimeStreets(new String[]{"12:00"}, new String[][]{{"0", "esplanade"}}),
+            new TimeStreets(new String[]{"6:00"}, new String[][]{{"0", "2907"}, {"2907", "l"}}),
+            new TimeStreets(new String[]{"3:00", "9:00"}, new String[][]{{"0", "l"}}),
+            new TimeStreets(new String[]{"2:00", "2:30", "3:30", "4:00", "4:30", "5:00", "7:00", "7:30", "8:00", "8:30",
+                    "9:30", "10:00"}, new String[][]{{"esplanade", "l"}}),
+            new TimeStreets(new String[]{"5:30", "6:30"}, new String[][]{{"esplanade", "6330"}}),
+            new TimeStreets(new String[]{"2:15", "2:45", "3:15", "3:45", "4:15", "4:45", "5:15", "5:45", "6:15", "6:45",
+                    "7:15", "7:45", "8:15", "8:45", "9:15", "9:45"}, new String[][]{{"g", "l"}}),
+    };
+
+    final Plaza[] plazas = {
+            new Plaza("9:00 Civic Plaza", "9:00", "b", 200),
+            new Plaza("3:00 Civic Plaza", "3:00", "b", 200),
+            new Plaza("4:30 Art Plaza", "4:30", "g", 200),
+            new Plaza("7:30 Art Plaza", "7:30", "g", 200),
+            new Plaza("9:00 Public Plaza", "9:00", "g", 200),
+            new Plaza("6:00 Public Plaza", "6:00", "i", 200),
+            new Plaza("3:00 Public Plaza", "3:00", "g", 200),
+            new Plaza("The Man Plaza", "12:00", "0", 400),
+            new Plaza("Center Camp Plaza", "6:00", "a", 600),
+    };
+
+    final Portal[] portals = {
+            new Portal("3:00 Portal", "3portal", "3:00", "b", 20),
+            new Portal("4:30 Portal", "43portal", "4:30", "2994.64", 30),
+            new Portal("6:00 Portal", "6portal", "6:00", "2907", 30),
+            new Portal("7:30 Portal", "73portal", "7:30", "2994.64", 30),
+            new Portal("9:00 Portal", "9portal", "9:00", "b", 20),
+    };
+
+    /**
+     * Surveyed locations of addresses the street plan can't resolve
+     */
+    final Map<String, double[]> hardcodedLocations;
+
+    private PlayaLayout() {
+        Map<String, double[]> hardcoded = new HashMap<>();
+        hardcoded.put("Esplanade & 5:45", new double[]{-119.21134185791016, 40.78132629394531});
+        hardcoded.put("Rte 66 Qrtr Two @ 6:30", new double[]{-119.21534729003906, 40.781890869140625});
+        hardcoded.put("C & 6:15", new double[]{-119.21671295166016, 40.7811164855957});
+        hardcoded.put("Airport Road & Airport Road", new double[]{-119.21112060546875, 40.76435470581055});
+        hardcodedLocations = Collections.unmodifiableMap(hardcoded);
+    }
+
+    /**
+     * @return a 64-bit FNV-1a hash of every value in the plan, so addresses saved under one layout
+     * aren't reused under another
+     */
+    long fingerprint() {
+        StringBuilder plan = new StringBuilder()
+                .append(Arrays.toString(center)).append(bearing).append(fenceDistance)
+                .append(entranceRoadDistance).append(entranceRoadAngle)
+                .append(centerCampDistance).append(rodRoadDistance).append(cafePlazaRadius).append(cafeRadius)
+                .append(sixSixManFacingDistance).append(sixSixSixFacingDistance);
+        for (CircleStreet street : circleStreets) {
+            plan.append(street.ref).append(street.name).append(street.distance).append(Arrays.deepToString(street.segments));
+        }
+        for (TimeStreets streets : timeStreets) {
+            plan.append(Arrays.toString(streets.refs)).append(Arrays.deepToString(streets.segments));
+        }
+        for (Plaza plaza : plazas) {
+            plan.append(plaza.name).append(plaza.time).append(plaza.distance).append(plaza.diameter);
+        }
+        for (Portal portal : portals) {
+            plan.append(portal.name).append(portal.ref).append(portal.time).append(portal.distance).append(portal.angle);
+        }
+        for (Map.Entry<String, double[]> location : new TreeMap<>(hardcodedLocations).entrySet()) {
+            plan.append(location.getKey()).append(Arrays.toString(location.getValue()));
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < plan.length(); i++) {
+            hash = (hash ^ plan.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return the distance in feet of a street ref, or of a literal distance
+     */
+    double distance(String value) {
+        for (CircleStreet street : circleStreets) {
+            if (street.ref.equals(value)) return street.distance;
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * @return the compass bearing in degrees, between -180 and 180, of a clock time like "7:30"
+     */
+    double timeToBearing(String time) {
+        String[] split = time.split(":");
+        return timeToBearing(Integer.parseInt(split[0]), Integer.parseInt(split[1]));
+    }
+
+    double timeToBearing(int hour, int minute) {
+        double clockDegrees = .5 * (60 * (hour % 12) + minute);
+        double compassDegrees = (clockDegrees + bearing) % 360;
+        if (compassDegrees > 180) {
+            compassDegrees = compassDegrees - 360;
+        }
+        return compassDegrees;
+    }
+
+    /**
+     * @return the address of a point on open playa, by its time and distance from the Man
+     */
+    String playaAddress(double x, double y, String playaName) {
+        String time = bearingToTime(PlayaGeometry.bearing(center[0], center[1], x, y));
+        double feet = PlayaGeometry.milesToFeet(PlayaGeometry.distance(x, y, center[0], center[1], PlayaGeometry.KILOMETERS));
+        return time + " & " + Math.round(feet) + "' " + playaName;
+    }
+
+    /**
+     * @return the clock time, like "7:30", of a compass bearing in degrees
+     */
+    String bearingToTime(double degrees) {
+        degrees = degrees - bearing;
+        if (degrees < 0) {
+            degrees = degrees + 360;
+        }
+        double hours = degrees * 2 / 60;
+        long minutes = Math.round(hours % 1 * 60);
+        if (minutes == 60) {
+            hours += 1;
+            minutes = 0;
+        }
+        long wholeHours = (long) Math.floor(hours);
+        if (wholeHours == 0) {
+            wholeHours = 12;
+        }
+        return wholeHours + (minutes < 10 ? ":0" : ":") + minutes;
+    }
+}
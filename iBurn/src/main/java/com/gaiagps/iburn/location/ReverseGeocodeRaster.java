@@ -0,0 +1,132 @@
+package com.gaiagps.iburn.location;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reverse geocodes by looking up the address precomputed for each {@link ReverseGeocodeCache#cell} within the
+ * bounds of the city. Built by ReverseGeocodeRasterGenerator from {@link PlayaGeocoder}, whose answers it
+ * reproduces for the center of each cell.
+ * <p>
+ * The raster is read in place from a buffer, typically a mapped asset. Its layout, big-endian:
+ * <pre>
+ * int    magic, version
+ * int    first row, first column, rows, columns: the cells covered
+ * int    string count, then each address as modified UTF-8
+ * int    per block of 16 x 16 cells, row by row: the offset of its codes, or ~code if every cell shares one
+ * char   per cell of each block not sharing a code, row by row: its code
+ * </pre>
+ * A code is the index of a cell's address, or marks open playa, whose addresses are formatted from the point
+ * looked up since they name its distance in feet. Other lookups return a string from the table.
+ */
+public final class ReverseGeocodeRaster {
+
+    static final int MAGIC = 0x42524352;
+    static final int VERSION = 1;
+
+    static final int BLOCK_SHIFT = 4;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    static final char INNER_PLAYA = 0xFFFE;
+    static final char OUTER_PLAYA = 0xFFFD;
+    static final int MAX_STRINGS = OUTER_PLAYA;
+
+    private final ByteBuffer buffer;
+    private final PlayaLayout layout = PlayaLayout.BRC_2018;
+
+    private final int firstRow;
+    private final int firstColumn;
+    private final int rows;
+    private final int columns;
+    private final int blockColumns;
+    private final String[] strings;
+    private final int directoryOffset;
+    private final int codesOffset;
+
+    /**
+     * @param buffer the raster, from its position to its limit. It's read with absolute gets only, so lookups
+     *               may run on any thread
+     */
+    public ReverseGeocodeRaster(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.slice();
+        ByteBuffer header = this.buffer.duplicate();
+        DataInputStream in = new DataInputStream(new BufferInputStream(header));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a reverse geocode raster");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported reverse geocode raster version " + version);
+        }
+        firstRow = in.readInt();
+        firstColumn = in.readInt();
+        rows = in.readInt();
+        columns = in.readInt();
+        blockColumns = (columns + BLOCK_MASK) >> BLOCK_SHIFT;
+
+        strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        int blockRows = (rows + BLOCK_MASK) >> BLOCK_SHIFT;
+        directoryOffset = header.position();
+        codesOffset = directoryOffset + blockRows * blockColumns * 4;
+    }
+
+    /**
+     * @return the address of the cell containing latitude, longitude, or null if it's outside the raster
+     */
+    public String reverse(double latitude, double longitude) {
+        int row = ReverseGeocodeCache.row(latitude) - firstRow;
+        int column = ReverseGeocodeCache.column(longitude) - firstColumn;
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return null;
+        }
+
+        int block = buffer.getInt(directoryOffset + 4 * ((row >> BLOCK_SHIFT) * blockColumns + (column >> BLOCK_SHIFT)));
+        char code;
+        if (block < 0) {
+            code = (char) ~block;
+        } else {
+            int cell = ((row & BLOCK_MASK) << BLOCK_SHIFT) | (column & BLOCK_MASK);
+            code = buffer.getChar(codesOffset + 2 * (block + cell));
+        }
+
+        switch (code) {
+            case INNER_PLAYA:
+                return layout.playaAddress(longitude, latitude, PlayaLayout.INNER_PLAYA);
+            case OUTER_PLAYA:
+                return layout.playaAddress(longitude, latitude, PlayaLayout.OUTER_PLAYA);
+            default:
+                return strings[code];
+        }
+    }
+
+    /**
+     * Reads a buffer from its position, advancing it
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
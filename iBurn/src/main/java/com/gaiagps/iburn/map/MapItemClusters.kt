@@ -0,0 +1,118 @@
+package com.gaiagps.iburn.map
+
+import com.gaiagps.iburn.database.PlayaItem
+import com.mapbox.mapboxsdk.geometry.LatLngBounds
+import timber.log.Timber
+import java.util.concurrent.TimeUnit
+
+/**
+ * Zoom at which the whole city is in view. Clusters are never coarser than this
+ */
+const val MIN_CLUSTER_ZOOM = 12
+
+/**
+ * Above this zoom, items are mapped individually
+ */
+const val MAX_CLUSTER_ZOOM = 16
+
+/**
+ * How close, in pixels, markers must be to be clustered
+ */
+const val CLUSTER_RADIUS = 40.0
+
+/**
+ * [PlayaItem]s clustered by a [PointClusterIndex]. Build off the main thread, then query from any thread
+ */
+class MapItemClusters private constructor(val items: List<PlayaItem>, private val index: PointClusterIndex) {
+
+    /**
+     * Visit the clusters and items within [bounds] at [zoom]. Points visited are indices into [items]
+     */
+    fun query(bounds: LatLngBounds, zoom: Double, visitor: PointClusterIndex.Visitor) {
+        index.query(bounds.latSouth, bounds.lonWest, bounds.latNorth, bounds.lonEast, zoom, visitor)
+    }
+
+    /**
+     * @return the clusters and items within [bounds] at [zoom]
+     */
+    fun query(bounds: LatLngBounds, zoom: Double): ItemsInView {
+        val clusters = ClustersInView()
+        query(bounds, zoom, clusters)
+        return ItemsInView(clusters.points.map { items[it] }, clusters)
+    }
+
+    companion object {
+
+        /**
+         * Cluster [items], each of which must have a location
+         */
+        fun build(items: List<PlayaItem>): MapItemClusters {
+            val startNs = System.nanoTime()
+            val latitudes = DoubleArray(items.size) { items[it].latitude.toDouble() }
+            val longitudes = DoubleArray(items.size) { items[it].longitude.toDouble() }
+            val index = PointClusterIndex.build(latitudes, longitudes, MIN_CLUSTER_ZOOM, MAX_CLUSTER_ZOOM, CLUSTER_RADIUS)
+            Timber.d("Clustered %d map items in %d ms", items.size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs))
+            return MapItemClusters(items, index)
+        }
+    }
+}
+
+/**
+ * The items and clusters within a viewport
+ */
+class ItemsInView(val items: List<PlayaItem>, val clusters: ClustersInView) {
+
+    companion object {
+        val EMPTY = ItemsInView(emptyList(), ClustersInView())
+    }
+}
+
+/**
+ * Collects the clusters and points in view. Reusable after [clear]
+ */
+class ClustersInView : PointClusterIndex.Visitor {
+    val points = ArrayList<Int>()
+    var clusterCount = 0
+    var latitudes = DoubleArray(64)
+    var longitudes = DoubleArray(64)
+    var counts = IntArray(64)
+    var expansionZooms = IntArray(64)
+
+    fun clear() {
+        points.clear()
+        clusterCount = 0
+    }
+
+    override fun onPoint(point: Int) {
+        points.add(point)
+    }
+
+    override fun onCluster(latitude: Double, longitude: Double, count: Int, expansionZoom: Int) {
+        if (clusterCount == counts.size) {
+            latitudes = latitudes.copyOf(clusterCount * 2)
+            longitudes = longitudes.copyOf(clusterCount * 2)
+            counts = counts.copyOf(clusterCount * 2)
+            expansionZooms = expansionZooms.copyOf(clusterCount * 2)
+        }
+        latitudes[clusterCount] = latitude
+        longitudes[clusterCount] = longitude
+        counts[clusterCount] = count
+        expansionZooms[clusterCount] = expansionZoom
+        clusterCount++
+    }
+
+    /**
+     * @return whether [other] holds the same clusters, in the same order
+     */
+    fun sameAs(other: ClustersInView?): Boolean {
+        if (other == null || other.clusterCount != clusterCount) return false
+        for (i in 0 until clusterCount) {
+            if (latitudes[i] != other.latitudes[i] || longitudes[i] != other.longitudes[i] ||
+                    counts[i] != other.counts[i] || expansionZooms[i] != other.expansionZooms[i]) {
+                return false
+            }
+        }
+        return true
+    }
+}
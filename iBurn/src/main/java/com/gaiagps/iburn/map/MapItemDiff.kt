@@ -0,0 +1,62 @@
+package com.gaiagps.iburn.map
+
+import com.gaiagps.iburn.database.ItemKey
+import com.gaiagps.iburn.database.PlayaItem
+import com.gaiagps.iburn.database.UserPoi
+
+/**
+ * What's drawn for a map item. An item whose state hasn't changed needn't be redrawn
+ */
+data class MapItemState(val latitude: Float,
+                        val longitude: Float,
+                        val name: String?,
+                        val isFavorite: Boolean,
+                        val icon: String?) {
+
+    companion object {
+        fun of(item: PlayaItem) = MapItemState(item.latitude, item.longitude, item.name, item.isFavorite,
+                (item as? UserPoi)?.icon)
+    }
+}
+
+/**
+ * Changes from one set of map items to the next, matched by [ItemKey]
+ */
+class MapItemDiff(val added: List<PlayaItem>, val updated: List<PlayaItem>, val removed: List<Long>) {
+
+    val isEmpty: Boolean
+        get() = added.isEmpty() && updated.isEmpty() && removed.isEmpty()
+}
+
+/**
+ * Diffs each set of map items against the last one diffed. Not thread safe
+ */
+class MapItemDiffer {
+
+    private var states = HashMap<Long, MapItemState>()
+
+    /**
+     * @return the changes from the last set of items to [items]. Of items sharing a key, the first is kept
+     */
+    fun diff(items: Collection<PlayaItem>): MapItemDiff {
+        val nextStates = HashMap<Long, MapItemState>(items.size)
+        val added = ArrayList<PlayaItem>()
+        val updated = ArrayList<PlayaItem>()
+        for (item in items) {
+            val key = ItemKey.of(item)
+            if (nextStates.containsKey(key)) continue
+
+            val state = MapItemState.of(item)
+            nextStates[key] = state
+            val lastState = states[key]
+            if (lastState == null) {
+                added.add(item)
+            } else if (lastState != state) {
+                updated.add(item)
+            }
+        }
+        val removed = states.keys.filter { !nextStates.containsKey(it) }
+        states = nextStates
+        return MapItemDiff(added, updated, removed)
+    }
+}
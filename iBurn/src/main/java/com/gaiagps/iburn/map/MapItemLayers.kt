@@ -0,0 +1,257 @@
+package com.gaiagps.iburn.map
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.RectF
+import android.support.v4.content.ContextCompat
+import com.gaiagps.iburn.R
+import com.gaiagps.iburn.database.ArtRow
+import com.gaiagps.iburn.database.CampRow
+import com.gaiagps.iburn.database.EventRow
+import com.gaiagps.iburn.database.ItemKey
+import com.gaiagps.iburn.database.PlayaItem
+import com.google.gson.JsonObject
+import com.mapbox.geojson.Feature
+import com.mapbox.geojson.FeatureCollection
+import com.mapbox.geojson.Point
+import com.mapbox.mapboxsdk.geometry.LatLng
+import com.mapbox.mapboxsdk.maps.MapboxMap
+import com.mapbox.mapboxsdk.style.expressions.Expression
+import com.mapbox.mapboxsdk.style.expressions.Expression.eq
+import com.mapbox.mapboxsdk.style.expressions.Expression.get
+import com.mapbox.mapboxsdk.style.expressions.Expression.literal
+import com.mapbox.mapboxsdk.style.layers.PropertyFactory.*
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource
+
+private const val SOURCE_ID = "iburn-map-items"
+private const val ITEM_LAYER_ID = "iburn-items"
+private const val FAVORITE_LAYER_ID = "iburn-favorites"
+private const val CLUSTER_LAYER_ID = "iburn-clusters"
+
+/**
+ * Which layer renders a feature: [KIND_ITEM], [KIND_FAVORITE] or [KIND_CLUSTER]
+ */
+private const val PROPERTY_KIND = "kind"
+private const val PROPERTY_ICON = "icon"
+/**
+ * An item's [ItemKey]
+ */
+private const val PROPERTY_KEY = "key"
+private const val PROPERTY_COUNT = "count"
+private const val PROPERTY_EXPANSION_ZOOM = "expansionZoom"
+
+private const val KIND_ITEM = "item"
+private const val KIND_FAVORITE = "favorite"
+private const val KIND_CLUSTER = "cluster"
+
+private const val ICON_ART = "iburn-art"
+private const val ICON_CAMP = "iburn-camp"
+private const val ICON_EVENT = "iburn-event"
+private const val ICON_GENERIC = "iburn-pin"
+private const val ICON_CLUSTER = "iburn-cluster"
+
+/**
+ * How far, in dp, a tap may land from a feature and still select it
+ */
+private const val TAP_SLOP_DP = 12
+
+/**
+ * Renders camps, art, events and clusters of them from a single GeoJSON source. Symbol layers pick each
+ * feature's icon by item type, and draw favorites above other items and clusters above both.
+ * Unlike annotations, features are drawn by the map's renderer, so thousands pan and zoom smoothly.
+ *
+ * Create one per map. Add to it with [addTo] each time its style loads, and replace every feature with each
+ * [setFeatures]
+ */
+class MapItemLayers(private val context: Context) {
+
+    /**
+     * Icons by image name. Styles drop their images when replaced, so they're decoded once and added again to
+     * each. Kept no longer than the map
+     */
+    private val icons = HashMap<String, Bitmap>()
+
+    /**
+     * The source added to the current style, if one has loaded
+     */
+    private var source: GeoJsonSource? = null
+
+    /**
+     * The features last set
+     */
+    private var features: MapItemFeatures? = null
+
+    /**
+     * Items of the features last pushed, by [ItemKey]
+     */
+    private var itemsByKey: Map<Long, PlayaItem> = emptyMap()
+
+    /**
+     * Add icons, the source and layers to the style just loaded, drawing the features last set
+     */
+    fun addTo(map: MapboxMap) {
+        for ((name, resId) in ICON_DRAWABLES) {
+            map.addImage(name, icon(name) { BitmapFactory.decodeResource(context.resources, resId) })
+        }
+        map.addImage(ICON_CLUSTER, icon(ICON_CLUSTER) { clusterBitmap() })
+
+        // A source belongs to the style it was added to
+        val source = GeoJsonSource(SOURCE_ID)
+        features?.let { source.setGeoJson(it.collection) }
+        map.addSource(source)
+        this.source = source
+
+        map.addLayer(SymbolLayer(ITEM_LAYER_ID, SOURCE_ID)
+                .withFilter(LAYER_FILTERS.getValue(ITEM_LAYER_ID))
+                .withProperties(
+                        iconImage("{$PROPERTY_ICON}"),
+                        iconAllowOverlap(true),
+                        iconIgnorePlacement(true)))
+
+        map.addLayer(SymbolLayer(FAVORITE_LAYER_ID, SOURCE_ID)
+                .withFilter(LAYER_FILTERS.getValue(FAVORITE_LAYER_ID))
+                .withProperties(
+                        iconImage("{$PROPERTY_ICON}"),
+                        iconSize(1.25f),
+                        iconAllowOverlap(true),
+                        iconIgnorePlacement(true)))
+
+        map.addLayer(SymbolLayer(CLUSTER_LAYER_ID, SOURCE_ID)
+                .withFilter(LAYER_FILTERS.getValue(CLUSTER_LAYER_ID))
+                .withProperties(
+                        iconImage(ICON_CLUSTER),
+                        iconAllowOverlap(true),
+                        iconIgnorePlacement(true),
+                        textField("{$PROPERTY_COUNT}"),
+                        textSize(13f),
+                        textColor(Color.WHITE),
+                        textAllowOverlap(true),
+                        textIgnorePlacement(true)))
+    }
+
+    /**
+     * Replace every feature. Call on the main thread
+     */
+    fun setFeatures(features: MapItemFeatures) {
+        this.features = features
+        itemsByKey = features.itemsByKey
+        source?.setGeoJson(features.collection)
+    }
+
+    /**
+     * @return whether a feature was last pushed for [item]
+     */
+    fun contains(item: PlayaItem): Boolean = itemsByKey.containsKey(ItemKey.of(item))
+
+    /**
+     * @return the topmost feature drawn at [point], if any
+     */
+    fun featureAt(map: MapboxMap, point: LatLng): Feature? {
+        if (source == null) return null
+        val screenPoint = map.projection.toScreenLocation(point)
+        val slop = TAP_SLOP_DP * context.resources.displayMetrics.density
+        val area = RectF(screenPoint.x - slop, screenPoint.y - slop, screenPoint.x + slop, screenPoint.y + slop)
+        return map.queryRenderedFeatures(area, CLUSTER_LAYER_ID, FAVORITE_LAYER_ID, ITEM_LAYER_ID).firstOrNull()
+    }
+
+    /**
+     * @return the item [feature] was drawn for, or null if it's a cluster
+     */
+    fun itemOf(feature: Feature): PlayaItem? {
+        if (!feature.hasProperty(PROPERTY_KEY)) return null
+        return itemsByKey[feature.getNumberProperty(PROPERTY_KEY).toLong()]
+    }
+
+    /**
+     * @return the zoom at which the cluster [feature] was drawn for splits apart, or null if it's an item
+     */
+    fun expansionZoomOf(feature: Feature): Int? {
+        if (!feature.hasProperty(PROPERTY_EXPANSION_ZOOM)) return null
+        return feature.getNumberProperty(PROPERTY_EXPANSION_ZOOM).toInt()
+    }
+
+    fun positionOf(feature: Feature): LatLng {
+        val point = feature.geometry() as Point
+        return LatLng(point.latitude(), point.longitude())
+    }
+
+    private fun icon(name: String, create: () -> Bitmap): Bitmap = icons.getOrPut(name, create)
+
+    private fun clusterBitmap(): Bitmap {
+        val size = (36 * context.resources.displayMetrics.density).toInt()
+        val bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG)
+        paint.color = ContextCompat.getColor(context, R.color.iburn_color)
+        Canvas(bitmap).drawCircle(size / 2f, size / 2f, size / 2f, paint)
+        return bitmap
+    }
+
+    companion object {
+
+        /**
+         * Item icons by image name, and the drawable each is decoded from. Clusters are drawn as [ICON_CLUSTER]
+         */
+        @JvmField
+        val ICON_DRAWABLES: Map<String, Int> = linkedMapOf(
+                ICON_ART to R.drawable.art_pin,
+                ICON_CAMP to R.drawable.camp_pin,
+                ICON_EVENT to R.drawable.event_pin,
+                ICON_GENERIC to R.drawable.pin)
+
+        /**
+         * The filter picking each layer's features, by layer id in drawing order. Each feature is in one layer
+         */
+        @JvmField
+        val LAYER_FILTERS: Map<String, Expression> = linkedMapOf(
+                ITEM_LAYER_ID to eq(get(PROPERTY_KIND), literal(KIND_ITEM)),
+                FAVORITE_LAYER_ID to eq(get(PROPERTY_KIND), literal(KIND_FAVORITE)),
+                CLUSTER_LAYER_ID to eq(get(PROPERTY_KIND), literal(KIND_CLUSTER)))
+
+        /**
+         * Build features for [items], favorites among them, and [clusters]. Safe off the main thread
+         */
+        fun features(items: Collection<PlayaItem>, clusters: ClustersInView): MapItemFeatures {
+            val features = ArrayList<Feature>(items.size + clusters.clusterCount)
+            val itemsByKey = HashMap<Long, PlayaItem>(items.size)
+            for (item in items) {
+                val key = ItemKey.of(item)
+                itemsByKey[key] = item
+
+                val properties = JsonObject()
+                properties.addProperty(PROPERTY_KIND, if (item.isFavorite) KIND_FAVORITE else KIND_ITEM)
+                properties.addProperty(PROPERTY_ICON, iconOf(item))
+                properties.addProperty(PROPERTY_KEY, key)
+                features.add(Feature.fromGeometry(
+                        Point.fromLngLat(item.longitude.toDouble(), item.latitude.toDouble()), properties))
+            }
+
+            for (i in 0 until clusters.clusterCount) {
+                val properties = JsonObject()
+                properties.addProperty(PROPERTY_KIND, KIND_CLUSTER)
+                properties.addProperty(PROPERTY_COUNT, clusters.counts[i])
+                properties.addProperty(PROPERTY_EXPANSION_ZOOM, clusters.expansionZooms[i])
+                features.add(Feature.fromGeometry(
+                        Point.fromLngLat(clusters.longitudes[i], clusters.latitudes[i]), properties))
+            }
+
+            return MapItemFeatures(FeatureCollection.fromFeatures(features), itemsByKey)
+        }
+
+        private fun iconOf(item: PlayaItem): String = when (item) {
+            is ArtRow -> ICON_ART
+            is CampRow -> ICON_CAMP
+            is EventRow -> ICON_EVENT
+            else -> ICON_GENERIC
+        }
+    }
+}
+
+/**
+ * Features for [MapItemLayers], and the items they were built for by [ItemKey]
+ */
+class MapItemFeatures(val collection: FeatureCollection, val itemsByKey: Map<Long, PlayaItem>)
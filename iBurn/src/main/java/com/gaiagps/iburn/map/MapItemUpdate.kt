@@ -0,0 +1,58 @@
+package com.gaiagps.iburn.map
+
+import com.gaiagps.iburn.database.ItemKey
+import com.gaiagps.iburn.database.PlayaItem
+import com.gaiagps.iburn.database.UserPoi
+
+/**
+ * Changes to apply to the map on the main thread
+ *
+ * @param userPins user placed pins to add, update or remove, each drawn as an editable marker
+ * @param features everything else, or null if what's drawn by [MapItemLayers] hasn't changed
+ * @param results the located items of the latest query result
+ */
+class MapItemUpdate(val userPins: MapItemDiff, val features: MapItemFeatures?, val results: List<PlayaItem>) {
+
+    val isEmpty: Boolean
+        get() = userPins.isEmpty && features == null
+}
+
+/**
+ * Works out the [MapItemUpdate] from what's drawn to the latest query result and items in view. Runs off the
+ * main thread, so the main thread only applies what changed
+ */
+class MapItemUpdater {
+
+    private val userPinDiffer = MapItemDiffer()
+    private val layerItemDiffer = MapItemDiffer()
+    private var clusters: ClustersInView? = null
+
+    /**
+     * @param results favorites and user pins, drawn at every zoom
+     * @param inView camps and art within the viewport, and clusters of them
+     */
+    @Synchronized
+    fun update(results: List<PlayaItem>, inView: ItemsInView): MapItemUpdate {
+        val located = results.filter { it.latitude != 0f }
+        val userPins = ArrayList<PlayaItem>()
+        // Results come first, so a favorite in view is drawn as one
+        val layerItemsByKey = LinkedHashMap<Long, PlayaItem>(located.size + inView.items.size)
+        located.forEach { item ->
+            if (item is UserPoi) userPins.add(item) else layerItemsByKey.getOrPut(ItemKey.of(item)) { item }
+        }
+        inView.items.forEach { item -> layerItemsByKey.getOrPut(ItemKey.of(item)) { item } }
+        val layerItems = layerItemsByKey.values
+
+        val userPinDiff = userPinDiffer.diff(userPins)
+        val layerItemsChanged = !layerItemDiffer.diff(layerItems).isEmpty
+        val clustersChanged = !inView.clusters.sameAs(clusters)
+        clusters = inView.clusters
+
+        val features = if (layerItemsChanged || clustersChanged) {
+            MapItemLayers.features(layerItems, inView.clusters)
+        } else {
+            null
+        }
+        return MapItemUpdate(userPinDiff, features, located)
+    }
+}
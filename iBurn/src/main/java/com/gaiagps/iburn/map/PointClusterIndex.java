@@ -0,0 +1,356 @@
+package com.gaiagps.iburn.map;
+
+import java.util.Arrays;
+
+/**
+ * Groups points into clusters for each zoom level of the map, so a viewport at any zoom shows a bounded
+ * number of markers. Built once per set of points, after which {@link #query} visits the clusters and points
+ * within a viewport without allocating.
+ * <p>
+ * Clustering is hierarchical and greedy, as in Mapbox's supercluster: starting from the points themselves,
+ * each coarser zoom groups the elements of the zoom below that lie within a fixed screen radius of one another,
+ * placing the cluster at their weighted center. Each zoom's elements are held in a static k-d tree.
+ * <p>
+ * Instances are immutable once built, so may be queried from any thread.
+ */
+public final class PointClusterIndex {
+
+    /**
+     * Receives the clusters and points within a viewport
+     */
+    public interface Visitor {
+
+        /**
+         * @param point the index of a point not clustered at the queried zoom, in the arrays it was built from
+         */
+        void onPoint(int point);
+
+        /**
+         * @param count         the number of points clustered
+         * @param expansionZoom the zoom at which the cluster splits apart
+         */
+        void onCluster(double latitude, double longitude, int count, int expansionZoom);
+    }
+
+    /**
+     * Width in pixels of the map's world at zoom 0. Mapbox GL renders 512 pixel tiles
+     */
+    private static final double TILE_SIZE = 512;
+
+    /**
+     * Elements per leaf of each level's k-d tree
+     */
+    private static final int NODE_SIZE = 64;
+
+    private final int minZoom;
+    private final int maxZoom;
+    /**
+     * Elements at each zoom from minZoom through maxZoom, then the points themselves
+     */
+    private final Level[] levels;
+
+    private PointClusterIndex(int minZoom, int maxZoom, Level[] levels) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.levels = levels;
+    }
+
+    /**
+     * Cluster points at each zoom from minZoom through maxZoom. Above maxZoom, points are never clustered
+     *
+     * @param radius how close, in pixels, elements must be to be clustered
+     */
+    public static PointClusterIndex build(double[] latitudes, double[] longitudes,
+                                          int minZoom, int maxZoom, double radius) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Mismatched latitudes and longitudes");
+        }
+        if (minZoom > maxZoom) {
+            throw new IllegalArgumentException("minZoom exceeds maxZoom");
+        }
+
+        int count = latitudes.length;
+        Level points = new Level(count);
+        for (int i = 0; i < count; i++) {
+            points.add(longitudeToX(longitudes[i]), latitudeToY(latitudes[i]), 1, i, maxZoom + 1);
+        }
+        points.index();
+
+        Level[] levels = new Level[maxZoom - minZoom + 2];
+        levels[levels.length - 1] = points;
+        Level finer = points;
+        for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+            finer = cluster(finer, zoom, radius / (TILE_SIZE * Math.pow(2, zoom)));
+            levels[zoom - minZoom] = finer;
+        }
+        return new PointClusterIndex(minZoom, maxZoom, levels);
+    }
+
+    /**
+     * Group the elements of finer, one zoom in from zoom, that lie within radius of each other
+     */
+    private static Level cluster(Level finer, int zoom, double radius) {
+        Level level = new Level(finer.size);
+        boolean[] clustered = new boolean[finer.size];
+        int[] neighbors = new int[16];
+
+        for (int i = 0; i < finer.size; i++) {
+            if (clustered[i]) continue;
+            clustered[i] = true;
+
+            double x = finer.x[i];
+            double y = finer.y[i];
+            int count = finer.count[i];
+            double weightedX = x * count;
+            double weightedY = y * count;
+            boolean merged = false;
+
+            int neighborCount = finer.within(x, y, radius, neighbors);
+            if (neighborCount > neighbors.length) {
+                neighbors = new int[Integer.highestOneBit(neighborCount) << 1];
+                neighborCount = finer.within(x, y, radius, neighbors);
+            }
+            for (int n = 0; n < neighborCount; n++) {
+                int neighbor = neighbors[n];
+                if (clustered[neighbor]) continue;
+                clustered[neighbor] = true;
+                merged = true;
+
+                int neighborPoints = finer.count[neighbor];
+                weightedX += finer.x[neighbor] * neighborPoints;
+                weightedY += finer.y[neighbor] * neighborPoints;
+                count += neighborPoints;
+            }
+
+            if (merged) {
+                level.add(weightedX / count, weightedY / count, count, -1, zoom + 1);
+            } else {
+                level.add(x, y, count, finer.point[i], finer.expansionZoom[i]);
+            }
+        }
+        level.index();
+        return level;
+    }
+
+    /**
+     * Visit the clusters and points within a viewport at zoom
+     */
+    public void query(double south, double west, double north, double east, double zoom, Visitor visitor) {
+        int z = Math.max(minZoom, Math.min((int) Math.floor(zoom), maxZoom + 1));
+        levels[z - minZoom].range(longitudeToX(west), latitudeToY(north), longitudeToX(east), latitudeToY(south),
+                visitor);
+    }
+
+    /**
+     * @return the number of points indexed
+     */
+    public int size() {
+        return levels[levels.length - 1].size;
+    }
+
+    static double longitudeToX(double longitude) {
+        return longitude / 360 + .5;
+    }
+
+    static double latitudeToY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = .5 - .25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return y < 0 ? 0 : y > 1 ? 1 : y;
+    }
+
+    static double xToLongitude(double x) {
+        return (x - .5) * 360;
+    }
+
+    static double yToLatitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * The elements at one zoom, in web mercator coordinates from 0 to 1, sorted into a k-d tree
+     */
+    private static final class Level {
+        int size;
+        double[] x;
+        double[] y;
+        int[] count;
+        /**
+         * The point an element stands for, or -1 for clusters
+         */
+        int[] point;
+        int[] expansionZoom;
+
+        Level(int capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+            count = new int[capacity];
+            point = new int[capacity];
+            expansionZoom = new int[capacity];
+        }
+
+        void add(double x, double y, int count, int point, int expansionZoom) {
+            this.x[size] = x;
+            this.y[size] = y;
+            this.count[size] = count;
+            this.point[size] = point;
+            this.expansionZoom[size] = expansionZoom;
+            size++;
+        }
+
+        /**
+         * Trim to size and sort elements into a k-d tree: each range splits at its median, alternating axes
+         */
+        void index() {
+            x = Arrays.copyOf(x, size);
+            y = Arrays.copyOf(y, size);
+            count = Arrays.copyOf(count, size);
+            point = Arrays.copyOf(point, size);
+            expansionZoom = Arrays.copyOf(expansionZoom, size);
+            sort(0, size - 1, 0);
+        }
+
+        private void sort(int left, int right, int axis) {
+            if (right - left <= NODE_SIZE) return;
+            int median = (left + right) >>> 1;
+            select(median, left, right, axis);
+            sort(left, median - 1, 1 - axis);
+            sort(median + 1, right, 1 - axis);
+        }
+
+        /**
+         * Partially sort left to right along axis, so k holds the element it would in a full sort
+         */
+        private void select(int k, int left, int right, int axis) {
+            double[] values = axis == 0 ? x : y;
+            while (right > left) {
+                double pivot = values[k];
+                swap(k, right);
+                int store = left;
+                for (int i = left; i < right; i++) {
+                    if (values[i] < pivot) swap(i, store++);
+                }
+                swap(store, right);
+                if (store == k) return;
+                if (store < k) {
+                    left = store + 1;
+                } else {
+                    right = store - 1;
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            double swapX = x[i];
+            x[i] = x[j];
+            x[j] = swapX;
+            double swapY = y[i];
+            y[i] = y[j];
+            y[j] = swapY;
+            int swapCount = count[i];
+            count[i] = count[j];
+            count[j] = swapCount;
+            int swapPoint = point[i];
+            point[i] = point[j];
+            point[j] = swapPoint;
+            int swapZoom = expansionZoom[i];
+            expansionZoom[i] = expansionZoom[j];
+            expansionZoom[j] = swapZoom;
+        }
+
+        /**
+         * Collect the elements within radius of x, y into results, if they fit
+         *
+         * @return the number of elements within radius
+         */
+        int within(double centerX, double centerY, double radius, int[] results) {
+            double radiusSquared = radius * radius;
+            int found = 0;
+            // Ranges left to search, as left, right, axis. Each holds at most one range per level of the tree
+            int[] stack = new int[3 * 64];
+            int top = 0;
+            stack[top++] = 0;
+            stack[top++] = size - 1;
+            stack[top++] = 0;
+
+            while (top > 0) {
+                int axis = stack[--top];
+                int right = stack[--top];
+                int left = stack[--top];
+
+                if (right - left <= NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        double dx = x[i] - centerX;
+                        double dy = y[i] - centerY;
+                        if (dx * dx + dy * dy <= radiusSquared) {
+                            if (found < results.length) results[found] = i;
+                            found++;
+                        }
+                    }
+                    continue;
+                }
+
+                int median = (left + right) >>> 1;
+                double dx = x[median] - centerX;
+                double dy = y[median] - centerY;
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    if (found < results.length) results[found] = median;
+                    found++;
+                }
+
+                double split = axis == 0 ? dx : dy;
+                if (split >= -radius) {
+                    stack[top++] = left;
+                    stack[top++] = median - 1;
+                    stack[top++] = 1 - axis;
+                }
+                if (split <= radius) {
+                    stack[top++] = median + 1;
+                    stack[top++] = right;
+                    stack[top++] = 1 - axis;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Visit the elements within a box
+         */
+        void range(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+            range(minX, minY, maxX, maxY, visitor, 0, size - 1, 0);
+        }
+
+        /**
+         * Visit the elements within a box, from left to right of the tree. Recursion is as deep as the tree,
+         * which is log2(size / NODE_SIZE)
+         */
+        private void range(double minX, double minY, double maxX, double maxY, Visitor visitor,
+                           int left, int right, int axis) {
+            if (right - left <= NODE_SIZE) {
+                for (int i = left; i <= right; i++) {
+                    if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY) visit(i, visitor);
+                }
+                return;
+            }
+
+            int median = (left + right) >>> 1;
+            double medianX = x[median];
+            double medianY = y[median];
+            if (medianX >= minX && medianX <= maxX && medianY >= minY && medianY <= maxY) visit(median, visitor);
+
+            if (axis == 0 ? minX <= medianX : minY <= medianY) {
+                range(minX, minY, maxX, maxY, visitor, left, median - 1, 1 - axis);
+            }
+            if (axis == 0 ? maxX >= medianX : maxY >= medianY) {
+                range(minX, minY, maxX, maxY, visitor, median + 1, right, 1 - axis);
+            }
+        }
+
+        private void visit(int i, Visitor visitor) {
+            if (point[i] >= 0) {
+                visitor.onPoint(point[i]);
+            } else {
+                visitor.onCluster(yToLatitude(y[i]), xToLongitude(x[i]), count[i], expansionZoom[i]);
+            }
+        }
+    }
+}
@@ -19,7 +19,7 @@ import android.support.v4.app.NotificationCompat
 import android.support.v4.media.app.NotificationCompat.MediaStyle
 import android.text.TextUtils
 import com.gaiagps.iburn.R
-import com.gaiagps.iburn.database.Art
+import com.gaiagps.iburn.database.ArtRow
 import timber.log.Timber
 import android.app.NotificationChannel
 import android.app.NotificationManager
@@ -47,12 +47,12 @@ class AudioPlayerService : MediaBrowserServiceCompat(), MediaPlayer.OnPreparedLi
         var isPlaying = false
             private set
 
-        var currentArt: Art? = null
+        var currentArt: ArtRow? = null
             private set
 
         fun playAudioTour(context: Context,
                           localMediaUrl: Uri,
-                          art: Art,
+                          art: ArtRow,
                           albumArtUri: Uri) {
             val intent = Intent(context, AudioPlayerService::class.java)
             intent.putExtra(ExtraArtItem, art)
@@ -139,7 +139,7 @@ class AudioPlayerService : MediaBrowserServiceCompat(), MediaPlayer.OnPreparedLi
             stopPlayback()
 
             val extras = intent.extras
-            val art = art as Art
+            val art = art as ArtRow
             val albumArtUri = Uri.parse(extras.getString(ExtraAlbumArtUri))
             val mediaUri = Uri.parse(extras.getString(ExtraLocalMediaUri))
 
@@ -199,7 +199,7 @@ class AudioPlayerService : MediaBrowserServiceCompat(), MediaPlayer.OnPreparedLi
         return super.onStartCommand(intent, flags, startId)
     }
 
-    private fun createNotificationBuilder(art: Art, albumArtUri: Uri?, isPlaying: Boolean): android.support.v4.app.NotificationCompat.Builder {
+    private fun createNotificationBuilder(art: ArtRow, albumArtUri: Uri?, isPlaying: Boolean): android.support.v4.app.NotificationCompat.Builder {
 
         val notification = NotificationCompat.Builder(applicationContext)
                 .setSmallIcon(R.drawable.zzz_ph_ic_notification)
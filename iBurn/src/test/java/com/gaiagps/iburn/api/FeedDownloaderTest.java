@@ -0,0 +1,139 @@
+package com.gaiagps.iburn.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fetches feeds through {@link IBurnApi} and {@link FeedDownloader#createClient}, as {@link IBurnService} does,
+ * from a local server, counting the response body bytes that cross the wire.
+ */
+public class FeedDownloaderTest {
+
+    private static final String ETAG = "\"events-1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private IBurnApi api;
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+
+        OkHttpClient client = FeedDownloader.createClient(folder.newFolder("http"))
+                .newBuilder()
+                .eventListener(new EventListener() {
+                    @Override
+                    public void responseBodyEnd(Call call, long byteCount) {
+                        bytesTransferred.addAndGet(byteCount);
+                    }
+                })
+                .build();
+
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(IBurnApi.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void unchangedFeedIsRevalidatedWithoutBody() throws Exception {
+        String json = feedJson(500);
+        Buffer gzipped = gzip(json);
+
+        // A long max-age, which revalidation must still override
+        server.enqueue(new MockResponse()
+                .setBody(gzipped)
+                .setHeader("Content-Encoding", "gzip")
+                .setHeader("ETag", ETAG)
+                .setHeader("Cache-Control", "max-age=86400"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", ETAG));
+
+        String firstHash = download("first");
+        long firstBytes = bytesTransferred.getAndSet(0);
+
+        RecordedRequest first = server.takeRequest();
+        assertTrue(first.getHeader("Accept-Encoding").contains("gzip"));
+        assertNull(first.getHeader("If-None-Match"));
+        assertTrue("Expected a compressed transfer", firstBytes < json.length());
+
+        String secondHash = download("second");
+        long secondBytes = bytesTransferred.get();
+
+        RecordedRequest second = server.takeRequest();
+        assertEquals(ETAG, second.getHeader("If-None-Match"));
+        assertEquals(0, secondBytes);
+        assertEquals(firstHash, secondHash);
+    }
+
+    @Test
+    public void changedFeedHashesDifferently() throws Exception {
+        server.enqueue(new MockResponse().setBody(feedJson(10)).setHeader("Last-Modified", "Mon, 27 Aug 2018 10:00:00 GMT"));
+        server.enqueue(new MockResponse().setBody(feedJson(11)).setHeader("Last-Modified", "Tue, 28 Aug 2018 10:00:00 GMT"));
+
+        String firstHash = download("first");
+        String secondHash = download("second");
+
+        server.takeRequest();
+        assertEquals("Mon, 27 Aug 2018 10:00:00 GMT", server.takeRequest().getHeader("If-Modified-Since"));
+        assertNotEquals(firstHash, secondHash);
+    }
+
+    private String download(String name) throws IOException {
+        File file = folder.newFile(name);
+        return FeedDownloader.spool(api.getEvents().blockingFirst(), file);
+    }
+
+    private static String feedJson(int eventCount) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < eventCount; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"uid\":\"event-").append(i).append("\",\"title\":\"Event ").append(i)
+                    .append("\",\"description\":\"An event with a description long enough to compress\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static Buffer gzip(String data) throws IOException {
+        Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(buffer));
+        sink.writeUtf8(data);
+        sink.close();
+        return buffer;
+    }
+}
@@ -0,0 +1,131 @@
+package com.gaiagps.iburn.api;
+
+import com.gaiagps.iburn.api.response.Event;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link FeedParser} streams feeds by bounding how far it reads ahead of its consumer, rather than
+ * by sampling the heap, which depends on when the collector runs.
+ */
+public class FeedParserTest {
+
+    private static final int EVENT_COUNT = 5_000;
+    private static final int OCCURRENCES_PER_EVENT = 5;
+    private static final int DESCRIPTION_LENGTH = 4_000;
+
+    // Consuming one event at a time, the parser holds at most the next event, and the JsonReader's
+    // buffer reaches at most into the one after
+    private static final int MAX_EVENTS_READ_AHEAD = 3;
+
+    @Test
+    public void readsFeedOnlyAsConsumed() {
+        SyntheticEventFeed feed = new SyntheticEventFeed();
+        int events = 0;
+        int occurrences = 0;
+        int maxReadAhead = 0;
+
+        for (Event event : FeedParser.parse(FeedParser.createGson(), () -> feed, Event.class).blockingIterable(1)) {
+            events++;
+            occurrences += event.occurrenceSet.size();
+            maxReadAhead = Math.max(maxReadAhead, feed.eventsRead() - events);
+        }
+
+        assertEquals(EVENT_COUNT, events);
+        assertEquals(EVENT_COUNT * OCCURRENCES_PER_EVENT, occurrences);
+        assertTrue("Read " + maxReadAhead + " events ahead", maxReadAhead <= MAX_EVENTS_READ_AHEAD);
+    }
+
+    @Test
+    public void closesFeedWhenCancelled() {
+        SyntheticEventFeed feed = new SyntheticEventFeed();
+
+        Event first = FeedParser.parse(FeedParser.createGson(), () -> feed, Event.class)
+                .take(1)
+                .blockingFirst();
+
+        assertEquals("event-0", first.uid);
+        assertEquals(OCCURRENCES_PER_EVENT, first.occurrenceSet.size());
+        assertTrue(feed.closed.get());
+    }
+
+    /**
+     * An events feed generated as it's read, so the test itself never holds it whole
+     */
+    private static class SyntheticEventFeed extends Reader {
+
+        private static final String DESCRIPTION = repeat('x', DESCRIPTION_LENGTH);
+
+        final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private final StringBuilder chunk = new StringBuilder("[");
+        private int chunkPosition = 0;
+        private int nextEvent = 0;
+
+        /**
+         * @return the number of events handed to the parser so far, in whole or in part
+         */
+        int eventsRead() {
+            return Math.min(nextEvent, EVENT_COUNT);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (chunkPosition == chunk.length() && !nextChunk()) return -1;
+
+            int count = Math.min(length, chunk.length() - chunkPosition);
+            chunk.getChars(chunkPosition, chunkPosition + count, buffer, offset);
+            chunkPosition += count;
+            return count;
+        }
+
+        private boolean nextChunk() {
+            if (nextEvent > EVENT_COUNT) return false;
+
+            chunk.setLength(0);
+            chunkPosition = 0;
+            if (nextEvent == EVENT_COUNT) {
+                chunk.append(']');
+            } else {
+                if (nextEvent > 0) chunk.append(',');
+                appendEvent(nextEvent);
+            }
+            nextEvent++;
+            return true;
+        }
+
+        private void appendEvent(int index) {
+            chunk.append("{\"uid\":\"event-").append(index)
+                    .append("\",\"title\":\"Event ").append(index)
+                    .append("\",\"description\":\"").append(DESCRIPTION)
+                    .append("\",\"all_day\":0,\"event_type\":{\"abbr\":\"prty\",\"label\":\"Party\"}")
+                    .append(",\"hosted_by_camp\":\"camp-").append(index % 1_000)
+                    .append("\",\"occurrence_set\":[");
+            for (int i = 0; i < OCCURRENCES_PER_EVENT; i++) {
+                if (i > 0) chunk.append(',');
+                int day = 27 + i;
+                chunk.append("{\"start_time\":\"2018-08-").append(day).append("T10:00:00-0700\"")
+                        .append(",\"end_time\":\"2018-08-").append(day).append("T12:00:00-0700\"}");
+            }
+            chunk.append("]}");
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+
+        private static String repeat(char c, int count) {
+            StringBuilder builder = new StringBuilder(count);
+            for (int i = 0; i < count; i++) builder.append(c);
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.gaiagps.iburn.api;
+
+import android.content.Context;
+
+import com.gaiagps.iburn.PrefsHelper;
+import com.gaiagps.iburn.api.response.DataManifest;
+import com.gaiagps.iburn.api.response.Event;
+import com.gaiagps.iburn.api.response.ResourceManifest;
+import com.gaiagps.iburn.database.Camp;
+import com.gaiagps.iburn.database.DataProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the download, parse and bookkeeping stages of {@link IBurnService#updateData} against a local server,
+ * with the resource versions and hashes of {@link PrefsHelper} mocked. No {@link com.gaiagps.iburn.database.DataProvider}
+ * is given, so any stage that went on to write a feed would fail. Stored locations are read from {@link #storedLocations}.
+ */
+public class IBurnServiceTest {
+
+    private static final String CAMPS_FILE = "camps.json.js";
+    private static final long MANIFEST_VERSION = 1535302800000L;
+    private static final String FEED = "[{\"uid\":\"camp-1\",\"name\":\"Camp\"}]";
+    private static final String FEED_HASH = ByteString.encodeUtf8(FEED).sha256().hex();
+    private static final String EVENTS_FILE = "events.json.js";
+    private static final String EVENTS_FEED = "[{\"uid\":\"event-1\",\"title\":\"Event\",\"hosted_by_camp\":\"camp-1\"," +
+            "\"occurrence_set\":[]}]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private IBurnService service;
+    private final PrefsHelper storage = mock(PrefsHelper.class);
+    private final Map<String, List<DataProvider.StoredLocation>> storedLocations = new HashMap<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+
+        IBurnApi api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(FeedDownloader.createClient(null))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(IBurnApi.class);
+
+        Context context = mock(Context.class);
+        when(context.getCacheDir()).thenReturn(folder.getRoot());
+        service = new IBurnService(context, api) {
+            @Override
+            List<DataProvider.StoredLocation> getStoredLocations(DataProvider provider, String table) {
+                List<DataProvider.StoredLocation> stored = storedLocations.get(table);
+                return stored != null ? stored : Collections.emptyList();
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void matchingManifestHashSkipsDownload() {
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn(FEED_HASH);
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(FEED_HASH.toUpperCase());
+
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        assertEquals(0, server.getRequestCount());
+        assertTrue(dependencies.unchanged);
+        assertEquals(0L, (long) service.updateResource(dependencies, new LocationIndex()).blockingGet());
+    }
+
+    @Test
+    public void unchangedFeedSkipsParse() {
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn(FEED_HASH);
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        assertEquals(1, server.getRequestCount());
+        assertTrue(dependencies.unchanged);
+        assertNull(dependencies.feed);
+        assertFalse(feedFile().exists());
+        assertEquals(0L, (long) service.updateResource(dependencies, new LocationIndex()).blockingGet());
+    }
+
+    @Test
+    public void changedFeedIsKeptWithItsHash() {
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn("0000");
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        assertFalse(dependencies.unchanged);
+        assertEquals(FEED_HASH, dependencies.feedHash);
+        assertEquals(feedFile(), dependencies.feed);
+        assertTrue(feedFile().exists());
+    }
+
+    @Test
+    public void downloadedFeedIsParsedAndDeleted() {
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+
+        service.downloadResource(dependencies, storage).flatMap(service::parseResource).blockingGet();
+
+        assertEquals(1, dependencies.items.size());
+        assertEquals("camp-1", dependencies.items.get(0).uid);
+        assertFalse(feedFile().exists());
+    }
+
+    @Test
+    public void eventsKeepLocationsOfUnchangedCamps() {
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn(FEED_HASH);
+        storedLocations.put(Camp.TABLE_NAME, Collections.singletonList(new DataProvider.StoredLocation("camp-1",
+                40.78, -119.21, "7:30 & E", 40.79, -119.20, "7:30 & F")));
+        LocationIndex locations = new LocationIndex();
+
+        IBurnService.UpdateDataDependencies camps = campsUpdate(FEED_HASH);
+        service.downloadResource(camps, storage).flatMap(service::parseResource).blockingGet();
+        service.updateResource(camps, locations).blockingGet();
+
+        server.enqueue(new MockResponse().setBody(EVENTS_FEED));
+        IBurnService.UpdateDataDependencies events = update(EVENTS_FILE, null);
+        service.downloadResource(events, storage).flatMap(service::parseResource).blockingGet();
+
+        Event event = (Event) events.items.get(0);
+        service.eventLocations(null, locations).locate(event);
+
+        assertEquals("7:30 & E", event.location.string);
+        assertEquals(40.78, event.location.gps_latitude, 0);
+        assertEquals(-119.21, event.location.gps_longitude, 0);
+        assertEquals("7:30 & F", event.burnermap_location.string);
+        assertEquals(40.79, event.burnermap_location.gps_latitude, 0);
+        assertEquals(-119.20, event.burnermap_location.gps_longitude, 0);
+    }
+
+    @Test
+    public void checkingForUpdatesWritesNothing() {
+        when(storage.getResourceVersion(CAMPS_FILE)).thenReturn(MANIFEST_VERSION - 1);
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn(FEED_HASH);
+
+        assertTrue(service.shouldUpdateResource(storage, campsUpdate(FEED_HASH).resourceManifest));
+
+        verify(storage, never()).setResourceVersion(anyString(), anyLong());
+        verify(storage, never()).setResourceHash(anyString(), anyString());
+    }
+
+    @Test
+    public void writtenFeedRecordsVersionAndHash() {
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        service.recordUpdate(storage, dependencies, 1);
+
+        verify(storage).setResourceVersion(CAMPS_FILE, MANIFEST_VERSION);
+        verify(storage).setResourceHash(CAMPS_FILE, FEED_HASH);
+    }
+
+    @Test
+    public void unchangedFeedRecordsOnlyVersion() {
+        when(storage.getResourceHash(CAMPS_FILE)).thenReturn(FEED_HASH);
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        service.recordUpdate(storage, dependencies, 0);
+
+        verify(storage).setResourceVersion(CAMPS_FILE, MANIFEST_VERSION);
+        verify(storage, never()).setResourceHash(anyString(), anyString());
+    }
+
+    @Test
+    public void emptyUpdateRecordsNothing() {
+        server.enqueue(new MockResponse().setBody(FEED));
+        IBurnService.UpdateDataDependencies dependencies = campsUpdate(null);
+        service.downloadResource(dependencies, storage).blockingGet();
+
+        service.recordUpdate(storage, dependencies, 0);
+
+        verify(storage, never()).setResourceVersion(anyString(), anyLong());
+        verify(storage, never()).setResourceHash(anyString(), anyString());
+    }
+
+    private File feedFile() {
+        return new File(new File(folder.getRoot(), "feeds"), CAMPS_FILE);
+    }
+
+    private static IBurnService.UpdateDataDependencies campsUpdate(String manifestHash) {
+        return update(CAMPS_FILE, manifestHash);
+    }
+
+    /**
+     * @return the update of file, one of the resources of a manifest of version {@link #MANIFEST_VERSION}
+     */
+    private static IBurnService.UpdateDataDependencies update(String file, String manifestHash) {
+        Date updated = new Date(MANIFEST_VERSION);
+        DataManifest manifest = new DataManifest(new ResourceManifest("art.json.js", updated),
+                new ResourceManifest(CAMPS_FILE, updated), new ResourceManifest(EVENTS_FILE, updated),
+                new ResourceManifest("points.json.js", updated));
+        ResourceManifest resource = file.equals(CAMPS_FILE) ? manifest.camps : manifest.events;
+        resource.hash = manifestHash;
+        return new IBurnService.UpdateDataDependencies(null, manifest, resource);
+    }
+}
@@ -0,0 +1,163 @@
+package com.gaiagps.iburn.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeFeedTest {
+
+    private static final List<String> TABLES = Collections.singletonList(Camp.TABLE_NAME);
+
+    private final ChangeFeed feed = new ChangeFeed();
+
+    @Before
+    public void setUp() {
+        // Deliver changes on the publishing thread, so each publish is applied before it returns
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+    }
+
+    @After
+    public void tearDown() {
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void favoriteChangeEmitsCopyOfItem() {
+        List<Camp> loaded = Arrays.asList(camp(1, false), camp(2, false), camp(3, false));
+        TestSubscriber<List<Camp>> lists = observe(loaded, false, Collections.emptyList());
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 2, true));
+
+        lists.assertValueCount(2);
+        List<Camp> patched = lists.values().get(1);
+        assertNotSame(loaded, patched);
+        assertEquals(loaded, patched);
+        assertSame(loaded.get(0), patched.get(0));
+        assertSame(loaded.get(2), patched.get(2));
+
+        assertNotSame(loaded.get(1), patched.get(1));
+        assertTrue(patched.get(1).isFavorite);
+        assertFalse("Emitted items are never modified", loaded.get(1).isFavorite);
+    }
+
+    @Test
+    public void unlistedRowsAndOtherTablesEmitNothing() {
+        TestSubscriber<List<Camp>> lists = observe(Arrays.asList(camp(1, false), camp(2, false)), false,
+                Collections.singletonList(camp(3, true)));
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 3, true));
+        feed.publish(RowChange.Companion.favorite(Art.TABLE_NAME, 1, true));
+
+        lists.assertValueCount(1);
+    }
+
+    @Test
+    public void bulkChangeReloads() {
+        List<Camp> rows = new ArrayList<>(Arrays.asList(camp(1, false), camp(2, false)));
+        TestSubscriber<List<Camp>> lists = feed.<Camp>observeList(TABLES, () -> new ArrayList<>(rows), false,
+                ids -> Collections.emptyList(), camp -> true).test();
+
+        rows.add(camp(3, false));
+        feed.publish(RowChange.Companion.bulk(Camp.TABLE_NAME));
+
+        lists.assertValueCount(2);
+        assertEquals(ids(1, 2, 3), ids(lists.values().get(1)));
+    }
+
+    @Test
+    public void patchesKeepOrder() {
+        TestSubscriber<List<Camp>> lists = observe(Arrays.asList(camp(5, false), camp(1, false), camp(3, false)),
+                false, Collections.emptyList());
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 3, true));
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 5, true));
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 3, false));
+
+        lists.assertValueCount(4);
+        List<Camp> patched = lists.values().get(3);
+        assertEquals(ids(5, 1, 3), ids(patched));
+        assertTrue(patched.get(0).isFavorite);
+        assertFalse(patched.get(2).isFavorite);
+    }
+
+    @Test
+    public void unfavoriteRemovesFromFavorites() {
+        TestSubscriber<List<Camp>> lists = observe(Arrays.asList(camp(1, true), camp(2, true), camp(3, true)),
+                true, Collections.emptyList());
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 1, false));
+        // Found at its new index after the first removal
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 3, false));
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 1, false));
+
+        lists.assertValueCount(3);
+        assertEquals(ids(2, 3), ids(lists.values().get(1)));
+        assertEquals(ids(2), ids(lists.values().get(2)));
+    }
+
+    @Test
+    public void favoriteAddsToFavorites() {
+        TestSubscriber<List<Camp>> lists = observe(Arrays.asList(camp(1, true), camp(2, true)),
+                true, Collections.singletonList(camp(7, true)));
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 7, true));
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 1, false));
+        // Found at its new index after the removal
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 7, false));
+
+        lists.assertValueCount(4);
+        assertEquals(ids(1, 2, 7), ids(lists.values().get(1)));
+        assertEquals(ids(2, 7), ids(lists.values().get(2)));
+        assertEquals(ids(2), ids(lists.values().get(3)));
+    }
+
+    @Test
+    public void rejectedFavoritesAreNotAdded() {
+        List<Camp> rows = Collections.singletonList(camp(1, true));
+        TestSubscriber<List<Camp>> lists = feed.<Camp>observeList(TABLES, () -> rows, true,
+                ids -> Collections.singletonList(camp(7, true)), camp -> camp.id < 5).test();
+
+        feed.publish(RowChange.Companion.favorite(Camp.TABLE_NAME, 7, true));
+
+        lists.assertValueCount(1);
+    }
+
+    private TestSubscriber<List<Camp>> observe(List<Camp> rows, boolean favoritesOnly, List<Camp> loadedRows) {
+        return feed.<Camp>observeList(TABLES, () -> rows, favoritesOnly, ids -> loadedRows, camp -> true).test();
+    }
+
+    private static Camp camp(int id, boolean isFavorite) {
+        Camp camp = new Camp();
+        camp.id = id;
+        camp.playaId = "c" + id;
+        camp.isFavorite = isFavorite;
+        return camp;
+    }
+
+    private static List<Integer> ids(Integer... ids) {
+        return Arrays.asList(ids);
+    }
+
+    private static List<Integer> ids(List<Camp> camps) {
+        List<Integer> ids = new ArrayList<>(camps.size());
+        for (Camp camp : camps) {
+            ids.add(camp.id);
+        }
+        return ids;
+    }
+}
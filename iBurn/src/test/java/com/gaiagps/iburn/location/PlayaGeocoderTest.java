@@ -0,0 +1,64 @@
+package com.gaiagps.iburn.location;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks {@link PlayaGeocoder} against the results of the JS geocoder it replaced, recorded in
+ * geocoder/fixture.json by src/test/js/generate-geocoder-fixture.js.
+ */
+public class PlayaGeocoderTest {
+
+    private static JsonObject fixture;
+
+    @BeforeClass
+    public static void loadFixture() throws IOException {
+        try (Reader reader = new InputStreamReader(
+                PlayaGeocoderTest.class.getResourceAsStream("/geocoder/fixture.json"), Charset.forName("UTF-8"))) {
+            fixture = new JsonParser().parse(reader).getAsJsonObject();
+        }
+    }
+
+    @Test
+    public void reverseMatchesJsGeocoder() {
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        for (JsonElement element : fixture.getAsJsonArray("reverse")) {
+            JsonArray point = element.getAsJsonArray();
+            double latitude = point.get(0).getAsDouble();
+            double longitude = point.get(1).getAsDouble();
+            assertEquals(latitude + ", " + longitude,
+                    point.get(2).getAsString(), geocoder.reverse(latitude, longitude));
+        }
+    }
+
+    @Test
+    public void forwardMatchesJsGeocoder() {
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        for (JsonElement element : fixture.getAsJsonArray("forward")) {
+            JsonArray address = element.getAsJsonArray();
+            String string = address.get(0).getAsString();
+            double[] latLon = geocoder.forward(string);
+            if (address.get(1).isJsonNull()) {
+                assertNull(string, latLon);
+            } else {
+                assertNotNull(string, latLon);
+                assertEquals(string, address.get(1).getAsDouble(), latLon[0], 1e-9);
+                assertEquals(string, address.get(2).getAsDouble(), latLon[1], 1e-9);
+            }
+        }
+    }
+}
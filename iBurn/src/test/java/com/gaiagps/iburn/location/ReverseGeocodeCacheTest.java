@@ -0,0 +1,81 @@
+package com.gaiagps.iburn.location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReverseGeocodeCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cellsAreNoLargerThanAddressResolution() {
+        // 7:30 & Esplanade, a clock minute either side
+        double latitude = 40.7822;
+        double longitude = -119.2131;
+        long cell = ReverseGeocodeCache.cell(latitude, longitude);
+
+        assertEquals(cell, ReverseGeocodeCache.cell(latitude + 1e-6, longitude + 1e-6));
+        assertNotEquals(cell, ReverseGeocodeCache.cell(latitude + 1e-4, longitude));
+        assertNotEquals(cell, ReverseGeocodeCache.cell(latitude, longitude + 1e-4));
+
+        String exact = PlayaGeocoder.getInstance().reverse(latitude, longitude);
+        String cached = new ReverseGeocodeCache(null).reverse(latitude, longitude);
+        assertEquals(exact.substring(exact.indexOf(" & ")), cached.substring(cached.indexOf(" & ")));
+        assertTrue(Math.abs(minutes(exact) - minutes(cached)) <= 1);
+    }
+
+    @Test
+    public void savedCellsAreReadBack() {
+        File file = new File(folder.getRoot(), "cells");
+        double[][] points = {{40.7822, -119.2131}, {40.7950, -119.2020}, {40.7780, -119.2140}, {40.7000, -119.3000}};
+
+        ReverseGeocodeCache cache = new ReverseGeocodeCache(file);
+        String[] addresses = new String[points.length];
+        for (int i = 0; i < points.length; i++) {
+            addresses[i] = cache.reverse(points[i][0], points[i][1]);
+        }
+        cache.save();
+        assertTrue(file.exists());
+
+        ReverseGeocodeCache reloaded = new ReverseGeocodeCache(file);
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(addresses[i], reloaded.reverse(points[i][0], points[i][1]));
+        }
+    }
+
+    @Test
+    public void cellsSavedForAnotherLayoutAreIgnored() throws IOException {
+        File file = new File(folder.getRoot(), "cells");
+        double latitude = 40.7822;
+        double longitude = -119.2131;
+
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(ReverseGeocodeCache.FILE_VERSION);
+            out.writeLong(ReverseGeocodeCache.LAYOUT_FINGERPRINT + 1);
+            out.writeInt(1);
+            out.writeLong(ReverseGeocodeCache.cell(latitude, longitude));
+            out.writeUTF("Stale address");
+        } finally {
+            out.close();
+        }
+
+        assertNotEquals("Stale address", new ReverseGeocodeCache(file).reverse(latitude, longitude));
+    }
+
+    private static int minutes(String address) {
+        String[] time = address.substring(0, address.indexOf(" & ")).split(":");
+        return Integer.parseInt(time[0]) * 60 + Integer.parseInt(time[1]);
+    }
+}
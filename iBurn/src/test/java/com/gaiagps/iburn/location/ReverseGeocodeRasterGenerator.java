@@ -0,0 +1,104 @@
+package com.gaiagps.iburn.location;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the {@link ReverseGeocodeRaster} bundled as an asset, geocoding the center of every cell within the
+ * bounds of the city with {@link PlayaGeocoder}. Run by the generateReverseGeocodeRaster Gradle task, which
+ * should be run again whenever {@link PlayaLayout} changes.
+ */
+public class ReverseGeocodeRasterGenerator {
+
+    public static void main(String[] args) throws IOException {
+        long startNs = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[0]))) {
+            write(PlayaGeocoder.getInstance(), out);
+        }
+        System.out.println(String.format("Wrote %s in %.1f s", args[0], (System.nanoTime() - startNs) / 1e9));
+    }
+
+    static void write(PlayaGeocoder geocoder, OutputStream stream) throws IOException {
+        int firstRow = ReverseGeocodeCache.row(PlayaLayout.MIN_LAT);
+        int firstColumn = ReverseGeocodeCache.column(PlayaLayout.MIN_LON);
+        int rows = ReverseGeocodeCache.row(PlayaLayout.MAX_LAT) - firstRow + 1;
+        int columns = ReverseGeocodeCache.column(PlayaLayout.MAX_LON) - firstColumn + 1;
+        int blockRows = (rows + ReverseGeocodeRaster.BLOCK_MASK) >> ReverseGeocodeRaster.BLOCK_SHIFT;
+        int blockColumns = (columns + ReverseGeocodeRaster.BLOCK_MASK) >> ReverseGeocodeRaster.BLOCK_SHIFT;
+
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> codes = new HashMap<>();
+        char[][] cells = new char[blockRows << ReverseGeocodeRaster.BLOCK_SHIFT][blockColumns << ReverseGeocodeRaster.BLOCK_SHIFT];
+        String innerPlaya = "' " + PlayaLayout.INNER_PLAYA;
+        String outerPlaya = "' " + PlayaLayout.OUTER_PLAYA;
+        for (int row = 0; row < cells.length; row++) {
+            double latitude = ReverseGeocodeCache.rowLatitude(firstRow + Math.min(row, rows - 1));
+            for (int column = 0; column < cells[row].length; column++) {
+                // Cells padding out the last blocks repeat the edge, so blocks along it can still be uniform
+                double longitude = ReverseGeocodeCache.columnLongitude(firstColumn + Math.min(column, columns - 1));
+                String address = geocoder.reverse(latitude, longitude);
+                if (address.endsWith(innerPlaya)) {
+                    cells[row][column] = ReverseGeocodeRaster.INNER_PLAYA;
+                } else if (address.endsWith(outerPlaya)) {
+                    cells[row][column] = ReverseGeocodeRaster.OUTER_PLAYA;
+                } else {
+                    Integer code = codes.get(address);
+                    if (code == null) {
+                        code = strings.size();
+                        if (code >= ReverseGeocodeRaster.MAX_STRINGS) {
+                            throw new IllegalStateException("Too many addresses for a raster");
+                        }
+                        codes.put(address, code);
+                        strings.add(address);
+                    }
+                    cells[row][column] = (char) code.intValue();
+                }
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(ReverseGeocodeRaster.MAGIC);
+        out.writeInt(ReverseGeocodeRaster.VERSION);
+        out.writeInt(firstRow);
+        out.writeInt(firstColumn);
+        out.writeInt(rows);
+        out.writeInt(columns);
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+
+        List<char[]> mixedBlocks = new ArrayList<>();
+        for (int blockRow = 0; blockRow < blockRows; blockRow++) {
+            for (int blockColumn = 0; blockColumn < blockColumns; blockColumn++) {
+                char[] block = new char[ReverseGeocodeRaster.BLOCK_SIZE * ReverseGeocodeRaster.BLOCK_SIZE];
+                boolean uniform = true;
+                for (int i = 0; i < block.length; i++) {
+                    int row = (blockRow << ReverseGeocodeRaster.BLOCK_SHIFT) + (i >> ReverseGeocodeRaster.BLOCK_SHIFT);
+                    int column = (blockColumn << ReverseGeocodeRaster.BLOCK_SHIFT) + (i & ReverseGeocodeRaster.BLOCK_MASK);
+                    block[i] = cells[row][column];
+                    uniform &= block[i] == block[0];
+                }
+                if (uniform) {
+                    out.writeInt(~block[0]);
+                } else {
+                    out.writeInt(mixedBlocks.size() * block.length);
+                    mixedBlocks.add(block);
+                }
+            }
+        }
+        for (char[] block : mixedBlocks) {
+            for (char code : block) {
+                out.writeChar(code);
+            }
+        }
+        out.flush();
+    }
+}
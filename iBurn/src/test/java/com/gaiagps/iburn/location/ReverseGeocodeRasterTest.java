@@ -0,0 +1,88 @@
+package com.gaiagps.iburn.location;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bundled raster against {@link PlayaGeocoder}. Failures mean it's out of date with {@link PlayaLayout},
+ * and should be regenerated with the generateReverseGeocodeRaster Gradle task.
+ */
+public class ReverseGeocodeRasterTest {
+
+    private static ReverseGeocodeRaster raster;
+
+    @BeforeClass
+    public static void mapRaster() throws IOException {
+        try (FileChannel channel = new FileInputStream("src/main/assets/reverse_geocode.raster").getChannel()) {
+            raster = new ReverseGeocodeRaster(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Test
+    public void cellsMatchGeocoder() {
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        Random random = new Random(2018);
+        for (int i = 0; i < 20_000; i++) {
+            double latitude = PlayaLayout.MIN_LAT +
+                    random.nextDouble() * (PlayaLayout.MAX_LAT - PlayaLayout.MIN_LAT);
+            double longitude = PlayaLayout.MIN_LON +
+                    random.nextDouble() * (PlayaLayout.MAX_LON - PlayaLayout.MIN_LON);
+
+            String expected = geocoder.reverse(ReverseGeocodeCache.rowLatitude(ReverseGeocodeCache.row(latitude)),
+                    ReverseGeocodeCache.columnLongitude(ReverseGeocodeCache.column(longitude)));
+            // Open playa is geocoded from the point itself
+            if (expected.endsWith(PlayaLayout.INNER_PLAYA)) {
+                expected = PlayaLayout.BRC_2018.playaAddress(longitude, latitude, PlayaLayout.INNER_PLAYA);
+            } else if (expected.endsWith(PlayaLayout.OUTER_PLAYA)) {
+                expected = PlayaLayout.BRC_2018.playaAddress(longitude, latitude, PlayaLayout.OUTER_PLAYA);
+            }
+            assertEquals(latitude + ", " + longitude, expected, raster.reverse(latitude, longitude));
+        }
+    }
+
+    @Test
+    public void pointsDifferFromGeocoderOnlyAcrossABoundaryInTheirCell() {
+        PlayaGeocoder geocoder = PlayaGeocoder.getInstance();
+        Random random = new Random(2019);
+        int points = 20_000;
+        int differing = 0;
+        for (int i = 0; i < points; i++) {
+            double latitude = PlayaLayout.MIN_LAT + random.nextDouble() * (PlayaLayout.MAX_LAT - PlayaLayout.MIN_LAT);
+            double longitude = PlayaLayout.MIN_LON + random.nextDouble() * (PlayaLayout.MAX_LON - PlayaLayout.MIN_LON);
+
+            String exact = geocoder.reverse(latitude, longitude);
+            if (exact.equals(raster.reverse(latitude, longitude))) continue;
+            differing++;
+
+            // The raster answers for the center of the point's cell, so the two must geocode differently
+            String center = geocoder.reverse(ReverseGeocodeCache.rowLatitude(ReverseGeocodeCache.row(latitude)),
+                    ReverseGeocodeCache.columnLongitude(ReverseGeocodeCache.column(longitude)));
+            assertNotEquals(latitude + ", " + longitude, withoutFeet(exact), withoutFeet(center));
+        }
+        // 1.9% when generated from the 2018 layout
+        assertTrue(differing + " of " + points + " points differ", differing < points * 3 / 100);
+    }
+
+    @Test
+    public void outsideBoundsIsNull() {
+        assertNull(raster.reverse(PlayaLayout.MAX_LAT + .001, -119.2065));
+        assertNull(raster.reverse(40.7864, PlayaLayout.MIN_LON - .001));
+    }
+
+    /**
+     * @return address without the distance of an open playa address, which the raster formats from the point
+     */
+    private static String withoutFeet(String address) {
+        return address.replaceFirst(" & \\d+' ", " & ");
+    }
+}
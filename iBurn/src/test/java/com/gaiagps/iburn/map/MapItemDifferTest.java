@@ -0,0 +1,89 @@
+package com.gaiagps.iburn.map;
+
+import com.gaiagps.iburn.database.Art;
+import com.gaiagps.iburn.database.Camp;
+import com.gaiagps.iburn.database.ItemKey;
+import com.gaiagps.iburn.database.PlayaItem;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MapItemDifferTest {
+
+    @Test
+    public void firstDiffAddsEverything() {
+        MapItemDiffer differ = new MapItemDiffer();
+        MapItemDiff diff = differ.diff(Arrays.asList(camp(1), art(1)));
+
+        assertEquals(2, diff.getAdded().size());
+        assertTrue(diff.getUpdated().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void sameItemsAreUnchanged() {
+        MapItemDiffer differ = new MapItemDiffer();
+        differ.diff(Arrays.asList(camp(1), art(1)));
+
+        assertTrue(differ.diff(Arrays.asList(art(1), camp(1))).isEmpty());
+    }
+
+    @Test
+    public void itemsAreKeyedByTypeAndId() {
+        MapItemDiffer differ = new MapItemDiffer();
+        differ.diff(Collections.singletonList(camp(1)));
+        MapItemDiff diff = differ.diff(Collections.singletonList(art(1)));
+
+        assertEquals(1, diff.getAdded().size());
+        assertEquals(Collections.singletonList(ItemKey.INSTANCE.of(camp(1))), diff.getRemoved());
+    }
+
+    @Test
+    public void changedItemsAreUpdated() {
+        MapItemDiffer differ = new MapItemDiffer();
+        differ.diff(Arrays.asList(camp(1), camp(2)));
+
+        Camp favorite = camp(2);
+        favorite.isFavorite = true;
+        MapItemDiff diff = differ.diff(Arrays.asList(camp(1), favorite));
+
+        assertTrue(diff.getAdded().isEmpty());
+        assertEquals(1, diff.getUpdated().size());
+        assertSame(favorite, diff.getUpdated().get(0));
+        assertTrue(diff.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void firstOfDuplicatesIsKept() {
+        Camp first = camp(1);
+        MapItemDiff diff = new MapItemDiffer().diff(Arrays.<PlayaItem>asList(first, camp(1)));
+
+        assertEquals(1, diff.getAdded().size());
+        assertSame(first, diff.getAdded().get(0));
+    }
+
+    private static Camp camp(int id) {
+        Camp camp = new Camp();
+        locate(camp, id);
+        return camp;
+    }
+
+    private static Art art(int id) {
+        Art art = new Art();
+        locate(art, id);
+        return art;
+    }
+
+    private static void locate(PlayaItem item, int id) {
+        item.id = id;
+        item.name = "Item " + id;
+        item.latitude = 40.78f + id * 0.001f;
+        item.longitude = -119.21f;
+    }
+}
@@ -0,0 +1,141 @@
+package com.gaiagps.iburn.map;
+
+import android.content.Context;
+
+import com.gaiagps.iburn.database.ArtRow;
+import com.gaiagps.iburn.database.CampRow;
+import com.gaiagps.iburn.database.EventRow;
+import com.gaiagps.iburn.database.ItemKey;
+import com.gaiagps.iburn.database.PlayaItem;
+import com.gaiagps.iburn.database.UserPoi;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class MapItemLayersTest {
+
+    @Test
+    public void itemFeaturesCarryIconAndKey() {
+        List<PlayaItem> items = Arrays.asList(item(new ArtRow(), 1), item(new CampRow(), 1), item(new EventRow(), 2),
+                item(new UserPoi(), 3));
+        List<Feature> features = MapItemLayers.Companion.features(items, new ClustersInView()).getCollection().features();
+
+        assertEquals(items.size(), features.size());
+        List<String> icons = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            PlayaItem item = items.get(i);
+            Feature feature = features.get(i);
+            assertEquals(ItemKey.INSTANCE.of(item), feature.getNumberProperty("key").longValue());
+
+            Point point = (Point) feature.geometry();
+            assertEquals(item.latitude, point.latitude(), 1e-6);
+            assertEquals(item.longitude, point.longitude(), 1e-6);
+
+            String icon = feature.getStringProperty("icon");
+            assertTrue(icon + " is added to the map", MapItemLayers.ICON_DRAWABLES.containsKey(icon));
+            icons.add(icon);
+        }
+        assertEquals("Each type has its own icon", icons.size(), new HashSet<>(icons).size());
+    }
+
+    @Test
+    public void clusterFeaturesCarryCountAndExpansionZoom() {
+        ClustersInView clusters = new ClustersInView();
+        clusters.onCluster(40.78, -119.21, 12, 15);
+        clusters.onCluster(40.79, -119.20, 3, 17);
+        List<Feature> features = MapItemLayers.Companion.features(Collections.<PlayaItem>emptyList(), clusters)
+                .getCollection().features();
+
+        assertEquals(2, features.size());
+        Feature cluster = features.get(1);
+        assertEquals(3, cluster.getNumberProperty("count").intValue());
+        assertEquals(17, cluster.getNumberProperty("expansionZoom").intValue());
+        assertFalse(cluster.hasProperty("key"));
+        Point point = (Point) cluster.geometry();
+        assertEquals(40.79, point.latitude(), 1e-9);
+        assertEquals(-119.20, point.longitude(), 1e-9);
+    }
+
+    @Test
+    public void eachFeatureIsInOneLayer() {
+        PlayaItem camp = item(new CampRow(), 1);
+        PlayaItem favorite = item(new ArtRow(), 2);
+        favorite.isFavorite = true;
+        ClustersInView clusters = new ClustersInView();
+        clusters.onCluster(40.78, -119.21, 12, 15);
+        List<Feature> features = MapItemLayers.Companion.features(Arrays.asList(camp, favorite), clusters)
+                .getCollection().features();
+
+        assertEquals(Collections.singletonList("iburn-items"), layersOf(features.get(0)));
+        assertEquals(Collections.singletonList("iburn-favorites"), layersOf(features.get(1)));
+        assertEquals(Collections.singletonList("iburn-clusters"), layersOf(features.get(2)));
+    }
+
+    @Test
+    public void tappedFeaturesResolveToItemsOrClusters() {
+        PlayaItem camp = item(new CampRow(), 1);
+        ClustersInView clusters = new ClustersInView();
+        clusters.onCluster(40.78, -119.21, 12, 15);
+        MapItemFeatures features = MapItemLayers.Companion.features(Collections.singletonList(camp), clusters);
+
+        MapItemLayers layers = new MapItemLayers(mock(Context.class));
+        layers.setFeatures(features);
+
+        Feature item = features.getCollection().features().get(0);
+        Feature cluster = features.getCollection().features().get(1);
+        assertSame(camp, layers.itemOf(item));
+        assertNull(layers.expansionZoomOf(item));
+        assertNull(layers.itemOf(cluster));
+        assertEquals(Integer.valueOf(15), layers.expansionZoomOf(cluster));
+        assertTrue(layers.contains(camp));
+    }
+
+    /**
+     * @return the ids of the layers whose filter accepts feature
+     */
+    private static List<String> layersOf(Feature feature) {
+        List<String> layers = new ArrayList<>();
+        for (Map.Entry<String, Expression> filter : MapItemLayers.LAYER_FILTERS.entrySet()) {
+            if (accepts(filter.getValue().toArray(), feature.properties())) {
+                layers.add(filter.getKey());
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Evaluates the ["==", ["get", property], value] filters the layers use
+     */
+    private static boolean accepts(Object[] filter, JsonObject properties) {
+        assertEquals("==", filter[0]);
+        Object[] get = (Object[]) filter[1];
+        assertEquals("get", get[0]);
+        JsonElement value = properties.get((String) get[1]);
+        return value != null && value.getAsString().equals(filter[2]);
+    }
+
+    private static <T extends PlayaItem> T item(T item, int id) {
+        item.id = id;
+        item.latitude = 40.78f + id / 1000f;
+        item.longitude = -119.21f - id / 1000f;
+        return item;
+    }
+}
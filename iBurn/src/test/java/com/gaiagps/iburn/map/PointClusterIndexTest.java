@@ -0,0 +1,126 @@
+package com.gaiagps.iburn.map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.gaiagps.iburn.location.PlayaLayout.MAX_LAT;
+import static com.gaiagps.iburn.location.PlayaLayout.MAX_LON;
+import static com.gaiagps.iburn.location.PlayaLayout.MIN_LAT;
+import static com.gaiagps.iburn.location.PlayaLayout.MIN_LON;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PointClusterIndexTest {
+
+    private static final int MIN_ZOOM = 12;
+    private static final int MAX_ZOOM = 16;
+    private static final int POINTS = 5_000;
+
+    private static double[] latitudes;
+    private static double[] longitudes;
+    private static PointClusterIndex index;
+
+    @BeforeClass
+    public static void buildIndex() {
+        Random random = new Random(2018);
+        latitudes = new double[POINTS];
+        longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+            longitudes[i] = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+        }
+        // Camps hosting events share a location
+        for (int i = 0; i < 100; i++) {
+            latitudes[POINTS - 1 - i] = latitudes[i];
+            longitudes[POINTS - 1 - i] = longitudes[i];
+        }
+        index = PointClusterIndex.build(latitudes, longitudes, MIN_ZOOM, MAX_ZOOM, 40);
+    }
+
+    @Test
+    public void everyZoomCountsEveryPoint() {
+        for (int zoom = MIN_ZOOM - 2; zoom <= MAX_ZOOM + 2; zoom++) {
+            final int queryZoom = zoom;
+            final boolean[] seen = new boolean[POINTS];
+            final int[] total = new int[1];
+            index.query(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, zoom + .5, new PointClusterIndex.Visitor() {
+                @Override
+                public void onPoint(int point) {
+                    assertFalse("Point visited twice", seen[point]);
+                    seen[point] = true;
+                    total[0]++;
+                }
+
+                @Override
+                public void onCluster(double latitude, double longitude, int count, int expansionZoom) {
+                    assertTrue(count > 1);
+                    assertTrue(expansionZoom > Math.max(queryZoom, MIN_ZOOM));
+                    assertTrue(expansionZoom <= MAX_ZOOM + 1);
+                    total[0] += count;
+                }
+            });
+            assertEquals("Zoom " + zoom, POINTS, total[0]);
+        }
+    }
+
+    @Test
+    public void pointsAboveMaxZoomAreUnclustered() {
+        double south = 40.780, west = -119.220, north = 40.790, east = -119.200;
+        final boolean[] visited = new boolean[POINTS];
+        index.query(south, west, north, east, MAX_ZOOM + 1, new PointClusterIndex.Visitor() {
+            @Override
+            public void onPoint(int point) {
+                visited[point] = true;
+            }
+
+            @Override
+            public void onCluster(double latitude, double longitude, int count, int expansionZoom) {
+                throw new AssertionError("Clustered above max zoom");
+            }
+        });
+        for (int i = 0; i < POINTS; i++) {
+            boolean inside = latitudes[i] >= south && latitudes[i] <= north &&
+                    longitudes[i] >= west && longitudes[i] <= east;
+            assertEquals("Point " + i, inside, visited[i]);
+        }
+    }
+
+    @Test
+    public void clustersBoundMarkerCount() {
+        final int[] elements = new int[1];
+        index.query(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, MIN_ZOOM, new PointClusterIndex.Visitor() {
+            @Override
+            public void onPoint(int point) {
+                elements[0]++;
+            }
+
+            @Override
+            public void onCluster(double latitude, double longitude, int count, int expansionZoom) {
+                assertTrue(latitude >= MIN_LAT && latitude <= MAX_LAT);
+                assertTrue(longitude >= MIN_LON && longitude <= MAX_LON);
+                elements[0]++;
+            }
+        });
+        assertTrue("Too many elements at min zoom: " + elements[0], elements[0] < 100);
+    }
+
+    @Test
+    public void emptyIndex() {
+        PointClusterIndex empty = PointClusterIndex.build(new double[0], new double[0], MIN_ZOOM, MAX_ZOOM, 40);
+        assertEquals(0, empty.size());
+        empty.query(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, MAX_ZOOM, new PointClusterIndex.Visitor() {
+            @Override
+            public void onPoint(int point) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void onCluster(double latitude, double longitude, int count, int expansionZoom) {
+                throw new AssertionError();
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+// Records the JavaScript geocoder's results for PlayaGeocoderTest.
+// Run from this directory with `node generate-geocoder-fixture.js`
+var fs = require('fs');
+var path = require('path');
+
+var window = global;
+eval(fs.readFileSync(path.join(__dirname, 'geocoder-bundle.js'), 'utf8'));
+var coder = window.prepare();
+
+// Deterministic pseudo-random numbers, so the fixture only changes with the geocoder
+var seed = 2018;
+function random() {
+    seed = (seed * 1103515245 + 12345) % 2147483648;
+    return seed / 2147483648;
+}
+
+var reverse = [];
+function addReverse(minLat, maxLat, minLon, maxLon, count) {
+    for (var i = 0; i < count; i++) {
+        var lat = +(minLat + random() * (maxLat - minLat)).toFixed(7);
+        var lon = +(minLon + random() * (maxLon - minLon)).toFixed(7);
+        reverse.push([lat, lon, coder.reverse(lat, lon)]);
+    }
+}
+// The whole city, then center camp, where streets are densest
+addReverse(40.763, 40.810, -119.237, -119.176, 3000);
+addReverse(40.778, 40.785, -119.219, -119.209, 1000);
+
+var streets = ['Esplanade', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L'];
+var times = [];
+for (var minutes = 120; minutes <= 600; minutes += 15) {
+    times.push(Math.floor(minutes / 60) + ':' + ('0' + minutes % 60).slice(-2));
+}
+
+var addresses = [];
+streets.forEach(function (street) {
+    times.forEach(function (time) {
+        addresses.push(time + ' & ' + street);
+        addresses.push(street + ' & ' + time);
+    });
+});
+times.forEach(function (time) {
+    addresses.push("Rod's Road & " + time);
+    addresses.push(time + ' & Route 66');
+    addresses.push('Inner Circle & ' + time);
+    addresses.push(time + ' & 500\'');
+    addresses.push(time + ' @ 1200\' Inner Playa');
+});
+addresses = addresses.concat([
+    '12:00 & 2000\'', '6:00 & 7000\'', '10:30 & 0\'',
+    '6:00 & Center Camp Plaza', 'Center Camp Plaza', '3:00 & Center Camp Plaza', '6:00 & Café',
+    '9:00 Civic Plaza', '3:00 Civic Plaza', '4:30 Art Plaza', '7:30 Art Plaza', '9:00 Public Plaza',
+    '6:00 Public Plaza', '3:00 Public Plaza', 'The Man Plaza', '12:00 & The Man Plaza',
+    '3:00 Portal', '4:30 Portal', '6:00 Portal', '7:30 Portal', '9:00 Portal',
+    'Airport Road & 5:00', 'Entrance Road & 6:00',
+    'Esplanade & 5:45', 'Rte 66 Qrtr Two @ 6:30', 'C & 6:15', 'Airport Road & Airport Road',
+    '7:30 & e', '  7:30   &   E  ', '7:30 @ E', 'E&7:30', '07:30 & E',
+    '', 'Mobile', 'asdf', '&', '7:30 &', '7:30', 'E', 'Nowhere & 7:30', '13:00 & E', '7:30 & Z'
+]);
+
+var forward = addresses.map(function (address) {
+    var result;
+    try {
+        result = coder.forward(address);
+    } catch (e) {
+        result = undefined;
+    }
+    var coords = result && result.geometry && result.geometry.coordinates;
+    while (coords && Array.isArray(coords[0])) coords = coords[0];
+    return coords ? [address, coords[1], coords[0]] : [address, null, null];
+});
+
+fs.writeFileSync(path.join(__dirname, '../resources/geocoder/fixture.json'),
+    JSON.stringify({reverse: reverse, forward: forward}));